@@ -0,0 +1,897 @@
+package com.curtisnewbie.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.curtisnewbie.io.ContainerReader;
+import com.curtisnewbie.io.ExtractionManifest;
+import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.io.OutputSession;
+import com.curtisnewbie.io.PdfLoadOptions;
+import com.curtisnewbie.io.StructuredTextWriter;
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+import com.curtisnewbie.pdfprocess.FontCache;
+import com.curtisnewbie.pdfprocess.PageRange;
+import com.curtisnewbie.pdfprocess.PdfProcessor;
+import com.curtisnewbie.pdfprocess.RenderOptions;
+import com.curtisnewbie.pdfprocess.TextChunkOptions;
+import com.curtisnewbie.scheduler.WorkStealingScheduler;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Extracts text and images from many PDF files without UI. PDF files are
+ * processed by a {@link WorkStealingScheduler}, the text of each PDF file is
+ * split into page ranges extracted concurrently by all the workers, so a large
+ * PDF file doesn't leave the other workers idle. Pages may also be rendered
+ * into images, which are split into page ranges the same way. The elements of
+ * each PDF file are written in page order to its own directory under the output
+ * directory.
+ * </p>
+ * <p>
+ * By default, extraction is incremental: an {@link ExtractionManifest} is kept
+ * along with the elements of each PDF file, PDF files that haven't changed
+ * since the last extraction are skipped, and only the pages that have changed
+ * are extracted again.
+ * </p>
+ * <p>
+ * Each PDF file may be limited by a timeout and a budget of pages, a PDF file
+ * that is stopped by them keeps the elements extracted before it stopped, and
+ * it's extracted again by the next extraction.
+ * </p>
+ */
+public class BatchExtractor {
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final String outputDir;
+    /** number of workers shared by all PDF files */
+    private int jobs = Runtime.getRuntime().availableProcessors();
+    /** maximum number of pages of text extracted by a task */
+    private int pagesPerTask = 16;
+    private int fromPage = 1;
+    private int toPage = -1;
+    private boolean extractText = true;
+    private boolean extractImages = true;
+    private PdfLoadOptions loadOptions = PdfLoadOptions.defaults();
+    private boolean incremental = true;
+    /** whether the elements of each PDF file are written to a single container */
+    private boolean container = false;
+    /** format of the structured text written, null if it's not written */
+    private StructuredTextWriter.Format structuredFormat;
+    /** time each PDF file can take in seconds, not limited if it's 0 */
+    private long timeoutSeconds = 0;
+    /** number of pages extracted in each PDF file, not limited if it's negative */
+    private int maxPages = -1;
+    /** whether the progress of each PDF file is printed */
+    private boolean progress = false;
+    /** options of rendering pages into images, null if pages are not rendered */
+    private RenderOptions renderOptions;
+    /** options of grouping text into chunks, null if text is written per page */
+    private TextChunkOptions chunkOptions;
+    /** when files are synced to the disk */
+    private OutputSession.SyncPolicy syncPolicy = OutputSession.SyncPolicy.NONE;
+    /** bytes of small files held before they are written, 0 if they are written immediately */
+    private int coalesceBytes = 0;
+    /** cache of parsed fonts shared by the PDF files, null if fonts are parsed for each of them */
+    private FontCache fontCache = FontCache.shared();
+
+    /**
+     * @param outputDir directory where the extracted elements are written to
+     */
+    public BatchExtractor(String outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Find PDF files in the given paths, directories are walked recursively
+     * 
+     * @param paths paths of PDF files or directories
+     * @return PDF files found, each with the path relative to the directory it's
+     *         found in
+     * @throws IOException
+     */
+    public static List<SourcePdf> findPdfFiles(List<String> paths) throws IOException {
+        List<SourcePdf> pdfs = new ArrayList<>();
+        for (var p : paths) {
+            var path = Path.of(p);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    for (var f : walk.filter(f -> Files.isRegularFile(f) && isPdf(f)).sorted()
+                            .collect(Collectors.toList())) {
+                        pdfs.add(new SourcePdf(f, path.relativize(f)));
+                    }
+                }
+            } else {
+                pdfs.add(new SourcePdf(path, path.getFileName()));
+            }
+        }
+        return pdfs;
+    }
+
+    /**
+     * Extract elements from the PDF files
+     * 
+     * @param pdfs PDF files
+     * @return summary
+     */
+    public Summary extract(List<SourcePdf> pdfs) {
+        var summary = new Summary();
+        long start = System.nanoTime();
+        var scheduler = new WorkStealingScheduler(jobs, pagesPerTask);
+        // bounds the PDF files opened at the same time, with a few waiting for the idle workers
+        var openFiles = new Semaphore(jobs * 2);
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>();
+            Set<Path> usedDirs = new HashSet<>();
+            for (var pdf : pdfs) {
+                var dir = uniqueOutputDir(pdf, usedDirs);
+                openFiles.acquire();
+                futures.add(scheduler.submit(() -> {
+                    try {
+                        return extract(pdf.getPath(), dir, scheduler);
+                    } finally {
+                        openFiles.release();
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    summary.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        // stopped before any element is extracted
+                        logger.warning(String.format("%s: %s", pdfs.get(i).getPath(), e.getCause().getMessage()));
+                        summary.files++;
+                        summary.stoppedFiles++;
+                        continue;
+                    }
+                    logger.log(Level.SEVERE, "Failed to extract elements from " + pdfs.get(i).getPath(), e.getCause());
+                    summary.failedFiles++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            scheduler.shutdown();
+        }
+        summary.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return summary;
+    }
+
+    /**
+     * Extract elements from a PDF file, the PDF file or its pages are skipped if
+     * they haven't changed since the last extraction
+     * 
+     * @param pdf       PDF file
+     * @param dir       directory where the elements are written to
+     * @param scheduler scheduler of page ranges
+     * @return result
+     * @throws IOException
+     */
+    FileResult extract(Path pdf, Path dir, WorkStealingScheduler scheduler) throws IOException {
+        var path = pdf.toString();
+        var result = new FileResult();
+        result.metrics = ExtractionMetrics.newJob(path);
+        var metrics = result.metrics;
+        var control = new ExtractionControl();
+        control.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        control.setPageBudget(maxPages);
+        long size = Files.size(pdf);
+        long lastModified = Files.getLastModifiedTime(pdf).toMillis();
+        var options = String.format("pages=%d-%d text=%b images=%b container=%b structured=%s render=%s chunks=%s",
+                fromPage, toPage, extractText, extractImages, container, structuredFormat, renderOptions,
+                chunkOptions);
+        var previous = incremental ? ExtractionManifest.read(dir) : null;
+        if (previous != null && isUpToDate(previous, dir, size, lastModified, options)) {
+            logger.info("Skipping unchanged " + path);
+            result.skipped = true;
+            return result;
+        }
+
+        var processor = openProcessor(path, metrics, scheduler);
+        ElementOutput output = null;
+        try {
+            var pageRange = processor.validateAndReturnPageRange(fromPage, toPage);
+            int from = pageRange.getFromPage();
+            int last = pageRange.getToPage();
+            if (progress)
+                printProgress(control, path, from, last);
+            Files.createDirectories(dir);
+            // files recorded by the manifest are about to be overwritten
+            ExtractionManifest.delete(dir);
+            output = container ? ElementOutput.container(dir, metrics)
+                    : ElementOutput.files(dir, metrics, syncPolicy, coalesceBytes);
+            var manifest = new ExtractionManifest(size, lastModified, options);
+            // fingerprints are only compared when the extraction is incremental, pages
+            // without them are extracted again by the next run
+            var fingerprints = incremental ? processor.fingerprintPages(from, last, control) : null;
+            for (int page = from; page <= last; page++)
+                manifest.setPage(page, fingerprints != null ? fingerprints.get(page - from) : null);
+
+            try {
+                extractElements(processor, scheduler, path, dir, from, last, previous, manifest, output, result,
+                        control);
+            } catch (CancellationException e) {
+                // the elements extracted so far are kept
+                logger.warning(String.format("%s: %s", path, e.getMessage()));
+                result.stopped = true;
+            }
+
+            output.commit(previous, manifest);
+            output = null;
+            manifest.setComplete(!result.stopped && result.failures == 0 && result.failedImages == 0
+                    && result.failedRenders == 0);
+            manifest.write(dir);
+        } finally {
+            if (output != null)
+                output.abort();
+            processor.close();
+        }
+        return result;
+    }
+
+    /**
+     * Open the processor of a PDF file, whose page ranges are extracted
+     * concurrently by the scheduler
+     * 
+     * @param path      path to the PDF file
+     * @param metrics   metrics of the file
+     * @param scheduler scheduler of page ranges
+     * @return processor
+     * @throws IOException
+     */
+    PdfProcessor openProcessor(String path, ExtractionMetrics metrics, WorkStealingScheduler scheduler)
+            throws IOException {
+        var processor = new PdfProcessor(IOManager.readPdfFile(path, loadOptions, metrics),
+                () -> IOManager.readPdfFile(path, loadOptions, metrics));
+        // page ranges are extracted concurrently by the scheduler instead
+        processor.setParallelism(1);
+        // a document for each worker, such that no worker waits for one while holding
+        // its thread
+        processor.setMaxClones(scheduler.getParallelism() - 1);
+        processor.setMetrics(metrics);
+        processor.setFontCache(fontCache);
+        return processor;
+    }
+
+    /**
+     * Extract the elements of the pages that can't be reused, and record them in
+     * the manifest
+     * 
+     * @throws IOException
+     * @throws CancellationException if it's stopped by the control
+     */
+    private void extractElements(PdfProcessor processor, WorkStealingScheduler scheduler, String path, Path dir,
+            int from, int last, ExtractionManifest previous, ExtractionManifest manifest, ElementOutput output,
+            FileResult result, ExtractionControl control) throws IOException {
+        final var out = output;
+        if (extractText && chunkOptions != null) {
+            writeTextChunks(processor, scheduler, path, from, last, manifest, output, result, control);
+        } else if (extractText) {
+            int page = from;
+            while (page <= last) {
+                var reused = reusableTextFile(previous, manifest, output, page);
+                if (reused != null) {
+                    output.keep(page, reused);
+                    manifest.setTextFile(page, reused);
+                    result.reusedPages++;
+                    page++;
+                    continue;
+                }
+                // extract the run of pages that can't be reused
+                int end = page;
+                while (end < last && reusableTextFile(previous, manifest, output, end + 1) == null)
+                    end++;
+                scheduler.extractTextByPage(processor, new PageRange(page, end), (txt, p) -> {
+                    try {
+                        if (txt == null)
+                            throw new IOException(String.format("Failed to extract text of page %d in %s", p, path));
+                        manifest.setTextFile(p, out.writeText(p, txt, "page" + p + ".txt"));
+                        result.pages++;
+                    } catch (IOException e) {
+                        logger.severe(e.getMessage());
+                        result.failures++;
+                    }
+                }, control);
+                page = end + 1;
+            }
+        }
+        if (structuredFormat != null) {
+            // a single file of all the pages, so it's written again as a whole
+            try (var writer = IOManager.createStructuredTextWriter(dir.toString(), structuredFilename(),
+                    structuredFormat, result.metrics)) {
+                var failure = new IOException[1];
+                boolean complete = processor.extractStructuredText(from, last, text -> {
+                    try {
+                        if (failure[0] == null)
+                            writer.write(text);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }, control);
+                if (failure[0] != null)
+                    throw failure[0];
+                if (!complete)
+                    throw new IOException("Failed to extract structured text in " + path);
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+                result.failures++;
+            }
+        }
+        if (extractImages) {
+            if (previous != null && previous.isImagesExtracted() && manifest.hasSamePages(previous)
+                    && previous.getFiles().stream().allMatch(output::exists)) {
+                // images are numbered across pages, so they are only reused if no page changed
+                for (int page = from; page <= last; page++) {
+                    for (var img : previous.getImageFiles(page)) {
+                        output.keep(page, img);
+                        manifest.addImageFile(page, img);
+                    }
+                }
+                manifest.setImagesExtracted(true);
+            } else {
+                processor.setDeduplicateImages(true, true);
+                // images are consumed by this worker, rather than by another thread of each file
+                processor.setMaxImagesInFlight(1);
+                List<String> files = new ArrayList<>();
+                var refs = processor.extractImagesPassthrough(from, last, (img, page) -> {
+                    String file = null;
+                    try {
+                        file = out.writeImage(page, img, "img" + files.size() + "." + img.getFormat());
+                        manifest.addImageFile(page, file);
+                        result.images++;
+                    } catch (IOException e) {
+                        logger.severe(e.getMessage());
+                        result.failedImages++;
+                    }
+                    files.add(file);
+                }, control);
+                // images shared by pages are written once, in the first page they are found
+                for (int i = 0; i < refs.getImageCount() && i < files.size(); i++) {
+                    if (files.get(i) == null)
+                        continue;
+                    for (var page : refs.getPages(i))
+                        output.addReference(page, files.get(i));
+                }
+                manifest.setImagesExtracted(result.failedImages == 0);
+            }
+        }
+        if (renderOptions != null)
+            renderPages(processor, scheduler, path, from, last, previous, manifest, output, result, control);
+    }
+
+    /**
+     * Extract the text of the pages grouped into chunks, each written to
+     * {@code text/pages<from>-<to>.txt}. Chunks of pages that haven't changed are
+     * written again, as the boundaries of the chunks depend on all the pages
+     * before them.
+     * 
+     * @throws IOException
+     * @throws CancellationException if it's stopped by the control, the pages
+     *                               extracted before are written as the last chunk
+     */
+    private void writeTextChunks(PdfProcessor processor, WorkStealingScheduler scheduler, String path, int from,
+            int last, ExtractionManifest manifest, ElementOutput output, FileResult result, ExtractionControl control)
+            throws IOException {
+        var chunker = processor.createTextChunker(from, last, chunkOptions, chunk -> {
+            try {
+                var file = output.writeText(chunk.getFromPage(), chunk.getText(),
+                        String.format("pages%d-%d.txt", chunk.getFromPage(), chunk.getToPage()));
+                for (int p = chunk.getFromPage(); p <= chunk.getToPage(); p++)
+                    manifest.setTextFile(p, file);
+                result.chunks++;
+            } catch (IOException e) {
+                logger.severe(e.getMessage());
+                result.failures++;
+            }
+        });
+        try {
+            scheduler.extractTextByPage(processor, new PageRange(from, last), (txt, p) -> {
+                if (txt == null) {
+                    logger.severe(String.format("Failed to extract text of page %d in %s", p, path));
+                    result.failures++;
+                } else {
+                    result.pages++;
+                }
+                chunker.accept(txt, p);
+            }, control);
+        } finally {
+            chunker.finish();
+        }
+    }
+
+    /**
+     * Render the pages that can't be reused into images, the pages are split into
+     * page ranges, and each image is encoded as PNG by the worker that rendered
+     * it, such that only the encoded images wait to be written in page order
+     * 
+     * @throws IOException
+     * @throws CancellationException if it's stopped by the control
+     */
+    private void renderPages(PdfProcessor processor, WorkStealingScheduler scheduler, String path, int from,
+            int last, ExtractionManifest previous, ExtractionManifest manifest, ElementOutput output,
+            FileResult result, ExtractionControl control) throws IOException {
+        final var out = output;
+        int page = from;
+        while (page <= last) {
+            var reused = reusableRenderFiles(previous, manifest, output, page);
+            if (reused != null) {
+                for (var file : reused) {
+                    output.keep(page, file);
+                    manifest.addRenderFile(page, file);
+                }
+                result.reusedRenders++;
+                page++;
+                continue;
+            }
+            int end = page;
+            while (end < last && reusableRenderFiles(previous, manifest, output, end + 1) == null)
+                end++;
+            scheduler.<List<EncodedRender>>extractByPage(processor, new PageRange(page, end), (p, f, t, sink) -> {
+                List<EncodedRender> images = new ArrayList<>();
+                int[] current = { f };
+                p.renderPages(f, t, renderOptions, rendered -> {
+                    if (rendered.getPage() != current[0]) {
+                        sink.accept(images.isEmpty() ? null : new ArrayList<>(images), current[0]);
+                        images.clear();
+                        current[0] = rendered.getPage();
+                    }
+                    try {
+                        images.add(new EncodedRender(rendered.getBaseName() + ".png",
+                                IOManager.encodePng(rendered.getImage(), result.metrics)));
+                    } catch (IOException e) {
+                        logger.severe(String.format("Failed to encode page %d in %s: %s", rendered.getPage(), path,
+                                e.getMessage()));
+                    }
+                });
+                // pages that failed to be rendered are skipped by the processor
+                sink.accept(images.isEmpty() ? null : images, current[0]);
+            }, (images, p) -> {
+                try {
+                    if (images == null)
+                        throw new IOException(String.format("Failed to render page %d in %s", p, path));
+                    for (var img : images)
+                        manifest.addRenderFile(p, out.writeImage(p, img.encoded, img.filename));
+                    result.renderedPages++;
+                } catch (IOException e) {
+                    logger.severe(e.getMessage());
+                    result.failedRenders++;
+                }
+            }, control);
+            page = end + 1;
+        }
+    }
+
+    /**
+     * Print the progress of the PDF file to the standard error, at most once a
+     * second and when the last page is done, the pages are counted once for each
+     * kind of elements extracted
+     */
+    private void printProgress(ExtractionControl control, String path, int from, int last) {
+        int kinds = (extractText ? 1 : 0) + (structuredFormat != null ? 1 : 0) + (extractImages ? 1 : 0)
+                + (renderOptions != null ? 1 : 0);
+        int total = (last - from + 1) * kinds;
+        long[] printed = { System.nanoTime() };
+        control.addProgressListener((page, pagesDone) -> {
+            long now = System.nanoTime();
+            synchronized (printed) {
+                if (now - printed[0] < TimeUnit.SECONDS.toNanos(1) && page != last)
+                    return;
+                printed[0] = now;
+            }
+            System.err.println(String.format("%s: page %d, %d/%d pages done", path, page, pagesDone, total));
+        });
+    }
+
+    /**
+     * Whether the last extraction can be kept as it is, see
+     * {@link ExtractionManifest#isUpToDate(Predicate, long, long, String)}
+     */
+    private boolean isUpToDate(ExtractionManifest previous, Path dir, long size, long lastModified, String options) {
+        if (structuredFormat != null && !Files.exists(dir.resolve(structuredFilename())))
+            return false;
+        if (!container)
+            return previous.isUpToDate(f -> Files.exists(dir.resolve(f)), size, lastModified, options);
+        var file = dir.resolve(ElementOutput.CONTAINER_FILENAME);
+        if (!Files.exists(file))
+            return false;
+        try (var reader = new ContainerReader(file)) {
+            return previous.isUpToDate(reader::contains, size, lastModified, options);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private String structuredFilename() {
+        return "structured." + structuredFormat.getExtension();
+    }
+
+    /**
+     * Get the text file of the page produced by the last extraction if the page
+     * hasn't changed and the file still exists
+     * 
+     * @return path relative to the directory, or {@code null} if it can't be
+     *         reused
+     */
+    private static String reusableTextFile(ExtractionManifest previous, ExtractionManifest manifest,
+            ElementOutput output, int page) {
+        var file = previous != null ? previous.getTextFile(page) : null;
+        // a chunk of the last extraction has the text of other pages as well
+        if (file == null || !Path.of(file).getFileName().toString().equals("page" + page + ".txt"))
+            return null;
+        var fingerprint = manifest.getFingerprint(page);
+        if (fingerprint == null || !fingerprint.equals(previous.getFingerprint(page)))
+            return null;
+        return output.exists(file) ? file : null;
+    }
+
+    /**
+     * Get the images the page was rendered into by the last extraction if the
+     * page hasn't changed, it was rendered with the same options and the images
+     * still exist
+     * 
+     * @return paths relative to the directory, or {@code null} if they can't be
+     *         reused
+     */
+    private static List<String> reusableRenderFiles(ExtractionManifest previous, ExtractionManifest manifest,
+            ElementOutput output, int page) {
+        if (previous == null || !previous.getOptions().equals(manifest.getOptions()))
+            return null;
+        var files = previous.getRenderFiles(page);
+        if (files.isEmpty())
+            return null;
+        var fingerprint = manifest.getFingerprint(page);
+        if (fingerprint == null || !fingerprint.equals(previous.getFingerprint(page)))
+            return null;
+        return files.stream().allMatch(output::exists) ? files : null;
+    }
+
+    /**
+     * Get the directory of the PDF file's elements, which is its relative path
+     * without the extension, a suffix is appended if it's already used
+     */
+    private Path uniqueOutputDir(SourcePdf pdf, Set<Path> usedDirs) {
+        var relative = pdf.getRelativePath().toString();
+        if (isPdf(pdf.getRelativePath()))
+            relative = relative.substring(0, relative.length() - ".pdf".length());
+        var dir = Path.of(outputDir, relative);
+        for (int i = 2; !usedDirs.add(dir); i++)
+            dir = Path.of(outputDir, relative + "_" + i);
+        return dir;
+    }
+
+    private static boolean isPdf(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".pdf");
+    }
+
+    /**
+     * Set number of workers shared by all PDF files, at most twice as many PDF
+     * files are opened at the same time
+     * 
+     * @param jobs number of workers (at least 1)
+     */
+    public void setJobs(int jobs) {
+        this.jobs = Math.max(1, jobs);
+    }
+
+    /**
+     * Set the maximum number of pages of text extracted by a task, the text of a
+     * PDF file is split into tasks of at most these pages that idle workers steal
+     * 
+     * @param pagesPerTask number of pages (at least 1)
+     */
+    public void setPagesPerTask(int pagesPerTask) {
+        this.pagesPerTask = Math.max(1, pagesPerTask);
+    }
+
+    /**
+     * Set the pages to extract in each PDF file, the page range is validated by
+     * {@link PdfProcessor#validateAndReturnPageRange(int, int)}
+     * 
+     * @param fromPage from which page (starting at 1)
+     * @param toPage   to which page (inclusive), -1 for the last page
+     */
+    public void setPageRange(int fromPage, int toPage) {
+        this.fromPage = fromPage;
+        this.toPage = toPage;
+    }
+
+    public void setExtractText(boolean extractText) {
+        this.extractText = extractText;
+    }
+
+    public void setExtractImages(boolean extractImages) {
+        this.extractImages = extractImages;
+    }
+
+    /**
+     * Set how PDF files are loaded, e.g., buffering streams in temp files for very
+     * large PDF files
+     * 
+     * @param loadOptions options of loading PDF files
+     */
+    public void setLoadOptions(PdfLoadOptions loadOptions) {
+        this.loadOptions = loadOptions;
+    }
+
+    /**
+     * Set whether PDF files and pages that haven't changed since the last
+     * extraction are skipped
+     * 
+     * @param incremental whether extraction is incremental, if not everything is
+     *                    extracted again, and pages aren't fingerprinted, so the
+     *                    next run extracts all the pages of a changed file
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Set whether the elements of each PDF file are written to a single ZIP
+     * container ({@code elements.zip}) instead of a file per
+     * page or image
+     * 
+     * @param container whether to write a container
+     */
+    public void setContainer(boolean container) {
+        this.container = container;
+    }
+
+    /**
+     * Set the format of the structured text (i.e., words with their positions and
+     * fonts) of each PDF file, which is written to {@code structured.<ext>} in its
+     * directory
+     * 
+     * @param structuredFormat format, {@code null} if it's not written
+     */
+    public void setStructuredFormat(StructuredTextWriter.Format structuredFormat) {
+        this.structuredFormat = structuredFormat;
+    }
+
+    /**
+     * Set the time each PDF file can take, a PDF file stops at the next page or
+     * image once the time is up
+     * 
+     * @param timeoutSeconds time in seconds, not limited if it's less than or
+     *                       equal to 0
+     */
+    public void setTimeout(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Set the number of pages extracted in each PDF file, pages whose elements are
+     * kept as they haven't changed are not counted
+     * 
+     * @param maxPages number of pages, not limited if it's negative
+     */
+    public void setMaxPages(int maxPages) {
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Set whether the progress of each PDF file is printed to the standard error
+     * 
+     * @param progress whether to print progress
+     */
+    public void setProgress(boolean progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Set how pages are rendered into images, which are written to
+     * {@code images/page<N>.png} (or {@code images/page<N>_r<row>_c<column>.png}
+     * for tiles of a large page)
+     * 
+     * @param renderOptions options of rendering, {@code null} if pages are not
+     *                      rendered
+     */
+    public void setRenderOptions(RenderOptions renderOptions) {
+        this.renderOptions = renderOptions;
+    }
+
+    /**
+     * Set how the text of each PDF file is grouped into chunks, which are written
+     * to {@code text/pages<from>-<to>.txt} instead of a file per page
+     * 
+     * @param chunkOptions options of the chunks, {@code null} to write a file per
+     *                     page
+     */
+    public void setChunkOptions(TextChunkOptions chunkOptions) {
+        this.chunkOptions = chunkOptions;
+    }
+
+    /**
+     * Set when the files of each PDF file are synced to the disk, it doesn't apply
+     * to containers
+     * 
+     * @param syncPolicy sync policy
+     */
+    public void setSyncPolicy(OutputSession.SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+    }
+
+    /**
+     * Set how many bytes of small files of each PDF file are held in memory and
+     * then written in a burst, it doesn't apply to containers
+     * 
+     * @param coalesceBytes number of bytes, 0 to write each file immediately
+     */
+    public void setCoalesceBytes(int coalesceBytes) {
+        this.coalesceBytes = Math.max(0, coalesceBytes);
+    }
+
+    /**
+     * Set the cache of parsed fonts shared by the PDF files, it's
+     * {@link FontCache#shared()} by default
+     * 
+     * @param fontCache cache, {@code null} to parse the fonts of each PDF file
+     */
+    public void setFontCache(FontCache fontCache) {
+        this.fontCache = fontCache;
+    }
+
+    /**
+     * Encoded image of a rendered page or tile
+     */
+    private static class EncodedRender {
+
+        final String filename;
+        final byte[] encoded;
+
+        EncodedRender(String filename, byte[] encoded) {
+            this.filename = filename;
+            this.encoded = encoded;
+        }
+    }
+
+    /**
+     * PDF file to be processed
+     */
+    public static class SourcePdf {
+
+        private final Path path;
+        private final Path relativePath;
+
+        SourcePdf(Path path, Path relativePath) {
+            this.path = path;
+            this.relativePath = relativePath;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Get the path relative to the directory it's found in, which decides where
+         * its elements are written to
+         */
+        public Path getRelativePath() {
+            return relativePath;
+        }
+    }
+
+    /**
+     * Result of a PDF file, it's not shared between PDF files
+     */
+    static class FileResult {
+        /** whether the PDF file is skipped as it hasn't changed */
+        boolean skipped;
+        /** whether the PDF file is stopped by the timeout or the budget of pages */
+        boolean stopped;
+        int pages;
+        /** chunks of text written, see {@link TextChunkOptions} */
+        int chunks;
+        /** pages whose text files are kept as they haven't changed */
+        int reusedPages;
+        int images;
+        int renderedPages;
+        /** pages whose rendered images are kept as they haven't changed */
+        int reusedRenders;
+        int failures;
+        int failedImages;
+        int failedRenders;
+        ExtractionMetrics metrics;
+    }
+
+    /**
+     * Summary of a batch
+     */
+    public static class Summary {
+
+        private int files;
+        private int failedFiles;
+        private int skippedFiles;
+        private int stoppedFiles;
+        private long pages;
+        private long chunks;
+        private long reusedPages;
+        private long images;
+        private long renderedPages;
+        private long parsedFonts;
+        private long cachedFonts;
+        private long failures;
+        private long elapsedMillis;
+        /** JSON summary of each PDF file */
+        private final List<String> fileMetrics = new ArrayList<>();
+
+        private void add(FileResult result) {
+            fileMetrics.add(result.metrics.toJson());
+            files++;
+            if (result.skipped)
+                skippedFiles++;
+            if (result.stopped)
+                stoppedFiles++;
+            pages += result.pages;
+            chunks += result.chunks;
+            reusedPages += result.reusedPages;
+            images += result.images;
+            renderedPages += result.renderedPages;
+            parsedFonts += result.metrics.getCount(Counter.PARSED_FONTS);
+            cachedFonts += result.metrics.getCount(Counter.CACHED_FONTS);
+            failures += result.failures + result.failedImages + result.failedRenders;
+        }
+
+        /**
+         * Whether all PDF files, pages and images are extracted successfully, and no
+         * PDF file is stopped
+         */
+        public boolean isSuccessful() {
+            return failedFiles == 0 && stoppedFiles == 0 && failures == 0;
+        }
+
+        /**
+         * Get the summary as a JSON object, with the metrics of each PDF file (see
+         * {@link ExtractionMetrics#toJson()}) in {@code jobs}
+         */
+        public String toJson() {
+            var sb = new StringBuilder("{");
+            sb.append("\"files\":").append(files + failedFiles);
+            sb.append(",\"failedFiles\":").append(failedFiles);
+            sb.append(",\"skippedFiles\":").append(skippedFiles);
+            sb.append(",\"stoppedFiles\":").append(stoppedFiles);
+            sb.append(",\"pages\":").append(pages);
+            sb.append(",\"chunks\":").append(chunks);
+            sb.append(",\"reusedPages\":").append(reusedPages);
+            sb.append(",\"images\":").append(images);
+            sb.append(",\"renderedPages\":").append(renderedPages);
+            sb.append(",\"parsedFonts\":").append(parsedFonts);
+            sb.append(",\"cachedFonts\":").append(cachedFonts);
+            sb.append(",\"failures\":").append(failures);
+            sb.append(",\"elapsedMillis\":").append(elapsedMillis);
+            sb.append(",\"jobs\":[").append(String.join(",", fileMetrics)).append("]}");
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Processed %d PDF files (%d failed, %d unchanged, %d stopped) in %.1fs: %d pages of text (%d unchanged), %d images written, %d pages rendered, %d fonts parsed (%d cached), %d pages or images failed",
+                    files + failedFiles, failedFiles, skippedFiles, stoppedFiles, elapsedMillis / 1000.0, pages,
+                    reusedPages, images, renderedPages, parsedFonts, cachedFonts, failures);
+        }
+    }
+}
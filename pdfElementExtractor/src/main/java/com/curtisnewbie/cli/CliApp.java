@@ -0,0 +1,463 @@
+package com.curtisnewbie.cli;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.curtisnewbie.io.OutputSession;
+import com.curtisnewbie.io.PdfLoadOptions;
+import com.curtisnewbie.io.StructuredTextWriter;
+import com.curtisnewbie.pdfprocess.FontCache;
+import com.curtisnewbie.pdfprocess.PdfBoxWarmup;
+import com.curtisnewbie.pdfprocess.RenderOptions;
+import com.curtisnewbie.pdfprocess.TextChunkOptions;
+import com.curtisnewbie.server.ExtractionServer;
+
+import org.apache.pdfbox.rendering.ImageType;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Command line entry point that extracts elements from many PDF files without
+ * UI, see {@link #USAGE}. It exits with {@link #EXIT_OK} if everything is
+ * extracted, {@link #EXIT_FAILURE} if some files, pages or images failed or
+ * some files are stopped by the timeout or the budget of pages, and
+ * {@link #EXIT_USAGE} if the arguments are invalid. With {@code --serve}, it
+ * runs an {@link ExtractionServer} until the JVM is shut down instead. PDFBox
+ * is warmed up in the background as soon as the arguments are parsed, see
+ * {@link PdfBoxWarmup}.
+ * </p>
+ */
+public class CliApp {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_USAGE = 2;
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: --headless -o <dir> [options] <pdf file or directory>...",
+            "       --headless --serve <port> [options]",
+            "       --headless --warm-up [options]",
+            "  -o, --output <dir>          directory where the extracted elements are written to",
+            "  -l, --list <file>           file of paths to PDF files or directories, one per line",
+            "  --from <page>               from which page (starting at 1)",
+            "  --to <page>                 to which page (inclusive)",
+            "  -j, --jobs <n>              number of workers shared by all PDF files",
+            "  --pages-per-task <n>        maximum number of pages of text extracted by a task",
+            "  --threads-per-file <n>      deprecated alias of --pages-per-task",
+            "  --no-text                   don't extract text",
+            "  --no-images                 don't extract images",
+            "  --memory <main|temp|mixed>  where parsed streams are buffered, in main memory (default),",
+            "                              temp files, or main memory up to --max-memory then temp files",
+            "  --max-memory <MB>           maximum main memory used for buffering streams of one PDF file,",
+            "                              required by --memory mixed",
+            "  --mmap                      memory-map PDF files instead of reading them onto the heap",
+            "  --container                 write the elements of each PDF file to a single ZIP container",
+            "  --sync <none|file|close>    when written files are synced to the disk (default none)",
+            "  --coalesce <KB>             hold small files in memory and write them in bursts of the size",
+            "  --font-cache <MB>           maximum memory of parsed fonts shared by the PDF files (default 64),",
+            "                              0 to parse the fonts of each PDF file",
+            "  --force                     extract everything again, even if it hasn't changed",
+            "  --structured <jsonl|columnar>",
+            "                              also write words with their positions and fonts in the format",
+            "  --metrics <file>            write a JSON summary with the metrics of each PDF file",
+            "  --timeout <seconds>         time each PDF file can take, it stops at the next page or image",
+            "  --max-pages <n>             number of pages extracted in each PDF file",
+            "  --progress                  print the progress of each PDF file",
+            "  --chunk-chars <n>           group text into chunks of about n characters, a file per chunk",
+            "  --chunk-pages <n>           group text into chunks of at most n pages",
+            "  --chunk-outline <depth>     start a chunk at each outline item up to the depth",
+            "  --render <dpi>              also render each page into a PNG image at the resolution",
+            "  --render-type <rgb|gray|argb|binary>",
+            "                              type of the rendered images (default rgb)",
+            "  --render-max-pixels <n>     maximum pixels of a rendered image, larger pages are rendered",
+            "                              at a lower resolution or in tiles",
+            "  --render-tile <px>          render pages larger than the maximum in tiles of the size",
+            "  --serve <port>              serve extraction over HTTP instead, see ExtractionServer",
+            "  --bind <address>            address the server is bound to (default 127.0.0.1)",
+            "  --root <dir>                directory the paths of PDF files are resolved against, paths",
+            "                              outside of it are rejected, required to accept paths when",
+            "                              it's not bound to a loopback address",
+            "  --queue <n>                 number of requests waiting while -j requests run (default 2 * -j)",
+            "  --queue-timeout <seconds>   time a request can wait in the queue (default 30)",
+            "  --max-upload <MB>           maximum size of an uploaded PDF file (default 256)",
+            "  --warm-up                   extract a generated sample PDF file instead, e.g., to record the",
+            "                              classes of a class-data archive, see README",
+            "  -h, --help                  show this message");
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Parse the arguments and extract elements from the PDF files
+     * 
+     * @param args arguments
+     * @return exit code
+     */
+    public static int run(String[] args) {
+        List<String> inputs = new ArrayList<>();
+        BatchExtractor extractor = null;
+        ExtractionServer server = null;
+        String metricsFile = null;
+        Path warmUpDir = null;
+        try {
+            String output = null;
+            int fromPage = 1;
+            int toPage = -1;
+            int jobs = Runtime.getRuntime().availableProcessors();
+            int pagesPerTask = 16;
+            boolean text = true;
+            boolean images = true;
+            var memoryMode = PdfLoadOptions.MemoryMode.MAIN_MEMORY_ONLY;
+            long maxMemory = -1;
+            boolean mmap = false;
+            boolean container = false;
+            StructuredTextWriter.Format structured = null;
+            var syncPolicy = OutputSession.SyncPolicy.NONE;
+            int coalesceKb = 0;
+            long fontCacheMb = -1;
+            boolean incremental = true;
+            long timeout = 0;
+            int maxPages = -1;
+            boolean progress = false;
+            int chunkChars = 0;
+            int chunkPages = 0;
+            int chunkOutline = 0;
+            float renderDpi = 0;
+            var renderType = ImageType.RGB;
+            long renderMaxPixels = RenderOptions.DEFAULT_MAX_PIXELS;
+            int renderTile = 0;
+            int servePort = -1;
+            String bindAddress = "127.0.0.1";
+            String root = null;
+            int queue = -1;
+            int queueTimeout = 30;
+            long maxUploadMb = 256;
+            boolean warmUp = false;
+            for (int i = 0; i < args.length; i++) {
+                var arg = args[i];
+                switch (arg) {
+                    case "--headless":
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return EXIT_OK;
+                    case "-o":
+                    case "--output":
+                        output = value(args, ++i, arg);
+                        break;
+                    case "-l":
+                    case "--list":
+                        for (var line : Files.readAllLines(Path.of(value(args, ++i, arg)))) {
+                            if (!line.isBlank())
+                                inputs.add(line.strip());
+                        }
+                        break;
+                    case "--from":
+                        fromPage = intValue(args, ++i, arg);
+                        break;
+                    case "--to":
+                        toPage = intValue(args, ++i, arg);
+                        break;
+                    case "-j":
+                    case "--jobs":
+                        jobs = intValue(args, ++i, arg);
+                        break;
+                    case "--pages-per-task":
+                        pagesPerTask = intValue(args, ++i, arg);
+                        break;
+                    case "--threads-per-file":
+                        // workers are shared by all PDF files, the text of a PDF file is split into tasks instead
+                        System.err.println("--threads-per-file is deprecated, it's taken as --pages-per-task");
+                        pagesPerTask = intValue(args, ++i, arg);
+                        break;
+                    case "--no-text":
+                        text = false;
+                        break;
+                    case "--no-images":
+                        images = false;
+                        break;
+                    case "--memory":
+                        memoryMode = memoryMode(value(args, ++i, arg));
+                        break;
+                    case "--max-memory":
+                        maxMemory = intValue(args, ++i, arg) * 1024L * 1024L;
+                        break;
+                    case "--mmap":
+                        mmap = true;
+                        break;
+                    case "--container":
+                        container = true;
+                        break;
+                    case "--sync":
+                        syncPolicy = syncPolicy(value(args, ++i, arg));
+                        break;
+                    case "--coalesce":
+                        coalesceKb = intValue(args, ++i, arg);
+                        break;
+                    case "--font-cache":
+                        fontCacheMb = intValue(args, ++i, arg);
+                        break;
+                    case "--force":
+                        incremental = false;
+                        break;
+                    case "--structured":
+                        structured = structuredFormat(value(args, ++i, arg));
+                        break;
+                    case "--metrics":
+                        metricsFile = value(args, ++i, arg);
+                        break;
+                    case "--timeout":
+                        timeout = intValue(args, ++i, arg);
+                        break;
+                    case "--max-pages":
+                        maxPages = intValue(args, ++i, arg);
+                        break;
+                    case "--progress":
+                        progress = true;
+                        break;
+                    case "--chunk-chars":
+                        chunkChars = intValue(args, ++i, arg);
+                        break;
+                    case "--chunk-pages":
+                        chunkPages = intValue(args, ++i, arg);
+                        break;
+                    case "--chunk-outline":
+                        chunkOutline = intValue(args, ++i, arg);
+                        break;
+                    case "--render":
+                        renderDpi = intValue(args, ++i, arg);
+                        break;
+                    case "--render-type":
+                        renderType = imageType(value(args, ++i, arg));
+                        break;
+                    case "--render-max-pixels":
+                        renderMaxPixels = intValue(args, ++i, arg);
+                        break;
+                    case "--render-tile":
+                        renderTile = intValue(args, ++i, arg);
+                        break;
+                    case "--serve":
+                        servePort = intValue(args, ++i, arg);
+                        break;
+                    case "--bind":
+                        bindAddress = value(args, ++i, arg);
+                        break;
+                    case "--root":
+                        root = value(args, ++i, arg);
+                        break;
+                    case "--queue":
+                        queue = intValue(args, ++i, arg);
+                        break;
+                    case "--queue-timeout":
+                        queueTimeout = intValue(args, ++i, arg);
+                        break;
+                    case "--max-upload":
+                        maxUploadMb = intValue(args, ++i, arg);
+                        break;
+                    case "--warm-up":
+                        warmUp = true;
+                        break;
+                    default:
+                        if (arg.startsWith("-"))
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        inputs.add(arg);
+                }
+            }
+            if (memoryMode == PdfLoadOptions.MemoryMode.MIXED && maxMemory < 0)
+                throw new IllegalArgumentException("--memory mixed requires --max-memory");
+            PdfBoxWarmup.start();
+            if (servePort >= 0) {
+                try {
+                    server = new ExtractionServer(new InetSocketAddress(bindAddress, servePort), jobs,
+                            queue >= 0 ? queue : 2 * jobs);
+                } catch (IOException e) {
+                    System.err.println("Failed to serve on " + bindAddress + ":" + servePort + ", " + e.getMessage());
+                    return EXIT_FAILURE;
+                }
+                try {
+                    server.setRoot(root != null ? Path.of(root) : null);
+                } catch (IOException e) {
+                    System.err.println("Root directory " + root + " isn't found, " + e.getMessage());
+                    return EXIT_USAGE;
+                }
+                server.setLoadOptions(new PdfLoadOptions(memoryMode, maxMemory, mmap));
+                server.setQueueTimeout(queueTimeout, TimeUnit.SECONDS);
+                server.setMaxUploadBytes(maxUploadMb * 1024L * 1024L);
+                return serve(server);
+            }
+            if (warmUp) {
+                try {
+                    warmUpDir = Files.createTempDirectory("pdf-warm-up");
+                    inputs.add(SamplePdf.generate(warmUpDir).toString());
+                } catch (IOException e) {
+                    System.err.println("Failed to generate the sample PDF file, " + e.getMessage());
+                    if (warmUpDir != null)
+                        deleteQuietly(warmUpDir);
+                    return EXIT_FAILURE;
+                }
+                if (output == null)
+                    output = warmUpDir.resolve("output").toString();
+            }
+            if (output == null)
+                throw new IllegalArgumentException("Output directory is not specified");
+            if (inputs.isEmpty())
+                throw new IllegalArgumentException("No PDF file or directory is specified");
+
+            extractor = new BatchExtractor(output);
+            extractor.setPageRange(fromPage, toPage);
+            extractor.setJobs(jobs);
+            extractor.setPagesPerTask(pagesPerTask);
+            extractor.setExtractText(text);
+            extractor.setExtractImages(images);
+            extractor.setLoadOptions(new PdfLoadOptions(memoryMode, maxMemory, mmap));
+            extractor.setContainer(container);
+            extractor.setStructuredFormat(structured);
+            extractor.setIncremental(incremental);
+            extractor.setSyncPolicy(syncPolicy);
+            extractor.setCoalesceBytes(coalesceKb * 1024);
+            if (fontCacheMb >= 0)
+                extractor.setFontCache(fontCacheMb > 0 ? new FontCache(fontCacheMb * 1024L * 1024L) : null);
+            extractor.setTimeout(timeout);
+            extractor.setMaxPages(maxPages);
+            extractor.setProgress(progress);
+            if (chunkChars > 0 || chunkPages > 0 || chunkOutline > 0)
+                extractor.setChunkOptions(new TextChunkOptions(chunkPages, chunkChars, chunkOutline));
+            if (renderDpi > 0)
+                extractor.setRenderOptions(new RenderOptions(renderDpi, renderType, renderMaxPixels, renderTile));
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        try {
+            var pdfs = BatchExtractor.findPdfFiles(inputs);
+            var summary = extractor.extract(pdfs);
+            System.out.println(summary);
+            if (metricsFile != null)
+                Files.writeString(Path.of(metricsFile), summary.toJson());
+            return summary.isSuccessful() ? EXIT_OK : EXIT_FAILURE;
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            return EXIT_FAILURE;
+        } finally {
+            if (warmUpDir != null)
+                deleteQuietly(warmUpDir);
+        }
+    }
+
+    /**
+     * Delete the directory and everything in it, what can't be deleted is left
+     */
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException | UncheckedIOException e) {
+            // it's in the temp directory anyway
+        }
+    }
+
+    /**
+     * Serve until the JVM is shut down, e.g., by Ctrl+C
+     * 
+     * @return exit code
+     */
+    private static int serve(ExtractionServer server) {
+        var stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            stopped.countDown();
+        }));
+        server.start();
+        System.out.println("Serving on http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort());
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return EXIT_OK;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length)
+            throw new IllegalArgumentException("Missing value of " + option);
+        return args[i];
+    }
+
+    private static PdfLoadOptions.MemoryMode memoryMode(String value) {
+        switch (value) {
+            case "main":
+                return PdfLoadOptions.MemoryMode.MAIN_MEMORY_ONLY;
+            case "temp":
+                return PdfLoadOptions.MemoryMode.TEMP_FILE_ONLY;
+            case "mixed":
+                return PdfLoadOptions.MemoryMode.MIXED;
+            default:
+                throw new IllegalArgumentException("--memory should be one of main, temp and mixed");
+        }
+    }
+
+    private static StructuredTextWriter.Format structuredFormat(String value) {
+        switch (value) {
+            case "jsonl":
+                return StructuredTextWriter.Format.JSON_LINES;
+            case "columnar":
+                return StructuredTextWriter.Format.COLUMNAR;
+            default:
+                throw new IllegalArgumentException("--structured should be one of jsonl and columnar");
+        }
+    }
+
+    private static OutputSession.SyncPolicy syncPolicy(String value) {
+        switch (value) {
+            case "none":
+                return OutputSession.SyncPolicy.NONE;
+            case "file":
+                return OutputSession.SyncPolicy.EACH_FILE;
+            case "close":
+                return OutputSession.SyncPolicy.ON_CLOSE;
+            default:
+                throw new IllegalArgumentException("--sync should be one of none, file and close");
+        }
+    }
+
+    private static ImageType imageType(String value) {
+        switch (value) {
+            case "rgb":
+                return ImageType.RGB;
+            case "gray":
+                return ImageType.GRAY;
+            case "argb":
+                return ImageType.ARGB;
+            case "binary":
+                return ImageType.BINARY;
+            default:
+                throw new IllegalArgumentException("--render-type should be one of rgb, gray, argb and binary");
+        }
+    }
+
+    private static int intValue(String[] args, int i, String option) {
+        try {
+            return Integer.parseInt(value(args, i, option));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " should be an integer");
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.curtisnewbie.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.io.ContainerReader;
+import com.curtisnewbie.io.ContainerWriter;
+import com.curtisnewbie.io.ExtractionManifest;
+import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.io.OutputSession;
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.pdfprocess.ExtractedImage;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Where the elements of a PDF file are written to, either a file per page or
+ * image in the directory of the PDF file, or a single container in it. Files
+ * are identified by their paths relative to the directory, or the names of the
+ * entries in the container, as recorded in the {@link ExtractionManifest}.
+ * Files of the last extraction can be kept when they haven't changed.
+ * </p>
+ */
+abstract class ElementOutput {
+
+    static final String CONTAINER_FILENAME = "elements.zip";
+
+    protected final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    protected final Path dir;
+    protected final ExtractionMetrics metrics;
+
+    private ElementOutput(Path dir, ExtractionMetrics metrics) {
+        this.dir = dir;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Output of a file per page or image, written through an
+     * {@link OutputSession} of the directory
+     * 
+     * @param syncPolicy    when the files are synced to the disk
+     * @param coalesceBytes bytes of small files held before they are written, 0
+     *                      to write each file immediately
+     */
+    static ElementOutput files(Path dir, ExtractionMetrics metrics, OutputSession.SyncPolicy syncPolicy,
+            int coalesceBytes) throws IOException {
+        var session = IOManager.openSession(dir.toString(), metrics);
+        session.setSyncPolicy(syncPolicy);
+        session.setCoalesceBytes(coalesceBytes);
+        return new Directory(dir, metrics, session);
+    }
+
+    /**
+     * Output of a single container, see {@link ContainerWriter}
+     */
+    static ElementOutput container(Path dir, ExtractionMetrics metrics) throws IOException {
+        return new Container(dir, metrics);
+    }
+
+    /**
+     * Whether the file of the last extraction exists
+     */
+    abstract boolean exists(String file);
+
+    abstract String writeText(int page, String text, String filename) throws IOException;
+
+    abstract String writeImage(int page, ExtractedImage img, String filename) throws IOException;
+
+    /**
+     * Write an encoded image as it is, e.g., a rendered page
+     */
+    abstract String writeImage(int page, byte[] encoded, String filename) throws IOException;
+
+    /**
+     * Record that the image is also in another page
+     */
+    abstract void addReference(int page, String file);
+
+    /**
+     * Keep the file of the last extraction
+     */
+    abstract void keep(int page, String file) throws IOException;
+
+    /**
+     * Complete the output, files of the last extraction that are not kept or
+     * written again are removed
+     * 
+     * @param previous manifest of the last extraction, may be {@code null}
+     * @param manifest manifest of this extraction
+     */
+    abstract void commit(ExtractionManifest previous, ExtractionManifest manifest) throws IOException;
+
+    /**
+     * Discard the output if it's not committed
+     */
+    abstract void abort();
+
+    private static class Directory extends ElementOutput {
+
+        private final OutputSession session;
+
+        Directory(Path dir, ExtractionMetrics metrics, OutputSession session) {
+            super(dir, metrics);
+            this.session = session;
+        }
+
+        @Override
+        boolean exists(String file) {
+            return Files.exists(dir.resolve(file));
+        }
+
+        @Override
+        String writeText(int page, String text, String filename) throws IOException {
+            return relativize(session.writeText(text, filename));
+        }
+
+        @Override
+        String writeImage(int page, ExtractedImage img, String filename) throws IOException {
+            if (img.isEncoded())
+                return relativize(session.writeImage(img.getEncoded(), filename));
+            return relativize(session.writeImage(img.getImage(), filename));
+        }
+
+        @Override
+        String writeImage(int page, byte[] encoded, String filename) throws IOException {
+            return relativize(session.writeImage(encoded, filename));
+        }
+
+        @Override
+        void addReference(int page, String file) {
+            // the manifest records where the image is first found
+        }
+
+        @Override
+        void keep(int page, String file) {
+            // it's already there
+        }
+
+        @Override
+        void commit(ExtractionManifest previous, ExtractionManifest manifest) throws IOException {
+            // files are complete before the manifest records them
+            session.close();
+            if (previous == null)
+                return;
+            var files = manifest.getFiles();
+            for (var f : previous.getFiles()) {
+                if (files.contains(f))
+                    continue;
+                try {
+                    Files.deleteIfExists(dir.resolve(f));
+                } catch (IOException e) {
+                    logger.warning("Failed to delete stale file " + dir.resolve(f));
+                }
+            }
+        }
+
+        @Override
+        void abort() {
+            // files written are recorded by the next manifest or overwritten
+            try {
+                session.close();
+            } catch (IOException e) {
+                logger.warning(e.getMessage());
+            }
+        }
+
+        private String relativize(String file) {
+            return dir.toAbsolutePath().relativize(Path.of(file).toAbsolutePath()).toString();
+        }
+    }
+
+    private static class Container extends ElementOutput {
+
+        /** container of the last extraction, may be null */
+        private final ContainerReader previous;
+        private final ContainerWriter writer;
+
+        Container(Path dir, ExtractionMetrics metrics) throws IOException {
+            super(dir, metrics);
+            var file = dir.resolve(CONTAINER_FILENAME);
+            ContainerReader reader = null;
+            if (Files.exists(file)) {
+                try {
+                    reader = new ContainerReader(file);
+                } catch (IOException e) {
+                    logger.warning("Invalid container " + file + ", ignoring it");
+                }
+            }
+            this.previous = reader;
+            this.writer = IOManager.createContainer(dir.toString(), CONTAINER_FILENAME, metrics);
+        }
+
+        @Override
+        boolean exists(String file) {
+            return previous != null && previous.contains(file);
+        }
+
+        @Override
+        String writeText(int page, String text, String filename) throws IOException {
+            return writer.writeText(page, text, filename);
+        }
+
+        @Override
+        String writeImage(int page, ExtractedImage img, String filename) throws IOException {
+            if (img.isEncoded())
+                return writer.writeImage(page, img.getEncoded(), filename);
+            return writer.writeImage(page, img.getImage(), filename);
+        }
+
+        @Override
+        String writeImage(int page, byte[] encoded, String filename) throws IOException {
+            return writer.writeImage(page, encoded, filename);
+        }
+
+        @Override
+        void addReference(int page, String file) {
+            writer.addReference(page, file);
+        }
+
+        @Override
+        void keep(int page, String file) throws IOException {
+            writer.writeEntry(page, file, previous.read(file));
+            // keep the other pages it's in as well
+            for (var p : previous.getPages()) {
+                if (p != page && previous.getEntries(p).contains(file))
+                    writer.addReference(p, file);
+            }
+        }
+
+        @Override
+        void commit(ExtractionManifest previous, ExtractionManifest manifest) throws IOException {
+            closePrevious();
+            writer.close();
+        }
+
+        @Override
+        void abort() {
+            closePrevious();
+            writer.abort();
+        }
+
+        private void closePrevious() {
+            try {
+                if (previous != null)
+                    previous.close();
+            } catch (IOException e) {
+                logger.warning(e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.curtisnewbie.cli;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Small PDF file generated for {@code --warm-up}, it has text in a standard
+ * font and an embedded font, JPEG and PNG images and an outline, such that
+ * extracting it goes through the same code as a real PDF file, e.g., to record
+ * the classes of a class-data archive.
+ * </p>
+ */
+class SamplePdf {
+
+    /** font bundled with PDFBox, which is embedded as a Type 0 font */
+    private static final String EMBEDDED_FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    /**
+     * Generate the sample PDF file
+     * 
+     * @param dir directory where the PDF file is written to
+     * @return path of the PDF file
+     * @throws IOException
+     */
+    static Path generate(Path dir) throws IOException {
+        var file = dir.resolve("sample.pdf");
+        try (var doc = new PDDocument()) {
+            addTextPage(doc, PDType1Font.HELVETICA, "Text in a standard font");
+            try (var in = SamplePdf.class.getResourceAsStream(EMBEDDED_FONT)) {
+                if (in != null)
+                    addTextPage(doc, PDType0Font.load(doc, in), "Text in an embedded font");
+            }
+            addImagePage(doc);
+
+            var outline = new PDDocumentOutline();
+            var item = new PDOutlineItem();
+            item.setTitle("Sample");
+            item.setDestination(doc.getPage(0));
+            outline.addLast(item);
+            doc.getDocumentCatalog().setDocumentOutline(outline);
+            doc.save(file.toFile());
+        }
+        return file;
+    }
+
+    private static void addTextPage(PDDocument doc, PDFont font, String text) throws IOException {
+        var page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        try (var cs = new PDPageContentStream(doc, page)) {
+            cs.beginText();
+            cs.setFont(font, 12);
+            cs.setLeading(14);
+            cs.newLineAtOffset(40, 800);
+            for (int i = 0; i < 20; i++) {
+                cs.showText(text + " " + i);
+                cs.newLine();
+            }
+            cs.endText();
+        }
+    }
+
+    private static void addImagePage(PDDocument doc) throws IOException {
+        var page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        var jpeg = JPEGFactory.createFromImage(doc, image(120, 90, Color.ORANGE), 0.8f);
+        var png = LosslessFactory.createFromImage(doc, image(80, 80, Color.BLUE));
+        try (var cs = new PDPageContentStream(doc, page)) {
+            cs.drawImage(jpeg, 40, 600, 120, 90);
+            cs.drawImage(png, 40, 400, 80, 80);
+        }
+    }
+
+    private static BufferedImage image(int width, int height, Color color) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(color);
+            g.fillOval(width / 4, height / 4, width / 2, height / 2);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
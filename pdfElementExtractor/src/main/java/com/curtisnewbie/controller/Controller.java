@@ -1,20 +1,33 @@
 package com.curtisnewbie.controller;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import java.awt.Desktop;
-import java.awt.image.*;
 
 import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.io.OutputSession;
+import com.curtisnewbie.io.PdfLoadOptions;
 import com.curtisnewbie.main.App;
 import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.pdfprocess.DocumentCache;
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+import com.curtisnewbie.pdfprocess.ExtractedImage;
+import com.curtisnewbie.pdfprocess.ImageReferences;
 import com.curtisnewbie.pdfprocess.PageRange;
 import com.curtisnewbie.pdfprocess.PdfProcessor;
+import com.curtisnewbie.scheduler.ExtractionJob;
+import com.curtisnewbie.scheduler.ExtractionScheduler;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -66,6 +79,9 @@ public class Controller implements Initializable {
     @FXML
     private Button openDirBtn;
 
+    @FXML
+    private Button cancelBtn;
+
     @FXML
     private TextField pageFromTextField;
 
@@ -75,12 +91,34 @@ public class Controller implements Initializable {
     /** Currently used pdfProcessor */
     private PdfProcessor pdfProcessor;
 
+    /** Scheduler of extraction jobs */
+    private final ExtractionScheduler scheduler = new ExtractionScheduler();
+
+    /** Jobs of the current extraction, they are cancelled when a new one starts */
+    private final List<ExtractionJob> runningJobs = new ArrayList<>();
+
+    /** Parsed documents kept for extracting other page ranges of the same file */
+    private final DocumentCache documentCache = new DocumentCache(Runtime.getRuntime().maxMemory() / 4);
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         this.registerChooseFileEventHandler();
         this.registerChooseDirEventHandler();
         this.registerExtractAllEventHandler();
         this.registerOpenDirEventHandler();
+        this.registerCancelEventHandler();
+    }
+
+    /**
+     * Register event handler for cancelBtn
+     */
+    public void registerCancelEventHandler() {
+        this.cancelBtn.setOnAction(e -> {
+            logger.info("Cancelling extraction");
+            // the jobs are kept, such that the next extraction waits for them to end
+            for (var job : runningJobs)
+                job.cancel();
+        });
     }
 
     /**
@@ -118,14 +156,18 @@ public class Controller implements Initializable {
             var dirPath = getToPath();
             var file = new File(dirPath);
             if (Desktop.isDesktopSupported() && dirPath != null && dirPath.length() > 0 && file.exists()) {
-                new Thread(() -> {
-                    Desktop desktop = Desktop.getDesktop();
-                    try {
-                        desktop.open(file);
-                    } catch (Exception excep) {
-                        showError("Failed to open directory.");
-                    }
-                }).start();
+                try {
+                    scheduler.getIoExecutor().execute(() -> {
+                        Desktop desktop = Desktop.getDesktop();
+                        try {
+                            desktop.open(file);
+                        } catch (Exception excep) {
+                            showError("Failed to open directory.");
+                        }
+                    });
+                } catch (RejectedExecutionException excep) {
+                    showError("Too many tasks are running, please try again later.");
+                }
             }
         });
     }
@@ -140,11 +182,24 @@ public class Controller implements Initializable {
             var toPath = getToPath();
             if (fromPath != null && toPath != null) {
                 try {
-                    // create pdf representation
-                    var document = IOManager.readPdfFile(getFromPath());
-                    if (pdfProcessor != null)
-                        pdfProcessor.close();
-                    this.pdfProcessor = new PdfProcessor(document);
+                    // create pdf representation, or reuse the cached one
+                    var metrics = ExtractionMetrics.newJob(fromPath);
+                    var lease = documentCache.acquire(fromPath, PdfLoadOptions.defaults(), metrics);
+                    // the previous processor is closed once its jobs are cancelled, new jobs
+                    // wait for them as they may use the same cached document
+                    var prevProcessor = this.pdfProcessor;
+                    var prevJobsEnded = cancelRunningJobs().thenRun(() -> {
+                        if (prevProcessor != null)
+                            prevProcessor.close();
+                    });
+                    this.pdfProcessor = new PdfProcessor(lease,
+                            () -> IOManager.readPdfFile(fromPath, PdfLoadOptions.defaults(), metrics));
+                    pdfProcessor.setMetrics(metrics);
+                    // the jobs run on the scheduler's workers, pages are not stripped by
+                    // workers of the processor's own
+                    pdfProcessor.setParallelism(1);
+                    // directories are resolved once for all the files of both jobs
+                    var session = IOManager.openSession(toPath, metrics);
 
                     // init treeview
                     var rootNode = setRootToOutputTreeView("ExtractedFiles");
@@ -155,33 +210,49 @@ public class Controller implements Initializable {
 
                     // retrieve and validate page range
                     var pageRange = pdfProcessor.validateAndReturnPageRange(getFromPage(), getToPage());
-                    // extract data and update view using multi-threading and async
+                    int pages = pageRange.getToPage() - pageRange.getFromPage() + 1;
+                    // extract data and update view using the scheduler
                     try {
-                        extractAllText(pdfProcessor, pageRange).thenCompose(allText -> {
-                            return writeAllTextFiles(allText, toPath, pageRange);
-                        }).thenAccept((pathsToTextFiles) -> {
-                            for (var p : pathsToTextFiles) {
-                                addChildToParent(textNode, new TreeItem<String>(p));
-                            }
-                            showInfo("Text Files Extraction Completed");
+                        var textJob = extractAndWriteAllText(pdfProcessor, pageRange, session, textNode, prevJobsEnded);
+                        runningJobs.add(textJob);
+                        showProgress(textNode, textJob, pages);
+                        textJob.getResult().whenComplete((pathsToTextFiles, ex) -> {
+                            if (ex == null)
+                                showInfo("Text Files Extraction Completed");
+                            else if (!textJob.isCancelled())
+                                showError(
+                                        "Error occured while extracting text files, some of them may have aleady been created in your specified directory.");
                         });
                     } catch (Exception ex) {
                         showError(
                                 "Error occured while displaying extracted text files, they may have aleady been created in your specified directory.");
                     }
                     try {
-                        extractAllImages(pdfProcessor, pageRange).thenCompose(allImages -> {
-                            return writeAllImgFiles(allImages, toPath);
-                        }).thenAccept(pathsOfImg -> {
-                            for (var p : pathsOfImg) {
-                                addChildToParent(imgNode, new TreeItem<String>(p));
-                            }
-                            showInfo("Images Extraction Completed");
+                        var imgJob = extractAndWriteAllImages(pdfProcessor, pageRange, session, imgNode, prevJobsEnded);
+                        runningJobs.add(imgJob);
+                        showProgress(imgNode, imgJob, pages);
+                        imgJob.getResult().whenComplete((pathsOfImg, ex) -> {
+                            if (ex == null)
+                                showInfo("Images Extraction Completed");
+                            else if (!imgJob.isCancelled())
+                                showError(
+                                        "Error occured while extracting images, some of them may have aleady been created in your specified directory.");
                         });
                     } catch (Exception ex) {
                         showError(
                                 "Error occured while displaying extracted images, they may have aleady been created in your specified directory.");
                     }
+                    // summary of the extraction once both jobs have ended
+                    CompletableFuture.allOf(runningJobs.stream().map(j -> j.getResult().handle((r, ex) -> null))
+                            .toArray(CompletableFuture<?>[]::new))
+                            .thenRun(() -> {
+                                try {
+                                    session.close();
+                                } catch (IOException ex) {
+                                    logger.warning(ex.getMessage());
+                                }
+                                logger.info("Extraction metrics: " + metrics.toJson());
+                            });
                 } catch (Exception excep) {
                     showError(excep.getMessage());
                 }
@@ -319,97 +390,151 @@ public class Controller implements Initializable {
     }
 
     /**
-     * Extract all text in the pdf file
+     * Extract all text in the pdf file and write the text of each page to a
+     * specified directory as soon as it's extracted, the path of each written file
+     * is added to the given tree node
      * 
-     * @param pageRange page range
      * @param processor PdfProcessor
-     * @return a list of String, where each represents all the text in the page
+     * @param pageRange page range
+     * @param session   session of the directory the files are written to
+     * @param textNode  tree node of the text files
+     * @param after     future completed when the extraction can start, the job
+     *                  is queued until then without blocking a worker
+     * @return job whose result is a list of absolute paths of these text files
      */
-    private CompletableFuture<List<String>> extractAllText(PdfProcessor processor, PageRange pageRange) {
-        CompletableFuture<List<String>> completableFuture = new CompletableFuture<>();
-        synchronized (processor) {
-            new Thread(() -> {
-                var res = processor.extractText(pageRange.getFromPage(), pageRange.getToPage(), 1);
-                completableFuture.complete(res);
-            }).start();
-        }
-        return completableFuture;
+    private ExtractionJob extractAndWriteAllText(PdfProcessor processor, PageRange pageRange, OutputSession session,
+            TreeItem<String> textNode, CompletableFuture<Void> after) {
+        var control = new ExtractionControl();
+        return scheduler.submit(control, after, sink -> {
+            processor.extractTextByPage(pageRange.getFromPage(), pageRange.getToPage(), sink, control);
+        }, (String txt, int page) -> {
+            if (txt == null)
+                return null;
+            var path = session.writeText(txt, "page" + page + ".txt");
+            addChildToParent(textNode, new TreeItem<String>(path));
+            return path;
+        });
     }
 
     /**
-     * Extract all images in the pdf file
+     * Extract all images in the pdf file and write each of them to a specified
+     * directory as soon as it's extracted, JPEG images are written as they are
+     * without being re-encoded and images shared by pages are only written once.
+     * Images are encoded and written on the scheduler's I/O workers while the next
+     * ones are extracted, the path of each written file is added to the given tree
+     * node
      * 
-     * @param pageRange page range
      * @param processor PdfProcessor
-     * @return a list of buffered images
+     * @param pageRange page range
+     * @param session   session of the directory the images are written to
+     * @param imgNode   tree node of the images
+     * @param after     future completed when the extraction can start, the job
+     *                  is queued until then without blocking a worker
+     * @return job whose result is a list of absolute paths of these images
      */
-    private CompletableFuture<List<BufferedImage>> extractAllImages(PdfProcessor processor, PageRange pageRange) {
-        CompletableFuture<List<BufferedImage>> completableFuture = new CompletableFuture<>();
-        synchronized (processor) {
-            new Thread(() -> {
-                var res = processor.extractImages(pageRange.getFromPage(), pageRange.getToPage());
-                completableFuture.complete(res);
-            }).start();
-        }
-        return completableFuture;
+    private ExtractionJob extractAndWriteAllImages(PdfProcessor processor, PageRange pageRange, OutputSession session,
+            TreeItem<String> imgNode, CompletableFuture<Void> after) {
+        var refs = new AtomicReference<ImageReferences>();
+        // tree node of each image, null if it failed to be written
+        List<TreeItem<String>> nodes = new ArrayList<>();
+        var control = new ExtractionControl();
+        var job = scheduler.submit(control, after, sink -> {
+            // the scheduler's queue bounds the images in flight
+            processor.setMaxImagesInFlight(1);
+            processor.setDeduplicateImages(true, true);
+            refs.set(processor.extractImagesPassthrough(pageRange.getFromPage(), pageRange.getToPage(), sink,
+                    control));
+        }, (ExtractedImage img, int page) -> {
+            int index;
+            synchronized (nodes) {
+                index = nodes.size();
+                nodes.add(null);
+            }
+            var filename = "img" + index + "." + img.getFormat();
+            var path = img.isEncoded() ? session.writeImage(img.getEncoded(), filename)
+                    : session.writeImage(img.getImage(), filename);
+            var node = new TreeItem<String>(path);
+            synchronized (nodes) {
+                nodes.set(index, node);
+            }
+            addChildToParent(imgNode, node);
+            return path;
+        });
+        // show the pages that reference each image
+        job.getResult().thenRun(() -> Platform.runLater(() -> {
+            if (refs.get() == null)
+                return;
+            synchronized (nodes) {
+                for (int i = 0; i < nodes.size(); i++) {
+                    var node = nodes.get(i);
+                    if (node != null)
+                        node.setValue(node.getValue() + " (pages: " + refs.get().getPages(i) + ")");
+                }
+            }
+        }));
+        return job;
     }
 
     /**
-     * Write all text to a specified directory, this method takes advantage of
-     * multi-threading
+     * Show the progress of the job in the label of the tree node, e.g.,
+     * "Extracted Text: 12/50 pages", the label is updated at most once per frame
+     * however fast the pages are done
      * 
-     * @param allText   a list of text
-     * @param to        an absolute path to a directory
-     * @param pageRange page range
-     * @return a list of absolute paths of these text files
+     * @param node  tree node
+     * @param job   job
+     * @param pages number of pages in the job
      */
-    private CompletableFuture<List<String>> writeAllTextFiles(List<String> allText, String to, PageRange pageRange) {
-        CompletableFuture<List<String>> completableFuture = new CompletableFuture<>();
-        new Thread(() -> {
-            List<String> paths = new ArrayList<>();
-            if (allText != null) {
-                int from = pageRange.getFromPage();
-                for (var txt : allText) {
-                    try {
-                        var path = IOManager.writeElementToFile(to, txt, "page" + from + ".txt");
-                        paths.add(path);
-                        from++;
-                    } catch (Exception e) {
-                        logger.severe(e.getMessage());
-                    }
-                }
+    private void showProgress(TreeItem<String> node, ExtractionJob job, int pages) {
+        var label = node.getValue();
+        var done = new AtomicInteger();
+        var pending = new AtomicBoolean(false);
+        job.getControl().addProgressListener((page, pagesDone) -> {
+            done.set(pagesDone);
+            if (pending.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    pending.set(false);
+                    node.setValue(String.format("%s %d/%d pages", label, done.get(), pages));
+                });
             }
-            completableFuture.complete(paths);
-        }).start();
-        return completableFuture;
+        });
+        job.getResult().whenComplete((r, ex) -> {
+            var reason = job.getControl().getStopReason();
+            if (reason == null)
+                return;
+            var state = reason == ExtractionControl.StopReason.CANCELLED ? "cancelled" : "stopped";
+            Platform.runLater(() -> node
+                    .setValue(String.format("%s %d/%d pages (%s)", label, done.get(), pages, state)));
+        });
     }
 
     /**
-     * Write all images to a specified directory, this method takes advantage of
-     * multi-threading
+     * Cancel jobs of the current extraction
      * 
-     * @param allImages a list of buffered images
-     * @param to        an absolute path to a directory
-     * @return a list of absolute paths of these images
+     * @return future completed when all the jobs have ended
      */
-    private CompletableFuture<List<String>> writeAllImgFiles(List<BufferedImage> allImages, String to) {
-        CompletableFuture<List<String>> completableFuture = new CompletableFuture<>();
-        new Thread(() -> {
-            List<String> paths = new ArrayList<>();
-            if (allImages != null) {
-                int count = 0;
-                for (var img : allImages) {
-                    try {
-                        var path = IOManager.writeElementToFile(to, img, "img" + (count++));
-                        paths.add(path);
-                    } catch (Exception e) {
-                        logger.severe(e.getMessage());
-                    }
-                }
-            }
-            completableFuture.complete(paths);
-        }).start();
-        return completableFuture;
+    private CompletableFuture<Void> cancelRunningJobs() {
+        var futures = new CompletableFuture<?>[runningJobs.size()];
+        for (int i = 0; i < futures.length; i++) {
+            var job = runningJobs.get(i);
+            job.cancel();
+            futures[i] = job.getResult().handle((r, ex) -> null);
+        }
+        runningJobs.clear();
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Cancel running jobs and release resources, it should be called when the
+     * application is closed
+     */
+    public void shutdown() {
+        var processor = this.pdfProcessor;
+        cancelRunningJobs().thenRun(() -> {
+            if (processor != null)
+                processor.close();
+            documentCache.clear();
+        });
+        scheduler.shutdown();
     }
 
     private void showError(String msg) {
@@ -0,0 +1,134 @@
+package com.curtisnewbie.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipFile;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Reader of a container written by {@link ContainerWriter}. The central
+ * directory of the ZIP file is the offset index of the entries, so an entry of
+ * a page is read by seeking straight to it without reading the others. It must
+ * be closed when it's no longer used.
+ * </p>
+ */
+public class ContainerReader implements AutoCloseable {
+
+    private final ZipFile zip;
+    /** entries of each page */
+    private final Map<Integer, List<String>> index = new TreeMap<>();
+
+    /**
+     * @param file path of the container
+     * @throws IOException if it's not a valid container
+     */
+    public ContainerReader(Path file) throws IOException {
+        this.zip = new ZipFile(file.toFile());
+        try {
+            var indexEntry = zip.getEntry(ContainerWriter.INDEX_ENTRY);
+            if (indexEntry == null)
+                throw new IOException("Index not found in " + file);
+            try (var in = zip.getInputStream(indexEntry)) {
+                for (var line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                    if (line.isEmpty())
+                        continue;
+                    int tab = line.indexOf('\t');
+                    index.computeIfAbsent(Integer.parseInt(line.substring(0, tab)), p -> new ArrayList<>())
+                            .add(line.substring(tab + 1));
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid index in " + file);
+            }
+        } catch (IOException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the pages that have entries
+     * 
+     * @return page numbers in ascending order
+     */
+    public Set<Integer> getPages() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * Get the entries of a page, i.e., its text and the images in it
+     * 
+     * @param page page number
+     * @return names of the entries
+     */
+    public List<String> getEntries(int page) {
+        return Collections.unmodifiableList(index.getOrDefault(page, List.of()));
+    }
+
+    /**
+     * Read the text of a page
+     * 
+     * @param page page number
+     * @return text or {@code null} if there isn't text of the page
+     * @throws IOException
+     */
+    public String readText(int page) throws IOException {
+        for (var name : getEntries(page)) {
+            if (name.startsWith(IOManager.TEXT_DIR + "/"))
+                return new String(read(name), StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    /**
+     * Whether the container has the entry
+     */
+    public boolean contains(String name) {
+        return zip.getEntry(name) != null;
+    }
+
+    /**
+     * Read an entry
+     * 
+     * @param name name of the entry
+     * @return data of the entry
+     * @throws IOException if it's not found or failed to be read
+     */
+    public byte[] read(String name) throws IOException {
+        try (var in = open(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Open an entry
+     * 
+     * @param name name of the entry
+     * @return stream of the entry, it must be closed
+     * @throws IOException if it's not found or failed to be opened
+     */
+    public InputStream open(String name) throws IOException {
+        var entry = zip.getEntry(name);
+        if (entry == null)
+            throw new IOException("Entry " + name + " not found");
+        return zip.getInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
@@ -0,0 +1,202 @@
+package com.curtisnewbie.io;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Writer of a container that holds all the extracted elements of a PDF file in
+ * a single ZIP file instead of a file per page or image, such that elements are
+ * written sequentially without creating many small files. Entries are named as
+ * the files would be in the output directory (e.g., {@code text/page1.txt}),
+ * and an index of the entries of each page is written as the last entry, see
+ * {@link ContainerReader}. Text is compressed, images are stored as they are.
+ * </p>
+ * <p>
+ * The container is written to a temporary file, which replaces the container
+ * when it's closed. It's thread-safe, images are encoded before the lock is
+ * held.
+ * </p>
+ */
+public class ContainerWriter implements AutoCloseable {
+
+    static final String INDEX_ENTRY = "index.tsv";
+
+    private final Path file;
+    private final Path tmp;
+    private final ZipOutputStream out;
+    private final ExtractionMetrics metrics;
+    /** entries of each page */
+    private final Map<Integer, List<String>> index = new TreeMap<>();
+    private boolean closed = false;
+
+    /**
+     * @param file path of the container
+     * @throws IOException
+     */
+    public ContainerWriter(Path file) throws IOException {
+        this(file, ExtractionMetrics.global());
+    }
+
+    /**
+     * @param file    path of the container
+     * @param metrics metrics the time spent and bytes written are recorded to
+     * @throws IOException
+     */
+    public ContainerWriter(Path file, ExtractionMetrics metrics) throws IOException {
+        this.file = file;
+        this.metrics = metrics;
+        this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        this.out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+    }
+
+    /**
+     * Write text of a page
+     * 
+     * @param page     page number
+     * @param text     text
+     * @param filename filename
+     * @return name of the entry
+     * @throws IOException
+     */
+    public String writeText(int page, String text, String filename) throws IOException {
+        var name = IOManager.TEXT_DIR + "/" + filename;
+        write(page, name, text.getBytes(StandardCharsets.UTF_8), true);
+        return name;
+    }
+
+    /**
+     * Encode an image as PNG and write it
+     * 
+     * @param page     page number of the image
+     * @param image    image
+     * @param filename filename
+     * @return name of the entry
+     * @throws IOException
+     */
+    public String writeImage(int page, BufferedImage image, String filename) throws IOException {
+        return writeImage(page, IOManager.encodePng(image, metrics), filename);
+    }
+
+    /**
+     * Write an encoded image (e.g., JPEG) as it is
+     * 
+     * @param page     page number of the image
+     * @param encoded  bytes of the encoded image
+     * @param filename filename, including the extension of the image format
+     * @return name of the entry
+     * @throws IOException
+     */
+    public String writeImage(int page, byte[] encoded, String filename) throws IOException {
+        var name = IOManager.IMAGE_DIR + "/" + filename;
+        write(page, name, encoded, false);
+        return name;
+    }
+
+    /**
+     * Write an entry as it is, e.g., an entry copied from another container
+     * 
+     * @param page page number of the entry
+     * @param name name of the entry
+     * @param data data of the entry
+     * @throws IOException
+     */
+    public void writeEntry(int page, String name, byte[] data) throws IOException {
+        write(page, name, data, name.startsWith(IOManager.TEXT_DIR + "/"));
+    }
+
+    /**
+     * Add an entry already written to the index of another page, e.g., an image
+     * shared by pages
+     * 
+     * @param page page number
+     * @param name name of the entry
+     */
+    public synchronized void addReference(int page, String name) {
+        var entries = index.computeIfAbsent(page, p -> new ArrayList<>());
+        if (!entries.contains(name))
+            entries.add(name);
+    }
+
+    private synchronized void write(int page, String name, byte[] data, boolean compress) throws IOException {
+        long start = System.nanoTime();
+        var entry = new ZipEntry(name);
+        if (!compress) {
+            // stored entries need the size and checksum upfront
+            var crc = new CRC32();
+            crc.update(data);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+        index.computeIfAbsent(page, p -> new ArrayList<>()).add(name);
+        metrics.stop(Stage.WRITE, start);
+        metrics.add(Counter.BYTES_WRITTEN, data.length);
+    }
+
+    /**
+     * Discard the container being written, the existing container is kept
+     */
+    public synchronized void abort() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            // it's discarded anyway
+        }
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            // it's overwritten next time
+        }
+    }
+
+    /**
+     * Write the index and replace the container with the one written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        var sb = new StringBuilder();
+        for (var e : index.entrySet()) {
+            for (var name : e.getValue())
+                sb.append(e.getKey()).append('\t').append(name).append('\n');
+        }
+        out.putNextEntry(new ZipEntry(INDEX_ENTRY));
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+        out.close();
+        metrics.increment(Counter.FILES_WRITTEN);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,294 @@
+package com.curtisnewbie.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Manifest of the elements extracted from a PDF file, which is kept in the
+ * directory of the elements. It records the size and last modified time of the
+ * PDF file, the options of the extraction, and for each page, the fingerprint
+ * of its content and the files produced from it, i.e., its text, the images
+ * found in it and the images it's rendered into. A later extraction of the same
+ * PDF file can then skip the PDF file or the pages that haven't changed. The
+ * paths of the files are relative to the directory of the manifest.
+ * </p>
+ */
+public class ExtractionManifest {
+
+    public static final String FILENAME = "extraction.manifest";
+    private static final String HEADER = "# PDF Element Extractor manifest v1";
+    private static final Logger logger = LoggerProducer.getLogger(ExtractionManifest.class.getName());
+
+    private final long sourceSize;
+    private final long sourceLastModified;
+    private final String options;
+    private boolean complete = false;
+    private boolean imagesExtracted = false;
+    private final Map<Integer, PageEntry> pages = new TreeMap<>();
+
+    /**
+     * @param sourceSize         size of the PDF file
+     * @param sourceLastModified last modified time of the PDF file in milliseconds
+     * @param options            options of the extraction, the PDF file is only
+     *                           skipped if they are the same
+     */
+    public ExtractionManifest(long sourceSize, long sourceLastModified, String options) {
+        this.sourceSize = sourceSize;
+        this.sourceLastModified = sourceLastModified;
+        this.options = options;
+    }
+
+    /**
+     * Read the manifest in the directory
+     * 
+     * @param dir directory of the extracted elements
+     * @return manifest or {@code null} if there isn't one or it's invalid
+     */
+    public static ExtractionManifest read(Path dir) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(dir.resolve(FILENAME), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warning("Failed to read manifest in " + dir + ", ignoring it");
+            return null;
+        }
+        try {
+            if (lines.isEmpty() || !lines.get(0).equals(HEADER))
+                throw new IllegalArgumentException("Unknown header");
+            ExtractionManifest manifest = null;
+            for (var line : lines.subList(1, lines.size())) {
+                var f = line.split("\t", -1);
+                switch (f[0]) {
+                    case "source":
+                        manifest = new ExtractionManifest(Long.parseLong(f[1]), Long.parseLong(f[2]), f[3]);
+                        manifest.complete = Boolean.parseBoolean(f[4]);
+                        manifest.imagesExtracted = Boolean.parseBoolean(f[5]);
+                        break;
+                    case "page":
+                        manifest.setPage(Integer.parseInt(f[1]), f[2].isEmpty() ? null : f[2]);
+                        if (!f[3].isEmpty())
+                            manifest.setTextFile(Integer.parseInt(f[1]), f[3]);
+                        break;
+                    case "image":
+                        manifest.addImageFile(Integer.parseInt(f[1]), f[2]);
+                        break;
+                    case "render":
+                        manifest.addRenderFile(Integer.parseInt(f[1]), f[2]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown record " + f[0]);
+                }
+            }
+            return Objects.requireNonNull(manifest);
+        } catch (RuntimeException e) {
+            logger.warning("Invalid manifest in " + dir + ", ignoring it");
+            return null;
+        }
+    }
+
+    /**
+     * Delete the manifest in the directory, it should be deleted before the files
+     * it records are overwritten
+     * 
+     * @param dir directory of the extracted elements
+     * @throws IOException
+     */
+    public static void delete(Path dir) throws IOException {
+        Files.deleteIfExists(dir.resolve(FILENAME));
+    }
+
+    /**
+     * Write the manifest to the directory, it replaces the existing one atomically
+     * 
+     * @param dir directory of the extracted elements
+     * @throws IOException
+     */
+    public void write(Path dir) throws IOException {
+        var sb = new StringBuilder(HEADER).append('\n');
+        sb.append(String.join("\t", "source", Long.toString(sourceSize), Long.toString(sourceLastModified), options,
+                Boolean.toString(complete), Boolean.toString(imagesExtracted))).append('\n');
+        for (var e : pages.entrySet()) {
+            var page = e.getValue();
+            sb.append(String.join("\t", "page", e.getKey().toString(), Objects.toString(page.fingerprint, ""),
+                    Objects.toString(page.textFile, ""))).append('\n');
+        }
+        for (var e : pages.entrySet()) {
+            for (var img : e.getValue().imageFiles)
+                sb.append(String.join("\t", "image", e.getKey().toString(), img)).append('\n');
+        }
+        for (var e : pages.entrySet()) {
+            for (var img : e.getValue().renderFiles)
+                sb.append(String.join("\t", "render", e.getKey().toString(), img)).append('\n');
+        }
+        var tmp = dir.resolve(FILENAME + ".tmp");
+        Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve(FILENAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Whether the PDF file and the options are the same, and everything was
+     * extracted successfully, such that the PDF file can be skipped
+     * 
+     * @param exists             whether a recorded file still exists
+     * @param sourceSize         size of the PDF file
+     * @param sourceLastModified last modified time of the PDF file in milliseconds
+     * @param options            options of the extraction
+     */
+    public boolean isUpToDate(Predicate<String> exists, long sourceSize, long sourceLastModified, String options) {
+        return complete && this.sourceSize == sourceSize && this.sourceLastModified == sourceLastModified
+                && this.options.equals(options) && getFiles().stream().allMatch(exists);
+    }
+
+    /**
+     * Get the options of the extraction
+     */
+    public String getOptions() {
+        return options;
+    }
+
+    /**
+     * Get the fingerprint of the page
+     * 
+     * @return fingerprint or {@code null} if the page isn't recorded or its
+     *         fingerprint is unknown
+     */
+    public String getFingerprint(int page) {
+        var entry = pages.get(page);
+        return entry != null ? entry.fingerprint : null;
+    }
+
+    /**
+     * Get the text file of the page
+     * 
+     * @return path relative to the manifest or {@code null} if there isn't one
+     */
+    public String getTextFile(int page) {
+        var entry = pages.get(page);
+        return entry != null ? entry.textFile : null;
+    }
+
+    /**
+     * Get the image files of the page, i.e., the images first found in the page
+     * 
+     * @return paths relative to the manifest
+     */
+    public List<String> getImageFiles(int page) {
+        var entry = pages.get(page);
+        return entry != null ? Collections.unmodifiableList(entry.imageFiles) : List.of();
+    }
+
+    /**
+     * Get the images the page is rendered into, i.e., an image of the page or its
+     * tiles
+     * 
+     * @return paths relative to the manifest
+     */
+    public List<String> getRenderFiles(int page) {
+        var entry = pages.get(page);
+        return entry != null ? Collections.unmodifiableList(entry.renderFiles) : List.of();
+    }
+
+    /**
+     * Get all the files recorded
+     * 
+     * @return paths relative to the manifest
+     */
+    public Set<String> getFiles() {
+        Set<String> files = new LinkedHashSet<>();
+        for (var page : pages.values()) {
+            if (page.textFile != null)
+                files.add(page.textFile);
+            files.addAll(page.imageFiles);
+            files.addAll(page.renderFiles);
+        }
+        return files;
+    }
+
+    /**
+     * Whether the pages are the same as the given manifest's, i.e., the same page
+     * numbers with the same known fingerprints
+     */
+    public boolean hasSamePages(ExtractionManifest other) {
+        if (!pages.keySet().equals(other.pages.keySet()))
+            return false;
+        for (var e : pages.entrySet()) {
+            var fingerprint = e.getValue().fingerprint;
+            if (fingerprint == null || !fingerprint.equals(other.getFingerprint(e.getKey())))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record a page
+     * 
+     * @param page        page number
+     * @param fingerprint fingerprint of the page, {@code null} if it's unknown
+     */
+    public void setPage(int page, String fingerprint) {
+        pages.computeIfAbsent(page, p -> new PageEntry()).fingerprint = fingerprint;
+    }
+
+    public void setTextFile(int page, String textFile) {
+        pages.computeIfAbsent(page, p -> new PageEntry()).textFile = textFile;
+    }
+
+    public void addImageFile(int page, String imageFile) {
+        pages.computeIfAbsent(page, p -> new PageEntry()).imageFiles.add(imageFile);
+    }
+
+    public void addRenderFile(int page, String renderFile) {
+        pages.computeIfAbsent(page, p -> new PageEntry()).renderFiles.add(renderFile);
+    }
+
+    /**
+     * Set whether everything was extracted successfully
+     */
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public boolean isImagesExtracted() {
+        return imagesExtracted;
+    }
+
+    /**
+     * Set whether all the images of the pages were extracted, which are then
+     * recorded by {@link #addImageFile(int, String)}
+     */
+    public void setImagesExtracted(boolean imagesExtracted) {
+        this.imagesExtracted = imagesExtracted;
+    }
+
+    private static class PageEntry {
+        String fingerprint;
+        String textFile;
+        final List<String> imageFiles = new ArrayList<>();
+        final List<String> renderFiles = new ArrayList<>();
+    }
+}
@@ -1,16 +1,29 @@
 package com.curtisnewbie.io;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.awt.image.*;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
 
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 /**
@@ -43,6 +56,78 @@ public class IOManager {
         return PDDocument.load(file);
     }
 
+    /**
+     * Read local PDF file with the given options, e.g., buffering the parsed
+     * streams in temp files and memory-mapping the PDF file for very large files
+     * 
+     * @param path    path
+     * @param options options of loading the PDF file
+     * @return a PDDocument representing the PDF file
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static PDDocument readPdfFile(String path, PdfLoadOptions options) throws IOException, PdfNotFoundException {
+        return readPdfFile(path, options, ExtractionMetrics.global());
+    }
+
+    /**
+     * Read local PDF file with the given options, and record the time spent
+     * parsing it
+     * 
+     * @param path    path
+     * @param options options of loading the PDF file
+     * @param metrics metrics
+     * @return a PDDocument representing the PDF file
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static PDDocument readPdfFile(String path, PdfLoadOptions options, ExtractionMetrics metrics)
+            throws IOException, PdfNotFoundException {
+        var file = validateAndCreateFile(path);
+        long start = System.nanoTime();
+        try {
+            if (!options.isMemoryMapped())
+                return PDDocument.load(file, options.toMemoryUsageSetting());
+
+            // both of them are closed when the document is closed
+            var source = new MappedRandomAccessRead(file);
+            ScratchFile scratchFile = null;
+            try {
+                scratchFile = new ScratchFile(options.toMemoryUsageSetting());
+                var parser = new PDFParser(source, "", scratchFile);
+                parser.parse();
+                return parser.getPDDocument();
+            } catch (IOException | RuntimeException e) {
+                if (scratchFile != null)
+                    scratchFile.close();
+                source.close();
+                throw e;
+            }
+        } finally {
+            metrics.stop(Stage.PARSE, start);
+        }
+    }
+
+    /**
+     * Read a PDF file from the stream, e.g., one that is uploaded, with the given
+     * options, and record the time spent parsing it. It's never memory-mapped.
+     * 
+     * @param in      stream of the PDF file, it's read to the end but not closed
+     * @param options options of loading the PDF file
+     * @param metrics metrics
+     * @return a PDDocument representing the PDF file
+     * @throws IOException
+     */
+    public static PDDocument readPdf(InputStream in, PdfLoadOptions options, ExtractionMetrics metrics)
+            throws IOException {
+        long start = System.nanoTime();
+        try {
+            return PDDocument.load(in, options.toMemoryUsageSetting());
+        } finally {
+            metrics.stop(Stage.PARSE, start);
+        }
+    }
+
     /**
      * Write textual data to local file
      * 
@@ -55,6 +140,22 @@ public class IOManager {
      */
     public static String writeElementToFile(String path, String text, String filename)
             throws IOException, PdfNotFoundException {
+        return writeElementToFile(path, text, filename, ExtractionMetrics.global());
+    }
+
+    /**
+     * Write textual data to local file, and record the time spent and bytes
+     * written
+     * 
+     * @param path     path
+     * @param text     textual data
+     * @param filename filename
+     * @param metrics  metrics
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static String writeElementToFile(String path, String text, String filename, ExtractionMetrics metrics)
+            throws IOException, PdfNotFoundException {
         var file = validateAndCreateFile(path);
         var strPath = file.getAbsolutePath();
         var textDir = new File(strPath, TEXT_DIR);
@@ -62,7 +163,7 @@ public class IOManager {
             textDir.mkdir();
         }
         var fullPath = Paths.get(textDir.getAbsolutePath(), filename);
-        Files.writeString(fullPath, text);
+        write(fullPath, text.getBytes(StandardCharsets.UTF_8), metrics);
         return fullPath.toString();
     }
 
@@ -79,6 +180,22 @@ public class IOManager {
      */
     public static String writeElementToFile(String path, BufferedImage image, String filename)
             throws IOException, PdfNotFoundException {
+        return writeElementToFile(path, image, filename, ExtractionMetrics.global());
+    }
+
+    /**
+     * Encode the image as PNG straight into local file, and record the time spent
+     * as encoding and bytes written
+     * 
+     * @param path     path
+     * @param image    image
+     * @param filename filename
+     * @param metrics  metrics
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static String writeElementToFile(String path, BufferedImage image, String filename,
+            ExtractionMetrics metrics) throws IOException, PdfNotFoundException {
         var file = validateAndCreateFile(path);
         var strPath = file.getAbsolutePath();
         var textDir = new File(strPath, IMAGE_DIR);
@@ -86,12 +203,204 @@ public class IOManager {
             textDir.mkdir();
         }
 
-        // write image to local file
+        // encode the image straight into the file, encoding and writing are timed as one
         var fullPath = Paths.get(textDir.getAbsolutePath(), filename);
-        ImageIO.write(image, "png", new File(fullPath.toString()));
+        long start = System.nanoTime();
+        long size;
+        try (var out = new BufferedOutputStream(Files.newOutputStream(fullPath))) {
+            size = writePng(image, out);
+        }
+        metrics.stop(Stage.ENCODE, start);
+        metrics.increment(Counter.FILES_WRITTEN);
+        metrics.add(Counter.BYTES_WRITTEN, size);
         return fullPath.toString();
     }
 
+    /**
+     * Write an encoded image (e.g., JPEG) to local file as it is
+     * 
+     * @param path     path
+     * @param encoded  bytes of the encoded image
+     * @param filename filename, including the extension of the image format
+     * 
+     * @throws PdfNotFoundException
+     * @throws IOException
+     * 
+     */
+    public static String writeElementToFile(String path, byte[] encoded, String filename)
+            throws IOException, PdfNotFoundException {
+        return writeElementToFile(path, encoded, filename, ExtractionMetrics.global());
+    }
+
+    /**
+     * Write an encoded image (e.g., JPEG) to local file as it is, and record the
+     * time spent and bytes written
+     * 
+     * @param path     path
+     * @param encoded  bytes of the encoded image
+     * @param filename filename, including the extension of the image format
+     * @param metrics  metrics
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static String writeElementToFile(String path, byte[] encoded, String filename, ExtractionMetrics metrics)
+            throws IOException, PdfNotFoundException {
+        var file = validateAndCreateFile(path);
+        var imgDir = new File(file.getAbsolutePath(), IMAGE_DIR);
+        if (!imgDir.exists()) {
+            imgDir.mkdir();
+        }
+        var fullPath = Paths.get(imgDir.getAbsolutePath(), filename);
+        write(fullPath, encoded, metrics);
+        return fullPath.toString();
+    }
+
+    /**
+     * Open a session of writing elements to the directory, which validates the
+     * directory once rather than for every file, see {@link OutputSession}
+     * 
+     * @param path path to the directory
+     * @return session, it must be closed
+     * @throws PdfNotFoundException
+     */
+    public static OutputSession openSession(String path) throws PdfNotFoundException {
+        return openSession(path, ExtractionMetrics.global());
+    }
+
+    /**
+     * Open a session of writing elements to the directory, which records the time
+     * spent and bytes written to the metrics
+     * 
+     * @param path    path to the directory
+     * @param metrics metrics
+     * @return session, it must be closed
+     * @throws PdfNotFoundException
+     */
+    public static OutputSession openSession(String path, ExtractionMetrics metrics) throws PdfNotFoundException {
+        var file = validateAndCreateFile(path);
+        return new OutputSession(file.toPath().toAbsolutePath(), metrics);
+    }
+
+    /**
+     * Create a container in the directory, which holds all the extracted elements
+     * in a single file instead of writing a file per page or image
+     * 
+     * @param path     path to the directory
+     * @param filename filename of the container
+     * @return writer of the container, it must be closed to complete the container
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static ContainerWriter createContainer(String path, String filename)
+            throws IOException, PdfNotFoundException {
+        return createContainer(path, filename, ExtractionMetrics.global());
+    }
+
+    /**
+     * Create a container in the directory, which records the time spent and bytes
+     * written to the metrics
+     * 
+     * @param path     path to the directory
+     * @param filename filename of the container
+     * @param metrics  metrics
+     * @return writer of the container, it must be closed to complete the container
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static ContainerWriter createContainer(String path, String filename, ExtractionMetrics metrics)
+            throws IOException, PdfNotFoundException {
+        var file = validateAndCreateFile(path);
+        return new ContainerWriter(Paths.get(file.getAbsolutePath(), filename), metrics);
+    }
+
+    /**
+     * Create a file in the directory that the structured text of pages is written
+     * to, see {@link StructuredTextWriter}
+     * 
+     * @param path     path to the directory
+     * @param filename filename
+     * @param format   format of the file
+     * @param metrics  metrics
+     * @return writer, it must be closed
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public static StructuredTextWriter createStructuredTextWriter(String path, String filename,
+            StructuredTextWriter.Format format, ExtractionMetrics metrics) throws IOException, PdfNotFoundException {
+        var file = validateAndCreateFile(path);
+        var out = Files.newOutputStream(Paths.get(file.getAbsolutePath(), filename));
+        return StructuredTextWriter.create(out, format, metrics);
+    }
+
+    /**
+     * Encode the image as PNG, and record the time spent
+     * 
+     * @param image   image
+     * @param metrics metrics
+     * @return bytes of the PNG image
+     * @throws IOException
+     */
+    public static byte[] encodePng(BufferedImage image, ExtractionMetrics metrics) throws IOException {
+        long start = System.nanoTime();
+        var bytes = new ByteArrayOutputStream();
+        writePng(image, bytes);
+        metrics.stop(Stage.ENCODE, start);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode the image as PNG into the stream, which isn't closed. It's buffered
+     * in memory rather than in a temporary file like
+     * {@link ImageIO#write(java.awt.image.RenderedImage, String, java.io.OutputStream)}
+     * does by default.
+     * 
+     * @param image image
+     * @param out   stream
+     * @return number of bytes written
+     * @throws IOException
+     */
+    static long writePng(BufferedImage image, OutputStream out) throws IOException {
+        var counting = new CountingOutputStream(out);
+        try (var ios = new MemoryCacheImageOutputStream(counting)) {
+            if (!ImageIO.write(image, "png", ios))
+                throw new IOException("No PNG writer found");
+        }
+        counting.flush();
+        return counting.count;
+    }
+
+    private static void write(Path path, byte[] data, ExtractionMetrics metrics) throws IOException {
+        long start = System.nanoTime();
+        Files.write(path, data);
+        metrics.stop(Stage.WRITE, start);
+        metrics.increment(Counter.FILES_WRITTEN);
+        metrics.add(Counter.BYTES_WRITTEN, data.length);
+    }
+
+    /**
+     * Stream that counts the bytes written through it
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     static File validateAndCreateFile(String path) throws PdfNotFoundException {
         if (path == null || path.length() == 0)
             throw new PdfNotFoundException();
@@ -0,0 +1,165 @@
+package com.curtisnewbie.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * {@code RandomAccessRead} of a memory-mapped file, such that the parser reads
+ * the PDF file through the OS page cache without copying it onto the heap. The
+ * file is mapped in chunks so that files larger than 2 GB are supported. The
+ * mappings are released when they are garbage collected. It's not thread-safe.
+ * </p>
+ */
+class MappedRandomAccessRead implements RandomAccessRead {
+
+    /** each chunk maps 1 GB of the file */
+    private static final int CHUNK_BITS = 30;
+
+    private final int chunkBits;
+    private final long chunkMask;
+    private MappedByteBuffer[] chunks;
+    private final long length;
+    private long position = 0;
+
+    MappedRandomAccessRead(File file) throws IOException {
+        this(file, CHUNK_BITS);
+    }
+
+    /**
+     * @param file      file
+     * @param chunkBits each chunk maps {@code 2^chunkBits} bytes of the file, it's
+     *                  at most 30
+     */
+    MappedRandomAccessRead(File file, int chunkBits) throws IOException {
+        if (chunkBits < 0 || chunkBits > CHUNK_BITS)
+            throw new IllegalArgumentException("Invalid chunk bits " + chunkBits);
+        this.chunkBits = chunkBits;
+        long chunkSize = 1L << chunkBits;
+        this.chunkMask = chunkSize - 1;
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            this.length = channel.size();
+            this.chunks = new MappedByteBuffer[(int) ((length + chunkSize - 1) / chunkSize)];
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = i * chunkSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(chunkSize, length - offset));
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        if (position >= length)
+            return -1;
+        int b = chunks[(int) (position >>> chunkBits)].get((int) (position & chunkMask)) & 0xff;
+        position++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (position >= length)
+            return -1;
+        int total = (int) Math.min(len, length - position);
+        int read = 0;
+        while (read < total) {
+            var chunk = chunks[(int) (position >>> chunkBits)];
+            int index = (int) (position & chunkMask);
+            int n = Math.min(total - read, chunk.limit() - index);
+            chunk.position(index);
+            chunk.get(b, off + read, n);
+            read += n;
+            position += n;
+        }
+        return read;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        checkClosed();
+        if (position < 0)
+            throw new IOException("Invalid position " + position);
+        this.position = position;
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkClosed();
+        return length;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return chunks == null;
+    }
+
+    @Override
+    public int peek() throws IOException {
+        int b = read();
+        if (b != -1)
+            position--;
+        return b;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException {
+        checkClosed();
+        position -= bytes;
+    }
+
+    @Override
+    public byte[] readFully(int len) throws IOException {
+        byte[] b = new byte[len];
+        int read = read(b, 0, len);
+        if (read < len)
+            throw new EOFException("Premature end of file");
+        return b;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkClosed();
+        return position >= length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkClosed();
+        return (int) Math.max(0, Math.min(length - position, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunks = null;
+    }
+
+    private void checkClosed() throws IOException {
+        if (chunks == null)
+            throw new IOException("RandomAccessRead already closed");
+    }
+}
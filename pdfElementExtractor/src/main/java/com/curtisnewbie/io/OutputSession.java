@@ -0,0 +1,311 @@
+package com.curtisnewbie.io;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Writer of the elements of an extraction to a directory, the same files as
+ * {@link IOManager#writeElementToFile(String, String, String)} and its
+ * overloads write, i.e., text in {@link IOManager#TEXT_DIR} and images in
+ * {@link IOManager#IMAGE_DIR}. The directory is validated and the
+ * subdirectories are created once for the session rather than for every file,
+ * and each file is written with a single write to a {@code FileChannel}.
+ * </p>
+ * <p>
+ * Small files can be coalesced, i.e., held in memory and written in a burst
+ * once enough of them are pending, and the files can be synced to the disk
+ * when each of them is written or once when the session is closed, see
+ * {@link SyncPolicy}. It's thread-safe, and it must be closed.
+ * </p>
+ */
+public class OutputSession implements AutoCloseable {
+
+    /**
+     * When the written files are synced to the disk
+     */
+    public enum SyncPolicy {
+        /** left to the OS, the fastest */
+        NONE,
+        /** each file is synced before its write returns */
+        EACH_FILE,
+        /** all the files and the directories are synced when the session is closed */
+        ON_CLOSE
+    }
+
+    private static final StandardOpenOption[] WRITE_OPTIONS = { StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING };
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final Path textDir;
+    private final Path imageDir;
+    private final ExtractionMetrics metrics;
+    private volatile boolean textDirCreated = false;
+    private volatile boolean imageDirCreated = false;
+    private volatile SyncPolicy syncPolicy = SyncPolicy.NONE;
+    /** files are written once this many bytes are pending, 0 if they are written immediately */
+    private volatile int coalesceBytes = 0;
+    /** files not yet written, guarded by itself */
+    private final Map<Path, ByteBuffer> pending = new LinkedHashMap<>();
+    private int pendingBytes = 0;
+    /** files written that are synced on close, guarded by itself */
+    private final List<Path> unsynced = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Open a session of the directory, see {@link IOManager#openSession(String, ExtractionMetrics)}
+     */
+    OutputSession(Path dir, ExtractionMetrics metrics) {
+        this.textDir = dir.resolve(IOManager.TEXT_DIR);
+        this.imageDir = dir.resolve(IOManager.IMAGE_DIR);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Set when the written files are synced to the disk, it's
+     * {@link SyncPolicy#NONE} by default
+     */
+    public void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+    }
+
+    /**
+     * Set how many bytes of small files are held in memory before they are
+     * written in a burst, a file is only complete on the disk once it's written,
+     * e.g., by {@link #flush()} or {@link #close()}
+     * 
+     * @param coalesceBytes number of bytes, 0 to write each file immediately
+     */
+    public void setCoalesceBytes(int coalesceBytes) {
+        this.coalesceBytes = Math.max(0, coalesceBytes);
+    }
+
+    /**
+     * Write textual data as UTF-8 to a file in the text directory
+     * 
+     * @param text     textual data
+     * @param filename filename
+     * @return path of the file
+     * @throws IOException
+     */
+    public String writeText(String text, String filename) throws IOException {
+        checkOpen();
+        if (!textDirCreated) {
+            Files.createDirectories(textDir);
+            textDirCreated = true;
+        }
+        var path = textDir.resolve(filename);
+        write(path, ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        return path.toString();
+    }
+
+    /**
+     * Encode the image as PNG and write it to a file in the image directory. It's
+     * encoded straight into the file unless small files are coalesced, and
+     * encoding and writing are then timed as one.
+     * 
+     * @param image    image
+     * @param filename filename
+     * @return path of the file
+     * @throws IOException
+     */
+    public String writeImage(BufferedImage image, String filename) throws IOException {
+        // nothing is encoded once it's closed
+        checkOpen();
+        if (coalesceBytes > 0)
+            return writeImage(IOManager.encodePng(image, metrics), filename);
+        if (!imageDirCreated) {
+            Files.createDirectories(imageDir);
+            imageDirCreated = true;
+        }
+        var path = imageDir.resolve(filename);
+        long start = System.nanoTime();
+        long size;
+        var policy = syncPolicy;
+        try (var channel = FileChannel.open(path, WRITE_OPTIONS)) {
+            var out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            size = IOManager.writePng(image, out);
+            out.flush();
+            if (policy == SyncPolicy.EACH_FILE)
+                channel.force(false);
+        }
+        written(path, policy);
+        metrics.stop(Stage.ENCODE, start);
+        metrics.increment(Counter.FILES_WRITTEN);
+        metrics.add(Counter.BYTES_WRITTEN, size);
+        return path.toString();
+    }
+
+    /**
+     * Write an encoded image (e.g., JPEG) as it is to a file in the image
+     * directory
+     * 
+     * @param encoded  bytes of the encoded image
+     * @param filename filename, including the extension of the image format
+     * @return path of the file
+     * @throws IOException
+     */
+    public String writeImage(byte[] encoded, String filename) throws IOException {
+        checkOpen();
+        if (!imageDirCreated) {
+            Files.createDirectories(imageDir);
+            imageDirCreated = true;
+        }
+        var path = imageDir.resolve(filename);
+        write(path, ByteBuffer.wrap(encoded));
+        return path.toString();
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("Output session is closed");
+    }
+
+    private void write(Path path, ByteBuffer data) throws IOException {
+        int limit = coalesceBytes;
+        if (limit <= 0 || data.remaining() >= limit) {
+            writeFile(path, data);
+            return;
+        }
+        Map<Path, ByteBuffer> burst = null;
+        synchronized (pending) {
+            var replaced = pending.put(path, data);
+            pendingBytes += data.remaining() - (replaced != null ? replaced.remaining() : 0);
+            if (pendingBytes >= limit)
+                burst = takePending();
+        }
+        if (burst != null)
+            writeAll(burst);
+    }
+
+    /**
+     * Write the files that are pending
+     * 
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        Map<Path, ByteBuffer> burst;
+        synchronized (pending) {
+            burst = takePending();
+        }
+        writeAll(burst);
+    }
+
+    /**
+     * Write the files that are pending, and sync the files if the policy is
+     * {@link SyncPolicy#ON_CLOSE}
+     * 
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        flush();
+        closed = true;
+        if (syncPolicy != SyncPolicy.ON_CLOSE)
+            return;
+        long start = System.nanoTime();
+        List<Path> files;
+        synchronized (unsynced) {
+            files = new ArrayList<>(unsynced);
+            unsynced.clear();
+        }
+        for (var f : files)
+            sync(f);
+        // the entries of the files are in the directories
+        if (textDirCreated)
+            syncDirectory(textDir);
+        if (imageDirCreated)
+            syncDirectory(imageDir);
+        metrics.stop(Stage.WRITE, start);
+    }
+
+    private Map<Path, ByteBuffer> takePending() {
+        var burst = new LinkedHashMap<>(pending);
+        pending.clear();
+        pendingBytes = 0;
+        return burst;
+    }
+
+    private void writeAll(Map<Path, ByteBuffer> files) throws IOException {
+        IOException failure = null;
+        for (var e : files.entrySet()) {
+            try {
+                writeFile(e.getKey(), e.getValue());
+            } catch (IOException ex) {
+                logger.severe(String.format("Failed to write %s: %s", e.getKey(), ex.getMessage()));
+                if (failure == null)
+                    failure = ex;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void writeFile(Path path, ByteBuffer data) throws IOException {
+        long start = System.nanoTime();
+        int size = data.remaining();
+        var policy = syncPolicy;
+        try (var channel = FileChannel.open(path, WRITE_OPTIONS)) {
+            while (data.hasRemaining())
+                channel.write(data);
+            if (policy == SyncPolicy.EACH_FILE)
+                channel.force(false);
+        }
+        written(path, policy);
+        metrics.stop(Stage.WRITE, start);
+        metrics.increment(Counter.FILES_WRITTEN);
+        metrics.add(Counter.BYTES_WRITTEN, size);
+    }
+
+    private void written(Path path, SyncPolicy policy) {
+        if (policy == SyncPolicy.ON_CLOSE) {
+            synchronized (unsynced) {
+                unsynced.add(path);
+            }
+        }
+    }
+
+    /**
+     * Sync the file or directory to the disk
+     */
+    void sync(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.force(false);
+        }
+    }
+
+    private void syncDirectory(Path dir) {
+        try {
+            sync(dir);
+        } catch (IOException e) {
+            // directories can't be opened on some platforms, e.g., Windows
+            logger.fine("Failed to sync directory " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.curtisnewbie.io;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Writer of images that encodes and writes images on a pool of workers, such
+ * that encoding (e.g., PNG) of many images is not limited to a single thread.
+ * The filename of each image is decided when it's submitted, so the names are
+ * deterministic regardless of the order in which the images are written. When
+ * too many images are pending, submitting waits until some of them are written.
+ * It's meant to be used by a single thread, and it must be closed when it's no
+ * longer used.
+ * </p>
+ */
+public class ParallelImageWriter implements AutoCloseable {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final String path;
+    /** session the images are written through, null if they are written to the path */
+    private final OutputSession session;
+    private final ExecutorService executor;
+    private final Semaphore pending;
+    private final List<CompletableFuture<String>> futures = new ArrayList<>();
+    private ExtractionMetrics metrics = ExtractionMetrics.global();
+
+    /**
+     * @param path        path to the directory where images are written to
+     * @param parallelism number of workers
+     */
+    public ParallelImageWriter(String path, int parallelism) {
+        this(path, parallelism, parallelism * 2);
+    }
+
+    /**
+     * @param path        path to the directory where images are written to
+     * @param parallelism number of workers
+     * @param maxPending  maximum number of images that are submitted but not yet
+     *                    written
+     */
+    public ParallelImageWriter(String path, int parallelism, int maxPending) {
+        this(path, null, parallelism, maxPending);
+    }
+
+    /**
+     * @param session     session the images are written through, the metrics of
+     *                    the session are used, and it's not closed by this writer
+     * @param parallelism number of workers
+     */
+    public ParallelImageWriter(OutputSession session, int parallelism) {
+        this(null, session, parallelism, parallelism * 2);
+    }
+
+    private ParallelImageWriter(String path, OutputSession session, int parallelism, int maxPending) {
+        this.path = path;
+        this.session = session;
+        this.pending = new Semaphore(Math.max(1, maxPending));
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            var t = new Thread(r, "image-writer-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Set the metrics that the time spent encoding and writing images is recorded
+     * to, it's {@link ExtractionMetrics#global()} by default
+     * 
+     * @param metrics metrics, e.g., of a job
+     */
+    public void setMetrics(ExtractionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Submit an image to be encoded as PNG and written to local file
+     * 
+     * @param image    image
+     * @param filename filename
+     * @return future of the path of the written file
+     * @throws InterruptedException
+     */
+    public CompletableFuture<String> write(BufferedImage image, String filename) throws InterruptedException {
+        if (session != null)
+            return submit(() -> session.writeImage(image, filename));
+        return submit(() -> IOManager.writeElementToFile(path, image, filename, metrics));
+    }
+
+    /**
+     * Submit an encoded image (e.g., JPEG) to be written to local file as it is
+     * 
+     * @param encoded  bytes of the encoded image
+     * @param filename filename, including the extension of the image format
+     * @return future of the path of the written file
+     * @throws InterruptedException
+     */
+    public CompletableFuture<String> write(byte[] encoded, String filename) throws InterruptedException {
+        if (session != null)
+            return submit(() -> session.writeImage(encoded, filename));
+        return submit(() -> IOManager.writeElementToFile(path, encoded, filename, metrics));
+    }
+
+    /**
+     * Wait until all submitted images are written
+     * 
+     * @return paths of the written files in the order they are submitted, images
+     *         that failed to be written are skipped
+     * @throws InterruptedException
+     */
+    public List<String> awaitAll() throws InterruptedException {
+        List<String> paths = new ArrayList<>();
+        for (var f : futures) {
+            try {
+                paths.add(f.get());
+            } catch (ExecutionException e) {
+                logger.severe(e.getCause().getMessage());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Stop the workers, images that are not yet written are discarded
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<String> submit(WriteTask task) throws InterruptedException {
+        pending.acquire();
+        var future = new CompletableFuture<String>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.write());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            throw e;
+        }
+        futures.add(future);
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface WriteTask {
+        String write() throws Exception;
+    }
+}
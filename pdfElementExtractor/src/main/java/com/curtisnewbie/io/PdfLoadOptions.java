@@ -0,0 +1,90 @@
+package com.curtisnewbie.io;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Options of loading PDF files, i.e., where the parsed streams are buffered
+ * (main memory, temp files or both) and whether the PDF file is memory-mapped.
+ * Very large PDF files can be processed with a small heap by buffering streams
+ * in temp files and memory-mapping the PDF file.
+ * </p>
+ */
+public class PdfLoadOptions {
+
+    /**
+     * Where the parsed streams are buffered
+     */
+    public enum MemoryMode {
+        /** only in main memory */
+        MAIN_MEMORY_ONLY,
+        /** only in temp files */
+        TEMP_FILE_ONLY,
+        /** in main memory until the maximum is reached, and then in temp files */
+        MIXED
+    }
+
+    private final MemoryMode memoryMode;
+    private final long maxMainMemoryBytes;
+    private final boolean memoryMapped;
+
+    /**
+     * @param memoryMode         where the parsed streams are buffered
+     * @param maxMainMemoryBytes maximum bytes of main memory used for buffering,
+     *                           -1 for no limit, it's ignored when it's
+     *                           {@link MemoryMode#TEMP_FILE_ONLY}, and it's
+     *                           required when it's {@link MemoryMode#MIXED}
+     * @param memoryMapped       whether the PDF file is memory-mapped
+     * @throws IllegalArgumentException if it's {@link MemoryMode#MIXED} without
+     *                                  limit, where temp files are never used
+     */
+    public PdfLoadOptions(MemoryMode memoryMode, long maxMainMemoryBytes, boolean memoryMapped) {
+        if (memoryMode == MemoryMode.MIXED && maxMainMemoryBytes < 0)
+            throw new IllegalArgumentException("Maximum main memory is required when streams are buffered in both");
+        this.memoryMode = memoryMode;
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Get the default options, which buffers streams in main memory without limit,
+     * and reads the PDF file without memory mapping
+     * 
+     * @return default options
+     */
+    public static PdfLoadOptions defaults() {
+        return new PdfLoadOptions(MemoryMode.MAIN_MEMORY_ONLY, -1, false);
+    }
+
+    public MemoryMode getMemoryMode() {
+        return memoryMode;
+    }
+
+    public long getMaxMainMemoryBytes() {
+        return maxMainMemoryBytes;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Create a new {@code MemoryUsageSetting}, it should not be shared by documents
+     */
+    MemoryUsageSetting toMemoryUsageSetting() {
+        switch (memoryMode) {
+            case TEMP_FILE_ONLY:
+                return MemoryUsageSetting.setupTempFileOnly();
+            case MIXED:
+                return MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+            default:
+                return MemoryUsageSetting.setupMainMemoryOnly(maxMainMemoryBytes);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.curtisnewbie.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
+import com.curtisnewbie.pdfprocess.StructuredText;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Writer of {@link StructuredText} of pages in one of the {@link Format
+ * formats}. Each page is encoded into a buffer that is reused for the next page,
+ * and then written as a whole. It's not thread-safe, and it must be closed.
+ * </p>
+ */
+public abstract class StructuredTextWriter implements AutoCloseable {
+
+    public enum Format {
+        /**
+         * JSON Lines, a line per word:
+         * 
+         * <pre>
+         * {"p":1,"l":0,"x":72.0,"y":98.5,"w":31.2,"h":9.8,"s":12.0,"f":"Helvetica","t":"Hello"}
+         * </pre>
+         * 
+         * where {@code p} is the page, {@code l} the line in the page, {@code x},
+         * {@code y}, {@code w} and {@code h} the bounding box in points from the
+         * top-left corner, {@code s} the font size, {@code f} the font and
+         * {@code t} the text
+         */
+        JSON_LINES("jsonl"),
+        /**
+         * Binary columns, big-endian: the magic {@code PEST} and the version (int),
+         * then a block per page: page, number of words, lines and fonts (ints), the
+         * font names (UTF, empty if unknown), the columns of the words (x, y, w, h,
+         * font size as floats, font index, line, end of the text in bytes as ints),
+         * and the UTF-8 text of all the words (length as int, then the bytes)
+         */
+        COLUMNAR("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    static final int COLUMNAR_MAGIC = 0x50455354;
+    static final int COLUMNAR_VERSION = 1;
+
+    protected final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private final OutputStream out;
+    private final ExtractionMetrics metrics;
+
+    private StructuredTextWriter(OutputStream out, ExtractionMetrics metrics) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Create a writer
+     * 
+     * @param out     stream written to, it's closed when the writer is closed
+     * @param format  format
+     * @param metrics metrics the time spent and bytes written are recorded to
+     * @return writer
+     */
+    public static StructuredTextWriter create(OutputStream out, Format format, ExtractionMetrics metrics) {
+        if (format == Format.COLUMNAR)
+            return new Columnar(out, metrics);
+        return new JsonLines(out, metrics);
+    }
+
+    /**
+     * Write the words of a page
+     * 
+     * @param text words of the page
+     * @throws IOException
+     */
+    public void write(StructuredText text) throws IOException {
+        buffer.reset();
+        encode(text);
+        writeBuffer();
+    }
+
+    protected void writeBuffer() throws IOException {
+        long start = System.nanoTime();
+        buffer.writeTo(out);
+        metrics.stop(Stage.WRITE, start);
+        metrics.add(Counter.BYTES_WRITTEN, buffer.size());
+    }
+
+    /**
+     * Encode the page into {@link #buffer}
+     */
+    protected abstract void encode(StructuredText text) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+        metrics.increment(Counter.FILES_WRITTEN);
+    }
+
+    /**
+     * Encode the characters as UTF-8 into the buffer
+     */
+    private static void writeUtf8(ByteArrayOutputStream buf, CharSequence cs, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                buf.write(c);
+            } else if (c < 0x800) {
+                buf.write(0xC0 | (c >> 6));
+                buf.write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, cs.charAt(++i));
+                buf.write(0xF0 | (cp >> 18));
+                buf.write(0x80 | ((cp >> 12) & 0x3F));
+                buf.write(0x80 | ((cp >> 6) & 0x3F));
+                buf.write(0x80 | (cp & 0x3F));
+            } else {
+                if (Character.isSurrogate(c))
+                    c = '\uFFFD';
+                buf.write(0xE0 | (c >> 12));
+                buf.write(0x80 | ((c >> 6) & 0x3F));
+                buf.write(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static class JsonLines extends StructuredTextWriter {
+
+        private final StringBuilder sb = new StringBuilder(256);
+
+        JsonLines(OutputStream out, ExtractionMetrics metrics) {
+            super(out, metrics);
+        }
+
+        @Override
+        protected void encode(StructuredText text) {
+            var chars = text.getChars();
+            for (int i = 0; i < text.getWordCount(); i++) {
+                sb.setLength(0);
+                sb.append("{\"p\":").append(text.getPage());
+                sb.append(",\"l\":").append(text.getLine(i));
+                appendNumber(sb.append(",\"x\":"), text.getX(i));
+                appendNumber(sb.append(",\"y\":"), text.getY(i));
+                appendNumber(sb.append(",\"w\":"), text.getWidth(i));
+                appendNumber(sb.append(",\"h\":"), text.getHeight(i));
+                appendNumber(sb.append(",\"s\":"), text.getFontSize(i));
+                sb.append(",\"f\":");
+                appendString(sb, text.getFontName(text.getFont(i)), 0, -1);
+                sb.append(",\"t\":");
+                appendString(sb, chars, text.getTextStart(i), text.getTextEnd(i));
+                sb.append("}\n");
+                writeUtf8(buffer, sb, 0, sb.length());
+            }
+        }
+
+        /**
+         * Append the number rounded to 2 decimal places, without formatting it as a
+         * string first
+         */
+        private static void appendNumber(StringBuilder sb, float f) {
+            if (Float.isNaN(f) || Float.isInfinite(f)) {
+                sb.append('0');
+                return;
+            }
+            long v = Math.round(f * 100.0);
+            if (v < 0) {
+                sb.append('-');
+                v = -v;
+            }
+            sb.append(v / 100).append('.');
+            long decimals = v % 100;
+            if (decimals < 10)
+                sb.append('0');
+            sb.append(decimals);
+        }
+
+        /**
+         * Append the characters as a JSON string, all of them if end is negative
+         */
+        private static void appendString(StringBuilder sb, CharSequence cs, int start, int end) {
+            if (cs == null) {
+                sb.append("null");
+                return;
+            }
+            if (end < 0)
+                end = cs.length();
+            sb.append('"');
+            for (int i = start; i < end; i++) {
+                char c = cs.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append("\\u00");
+                    sb.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+
+    private static class Columnar extends StructuredTextWriter {
+
+        private final DataOutputStream data = new DataOutputStream(buffer);
+        /** UTF-8 text of the words of a page */
+        private final ByteArrayOutputStream textBytes = new ByteArrayOutputStream(16 * 1024);
+        private int[] textEnd = new int[256];
+        private boolean headerWritten = false;
+
+        Columnar(OutputStream out, ExtractionMetrics metrics) {
+            super(out, metrics);
+        }
+
+        private void encodeHeader() throws IOException {
+            data.writeInt(COLUMNAR_MAGIC);
+            data.writeInt(COLUMNAR_VERSION);
+            headerWritten = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // a file without pages still has the header
+            if (!headerWritten) {
+                buffer.reset();
+                encodeHeader();
+                writeBuffer();
+            }
+            super.close();
+        }
+
+        @Override
+        protected void encode(StructuredText text) throws IOException {
+            if (!headerWritten)
+                encodeHeader();
+            int n = text.getWordCount();
+            data.writeInt(text.getPage());
+            data.writeInt(n);
+            data.writeInt(text.getLineCount());
+            data.writeInt(text.getFontCount());
+            for (int f = 0; f < text.getFontCount(); f++) {
+                var name = text.getFontName(f);
+                data.writeUTF(name != null ? name : "");
+            }
+            for (int i = 0; i < n; i++)
+                data.writeFloat(text.getX(i));
+            for (int i = 0; i < n; i++)
+                data.writeFloat(text.getY(i));
+            for (int i = 0; i < n; i++)
+                data.writeFloat(text.getWidth(i));
+            for (int i = 0; i < n; i++)
+                data.writeFloat(text.getHeight(i));
+            for (int i = 0; i < n; i++)
+                data.writeFloat(text.getFontSize(i));
+            for (int i = 0; i < n; i++)
+                data.writeInt(text.getFont(i));
+            for (int i = 0; i < n; i++)
+                data.writeInt(text.getLine(i));
+
+            // offsets are in bytes of the UTF-8 text
+            if (textEnd.length < n)
+                textEnd = new int[Math.max(n, textEnd.length * 2)];
+            textBytes.reset();
+            var chars = text.getChars();
+            for (int i = 0; i < n; i++) {
+                writeUtf8(textBytes, chars, text.getTextStart(i), text.getTextEnd(i));
+                textEnd[i] = textBytes.size();
+            }
+            for (int i = 0; i < n; i++)
+                data.writeInt(textEnd[i]);
+            data.writeInt(textBytes.size());
+            textBytes.writeTo(data);
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.curtisnewbie.main;
 
 import java.util.logging.Logger;
+
+import com.curtisnewbie.controller.Controller;
+import com.curtisnewbie.pdfprocess.PdfBoxWarmup;
+
 import javafx.application.Application;
 import javafx.stage.Stage;
 import javafx.fxml.FXMLLoader;
@@ -23,15 +27,19 @@ public class App extends Application {
     static Stage primaryStage;
 
     private Parent root;
+    private Controller controller;
 
     @Override
     public void init() throws Exception {
+        // while the UI is being loaded
+        PdfBoxWarmup.start();
         // get resources
         ClassLoader classLoader = this.getClass().getClassLoader();
         var in = classLoader.getResourceAsStream("ui.fxml");
         // load fxml
         FXMLLoader fxmlLoader = new FXMLLoader();
         root = (Parent) fxmlLoader.load(in);
+        controller = fxmlLoader.getController();
     }
 
     @Override
@@ -44,6 +52,7 @@ public class App extends Application {
         primaryStage.setMinHeight(750);
         primaryStage.show();
         primaryStage.setOnCloseRequest(e -> {
+            controller.shutdown();
             System.exit(0);
         });
     }
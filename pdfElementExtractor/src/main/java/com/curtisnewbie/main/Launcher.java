@@ -1,7 +1,31 @@
 package com.curtisnewbie.main;
 
+import java.awt.GraphicsEnvironment;
+
+import com.curtisnewbie.cli.CliApp;
+
 public class Launcher {
     public static void main(String[] args) {
-        App.main(args);
+        // run without UI for the options of the headless mode, e.g., --headless or
+        // --serve, or when there is no display, JavaFX isn't loaded at all then
+        if (isHeadless(args) || GraphicsEnvironment.isHeadless())
+            CliApp.main(args);
+        else
+            App.main(args);
+    }
+
+    /**
+     * Whether the arguments are options of the headless mode, named parameters of
+     * JavaFX (e.g., {@code --name=value}) and other arguments are left to the UI
+     */
+    private static boolean isHeadless(String[] args) {
+        for (var arg : args) {
+            if (arg.equals("--headless") || arg.equals("--serve"))
+                return true;
+            // options of the headless mode take their values separately
+            if (arg.startsWith("-") && !arg.contains("="))
+                return true;
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
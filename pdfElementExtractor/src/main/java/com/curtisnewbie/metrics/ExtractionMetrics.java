@@ -0,0 +1,315 @@
+package com.curtisnewbie.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.curtisnewbie.main.LoggerProducer;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Metrics of extraction, i.e., a timer of each {@link Stage} with a histogram
+ * of its durations, and {@link Counter counters} of pages, images and bytes.
+ * The global metrics cover everything in this JVM and are exposed through JMX
+ * as {@value #OBJECT_NAME}, they are registered in the background a moment
+ * after they are first used, so that short runs don't wait for JMX to start.
+ * Metrics of a job are created by
+ * {@link #newJob(String)}, what's recorded to them is recorded to the global
+ * metrics as well, and they can be written as a JSON summary of the job.
+ * </p>
+ * <p>
+ * It's thread-safe, recording doesn't lock.
+ * </p>
+ */
+public class ExtractionMetrics implements ExtractionMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.curtisnewbie:type=ExtractionMetrics";
+
+    private static final Logger logger = LoggerProducer.getLogger(ExtractionMetrics.class.getName());
+    /** delay of the registration of the global metrics to JMX */
+    private static final long REGISTER_DELAY_MILLIS = 1000;
+
+    /**
+     * Stages of extraction
+     */
+    public enum Stage {
+        /** loading and parsing a PDF file */
+        PARSE,
+        /** fingerprinting pages */
+        FINGERPRINT,
+        /** stripping text of pages */
+        STRIP,
+        /** decoding images */
+        DECODE,
+        /** reading encoded streams of images that are written as they are */
+        READ,
+        /** rendering pages (or tiles of them) into images */
+        RENDER,
+        /** parsing fonts that are not cached, while stripping or rendering pages */
+        FONT,
+        /** encoding images as PNG, including writing them when they are encoded straight into files */
+        ENCODE,
+        /** writing files or entries of containers */
+        WRITE
+    }
+
+    public enum Counter {
+        PAGES,
+        FAILED_PAGES,
+        IMAGES,
+        /** images skipped as they are already extracted */
+        DUPLICATE_IMAGES,
+        /** images skipped as they failed to be read */
+        FAILED_IMAGES,
+        RENDERED_PAGES,
+        FAILED_RENDERS,
+        /** fonts lent by the font cache rather than parsed */
+        CACHED_FONTS,
+        /** fonts parsed as they are not in the font cache */
+        PARSED_FONTS,
+        /** fonts evicted from the font cache */
+        EVICTED_FONTS,
+        FILES_WRITTEN,
+        BYTES_WRITTEN
+    }
+
+    private final String name;
+    /** metrics everything is also recorded to, may be null */
+    private final ExtractionMetrics parent;
+    private final Map<Stage, Histogram> timers = new EnumMap<>(Stage.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private volatile long startNanos = System.nanoTime();
+
+    private ExtractionMetrics(String name, ExtractionMetrics parent) {
+        this.name = name;
+        this.parent = parent;
+        for (var s : Stage.values())
+            timers.put(s, new Histogram());
+        for (var c : Counter.values())
+            counters.put(c, new LongAdder());
+    }
+
+    /**
+     * Get the global metrics, which are registered to the platform MBean server
+     * shortly after it's first used
+     */
+    public static ExtractionMetrics global() {
+        return Global.INSTANCE;
+    }
+
+    /**
+     * Create metrics of a job, what's recorded is also recorded to the global
+     * metrics
+     * 
+     * @param name name of the job, e.g., path of the PDF file
+     */
+    public static ExtractionMetrics newJob(String name) {
+        return new ExtractionMetrics(name, global());
+    }
+
+    /**
+     * Record the time elapsed in a stage
+     * 
+     * @param stage      stage
+     * @param startNanos {@code System.nanoTime()} when the stage started
+     */
+    public void stop(Stage stage, long startNanos) {
+        record(stage, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record the duration of a stage
+     * 
+     * @param stage stage
+     * @param nanos duration in nanoseconds
+     */
+    public void record(Stage stage, long nanos) {
+        for (var m = this; m != null; m = m.parent)
+            m.timers.get(stage).record(nanos);
+    }
+
+    public void increment(Counter counter) {
+        add(counter, 1);
+    }
+
+    public void add(Counter counter, long n) {
+        for (var m = this; m != null; m = m.parent)
+            m.counters.get(counter).add(n);
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    public Histogram getTimer(Stage stage) {
+        return timers.get(stage);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (var c : Counter.values())
+            map.put(c.name(), getCount(c));
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (var s : Stage.values())
+            map.put(s.name(), timers.get(s).getCount());
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getStageTotalMillis() {
+        return stageMillis(h -> h.getTotalNanos());
+    }
+
+    @Override
+    public Map<String, Double> getStageMeanMillis() {
+        return stageMillis(h -> h.getMeanNanos());
+    }
+
+    @Override
+    public Map<String, Double> getStageP50Millis() {
+        return stageMillis(h -> h.getPercentileNanos(50));
+    }
+
+    @Override
+    public Map<String, Double> getStageP99Millis() {
+        return stageMillis(h -> h.getPercentileNanos(99));
+    }
+
+    @Override
+    public Map<String, Double> getStageMaxMillis() {
+        return stageMillis(h -> h.getMaxNanos());
+    }
+
+    private Map<String, Double> stageMillis(ToDoubleFunction<Histogram> nanos) {
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (var s : Stage.values())
+            map.put(s.name(), nanos.applyAsDouble(timers.get(s)) / 1_000_000.0);
+        return map;
+    }
+
+    /**
+     * Get everything as a JSON object, e.g.:
+     * 
+     * <pre>
+     * {"name":"a.pdf","elapsedMillis":1520,
+     *  "counters":{"PAGES":50,...},
+     *  "stages":{"STRIP":{"count":1,"totalMillis":820.5,"meanMillis":820.5,"p50Millis":820.5,"p99Millis":820.5,"maxMillis":820.5},...}}
+     * </pre>
+     */
+    @Override
+    public String toJson() {
+        var sb = new StringBuilder("{\"name\":");
+        appendString(sb, name);
+        sb.append(",\"elapsedMillis\":").append(getElapsedMillis());
+        sb.append(",\"counters\":{");
+        for (var c : Counter.values()) {
+            if (c.ordinal() > 0)
+                sb.append(',');
+            sb.append('"').append(c.name()).append("\":").append(getCount(c));
+        }
+        sb.append("},\"stages\":{");
+        for (var s : Stage.values()) {
+            var h = timers.get(s);
+            if (s.ordinal() > 0)
+                sb.append(',');
+            sb.append('"').append(s.name()).append("\":{\"count\":").append(h.getCount());
+            sb.append(",\"totalMillis\":").append(millis(h.getTotalNanos()));
+            sb.append(",\"meanMillis\":").append(millis(h.getMeanNanos()));
+            sb.append(",\"p50Millis\":").append(millis(h.getPercentileNanos(50)));
+            sb.append(",\"p99Millis\":").append(millis(h.getPercentileNanos(99)));
+            sb.append(",\"maxMillis\":").append(millis(h.getMaxNanos())).append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    @Override
+    public void reset() {
+        for (var h : timers.values())
+            h.reset();
+        for (var c : counters.values())
+            c.reset();
+        startNanos = System.nanoTime();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Append a JSON string
+     */
+    public static void appendString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Holder of the global metrics, such that JMX isn't touched until they are used.
+     * Starting the platform MBean server takes a few hundred milliseconds, so it's
+     * done on a daemon thread after a delay, which a short run never waits for.
+     */
+    private static class Global {
+
+        static final ExtractionMetrics INSTANCE = new ExtractionMetrics("global", null);
+
+        static {
+            var t = new Thread(Global::register, "metrics-jmx");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        private static void register() {
+            try {
+                Thread.sleep(REGISTER_DELAY_MILLIS);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (JMException | SecurityException e) {
+                logger.warning("Failed to register extraction metrics to JMX: " + e.getMessage());
+            }
+        }
+    }
+}
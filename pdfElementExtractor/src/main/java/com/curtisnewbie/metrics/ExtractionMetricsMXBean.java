@@ -0,0 +1,46 @@
+package com.curtisnewbie.metrics;
+
+import java.util.Map;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Management interface of {@link ExtractionMetrics}, durations are in
+ * milliseconds and keyed by the names of the stages
+ * </p>
+ */
+public interface ExtractionMetricsMXBean {
+
+    String getName();
+
+    long getElapsedMillis();
+
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getStageCounts();
+
+    Map<String, Double> getStageTotalMillis();
+
+    Map<String, Double> getStageMeanMillis();
+
+    Map<String, Double> getStageP50Millis();
+
+    Map<String, Double> getStageP99Millis();
+
+    Map<String, Double> getStageMaxMillis();
+
+    /**
+     * Get everything as JSON
+     */
+    String toJson();
+
+    /**
+     * Clear everything recorded
+     */
+    void reset();
+}
@@ -0,0 +1,345 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.io.PdfLoadOptions;
+import com.curtisnewbie.io.PdfNotFoundException;
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Cache of parsed PDF documents and the results derived from their pages,
+ * i.e., the index of the pages, the stripped text of each page and the
+ * converted images, such that
+ * extracting another page range of the same PDF file doesn't parse it again,
+ * and pages or images that are already extracted are not extracted again. A
+ * PDF file is identified by its path, last modified time and size, so it's
+ * parsed again once it's changed.
+ * </p>
+ * <p>
+ * The cache is bounded by the estimated memory used by the documents and the
+ * results, the least recently used documents are evicted first. A document is
+ * used through a {@link Lease}, and an evicted document is only closed when all
+ * of its leases are closed. It's thread-safe, the cached results are shared, so
+ * they must not be modified.
+ * </p>
+ */
+public class DocumentCache {
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final long maxBytes;
+    /** entries in access order, keyed by the absolute path */
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * @param maxBytes maximum estimated bytes of the cached documents and results
+     */
+    public DocumentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Acquire the cached document of the PDF file, or parse it if it's not cached
+     * or it's changed since it's cached. The returned lease must be closed when the
+     * document is no longer used.
+     * 
+     * @param path path to the PDF file
+     * @return lease of the document
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public Lease acquire(String path) throws IOException, PdfNotFoundException {
+        return acquire(path, PdfLoadOptions.defaults(), ExtractionMetrics.global());
+    }
+
+    /**
+     * Acquire the cached document of the PDF file like {@link #acquire(String)},
+     * it's parsed with the options if it's not cached, and the time spent parsing
+     * it is recorded to the metrics
+     * 
+     * @param path    path to the PDF file
+     * @param options options of loading the PDF file
+     * @param metrics metrics
+     * @return lease of the document
+     * @throws PdfNotFoundException
+     * @throws IOException
+     */
+    public Lease acquire(String path, PdfLoadOptions options, ExtractionMetrics metrics)
+            throws IOException, PdfNotFoundException {
+        var file = Path.of(path).toAbsolutePath().normalize();
+        long lastModified = 0;
+        long size = 0;
+        if (Files.exists(file)) {
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+            size = Files.size(file);
+        }
+        synchronized (this) {
+            var entry = entries.get(file);
+            if (entry != null && entry.lastModified == lastModified && entry.size == size)
+                return entry.lease();
+            if (entry != null)
+                remove(file);
+        }
+
+        // parse it without holding the lock, the file may be parsed twice if it's
+        // acquired concurrently, then only one of them is cached
+        var doc = IOManager.readPdfFile(path, options, metrics);
+        synchronized (this) {
+            var entry = entries.get(file);
+            if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+                close(doc);
+                return entry.lease();
+            }
+            if (entry != null)
+                remove(file);
+            entry = new Entry(doc, lastModified, size);
+            entries.put(file, entry);
+            // the parsed objects take roughly as much memory as the file
+            entry.bytes = size;
+            bytes += size;
+            trim(entry);
+            return entry.lease();
+        }
+    }
+
+    /**
+     * Evict all the documents, documents that are in use are closed when their
+     * leases are closed
+     */
+    public synchronized void clear() {
+        for (var file : new ArrayList<>(entries.keySet()))
+            remove(file);
+    }
+
+    /**
+     * Get the estimated bytes of the cached documents and results
+     * 
+     * @return estimated bytes
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * Cache a result of the entry unless it's already cached, the entry is evicted,
+     * or the result doesn't fit
+     */
+    private synchronized <K, V> void put(Entry entry, Map<K, V> results, K key, V value, long resultBytes) {
+        if (entry.evicted || results.containsKey(key) || entry.bytes + resultBytes > maxBytes)
+            return;
+        results.put(key, value);
+        entry.bytes += resultBytes;
+        bytes += resultBytes;
+        trim(entry);
+    }
+
+    /**
+     * Evict the least recently used entries other than the given one until the
+     * estimated bytes are within the bound
+     */
+    private void trim(Entry keep) {
+        var it = new ArrayList<>(entries.entrySet()).iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            var e = it.next();
+            if (e.getValue() != keep)
+                remove(e.getKey());
+        }
+    }
+
+    private void remove(Path file) {
+        var entry = entries.remove(file);
+        if (entry == null)
+            return;
+        logger.info("Evicting cached document of " + file);
+        bytes -= entry.bytes;
+        entry.evicted = true;
+        if (entry.leases == 0)
+            close(entry.doc);
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.leases--;
+        if (entry.evicted && entry.leases == 0)
+            close(entry.doc);
+    }
+
+    private void close(PDDocument doc) {
+        try {
+            FontCache.release(doc);
+            doc.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+        }
+    }
+
+    /**
+     * Estimate the bytes of a converted image
+     */
+    static long estimateBytes(Object image) {
+        if (image instanceof ExtractedImage) {
+            var img = (ExtractedImage) image;
+            return img.isEncoded() ? img.getEncoded().length : estimateBytes(img.getImage());
+        }
+        if (image instanceof BufferedImage) {
+            var raster = ((BufferedImage) image).getRaster().getDataBuffer();
+            int bytesPerElement = Math.max(1, DataBuffer.getDataTypeSize(raster.getDataType()) / 8);
+            return (long) raster.getSize() * raster.getNumBanks() * bytesPerElement;
+        }
+        return 0;
+    }
+
+    /**
+     * Cached document and the results derived from it
+     */
+    private class Entry {
+
+        final PDDocument doc;
+        final long lastModified;
+        final long size;
+        /** stripped text of each page */
+        final Map<Integer, String> pageText = Collections.synchronizedMap(new HashMap<>());
+        /** converted images by the kind of conversion, then by the image stream */
+        final Map<String, Map<COSStream, Object>> images = Collections.synchronizedMap(new HashMap<>());
+        /** hash of the content of each image stream */
+        final Map<COSStream, String> imageHashes = Collections.synchronizedMap(new IdentityHashMap<>());
+        /** guards the document, which is shared by the leases */
+        final ReentrantLock lock = new ReentrantLock();
+        /** index of the pages, built by the first lease that needs it */
+        volatile PageIndex pageIndex;
+        /** guarded by the cache */
+        long bytes;
+        int leases;
+        boolean evicted;
+
+        Entry(PDDocument doc, long lastModified, long size) {
+            this.doc = doc;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        Lease lease() {
+            leases++;
+            return new Lease(this);
+        }
+
+        Map<COSStream, Object> images(String kind) {
+            return images.computeIfAbsent(kind, k -> Collections.synchronizedMap(new IdentityHashMap<>()));
+        }
+    }
+
+    /**
+     * Lease of a cached document, it must be closed when the document is no longer
+     * used. It's thread-safe.
+     */
+    public class Lease implements AutoCloseable {
+
+        private final Entry entry;
+        private boolean closed = false;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        public PDDocument getDocument() {
+            return entry.doc;
+        }
+
+        /**
+         * Get the lock of the document, which must be held when the document is used
+         * as {@code PDDocument} isn't thread-safe
+         */
+        public ReentrantLock getLock() {
+            return entry.lock;
+        }
+
+        /**
+         * Get the index of the pages of the document
+         * 
+         * @return index or {@code null} if it's not built yet
+         */
+        PageIndex getPageIndex() {
+            return entry.pageIndex;
+        }
+
+        /**
+         * Keep the index of the pages, it's built while holding the lock of the
+         * document
+         */
+        void setPageIndex(PageIndex pageIndex) {
+            entry.pageIndex = pageIndex;
+        }
+
+        /**
+         * Get the cached text of the page
+         * 
+         * @return text or {@code null} if it's not cached
+         */
+        String getText(int page) {
+            return entry.pageText.get(page);
+        }
+
+        void putText(int page, String text) {
+            put(entry, entry.pageText, page, text, 2L * text.length());
+        }
+
+        /**
+         * Get the cached image converted from the image stream
+         * 
+         * @param kind   kind of conversion
+         * @param stream image stream
+         * @return converted image or {@code null} if it's not cached
+         */
+        Object getImage(String kind, COSStream stream) {
+            return entry.images(kind).get(stream);
+        }
+
+        void putImage(String kind, COSStream stream, Object image) {
+            put(entry, entry.images(kind), stream, image, estimateBytes(image));
+        }
+
+        String getImageHash(COSStream stream) {
+            return entry.imageHashes.get(stream);
+        }
+
+        void putImageHash(COSStream stream, String hash) {
+            put(entry, entry.imageHashes, stream, hash, 2L * hash.length());
+        }
+
+        /**
+         * Release the document, it's closed if it's already evicted and no longer
+         * used
+         */
+        @Override
+        public synchronized void close() {
+            if (closed)
+                return;
+            closed = true;
+            release(entry);
+        }
+    }
+}
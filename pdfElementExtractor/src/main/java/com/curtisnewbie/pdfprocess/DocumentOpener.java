@@ -0,0 +1,30 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Opens a new, independent {@code PDDocument} of the same PDF file. Since
+ * {@code PDDocument} is not thread-safe, each worker thread uses its own
+ * document opened by this.
+ * </p>
+ */
+@FunctionalInterface
+public interface DocumentOpener {
+
+    /**
+     * Open a new {@code PDDocument}, the caller is responsible for closing it
+     * 
+     * @return a new PDDocument
+     * @throws IOException
+     */
+    PDDocument open() throws IOException;
+}
@@ -0,0 +1,45 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Documents of the same PDF file that are shared by the workers of jobs, such
+ * that a worker uses a document that is already parsed rather than opening one
+ * of its own. A document is used by one worker at a time.
+ * </p>
+ */
+@FunctionalInterface
+interface DocumentPool {
+
+    /**
+     * Acquire a document, it waits if all the documents are in use
+     *
+     * @return document, which is released by closing it
+     * @throws CancellationException if it's interrupted while waiting
+     */
+    PooledDocument acquire();
+
+    /**
+     * Document acquired from the pool
+     */
+    interface PooledDocument extends AutoCloseable {
+
+        /**
+         * Get the index of the pages of the document
+         */
+        PageIndex pages();
+
+        /**
+         * Release the document back to the pool
+         */
+        @Override
+        void close();
+    }
+}
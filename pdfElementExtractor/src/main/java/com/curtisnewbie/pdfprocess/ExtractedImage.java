@@ -0,0 +1,85 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Image extracted from a PDF file, it's either a decoded image, or the
+ * original encoded stream (e.g., JPEG) that can be written to a file as it is.
+ * </p>
+ */
+public class ExtractedImage {
+
+    /** format of decoded images when they are written */
+    public static final String DECODED_FORMAT = "png";
+
+    private final BufferedImage image;
+    private final byte[] encoded;
+    private final String format;
+
+    /**
+     * Create an ExtractedImage of a decoded image
+     * 
+     * @param image decoded image
+     */
+    ExtractedImage(BufferedImage image) {
+        this.image = image;
+        this.encoded = null;
+        this.format = DECODED_FORMAT;
+    }
+
+    /**
+     * Create an ExtractedImage of an encoded stream
+     * 
+     * @param encoded bytes of the encoded stream
+     * @param format  format of the encoded stream, which is also the file
+     *                extension, e.g., "jpg"
+     */
+    ExtractedImage(byte[] encoded, String format) {
+        this.image = null;
+        this.encoded = encoded;
+        this.format = format;
+    }
+
+    /**
+     * Whether this image is the original encoded stream
+     * 
+     * @return true if it's encoded, else it's decoded
+     */
+    public boolean isEncoded() {
+        return encoded != null;
+    }
+
+    /**
+     * Get the decoded image
+     * 
+     * @return decoded image, or {@code null} if it's encoded
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Get bytes of the encoded stream
+     * 
+     * @return bytes of the encoded stream, or {@code null} if it's decoded
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Get the format of this image, which is also the file extension
+     * 
+     * @return format, e.g., "jpg", "jp2" or "png"
+     */
+    public String getFormat() {
+        return format;
+    }
+}
@@ -0,0 +1,200 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Control of an extraction job, which can be cancelled, limited by a deadline
+ * and a budget of pages, and reports the progress of each page. It's checked by
+ * {@link PdfProcessor} between pages and images, so a job stops at the next
+ * page or image rather than immediately, and the elements handed over before it
+ * stops are complete.
+ * </p>
+ * <p>
+ * The budget is the number of distinct pages processed, so extracting text and
+ * images of the same pages with the same control counts each page once. The
+ * deadline is measured from when the control is created or from
+ * {@link #setTimeout(long, TimeUnit)}. It's thread-safe.
+ * </p>
+ */
+public class ExtractionControl {
+
+    /**
+     * Why a job is stopped
+     */
+    public enum StopReason {
+        /** cancelled by {@link ExtractionControl#cancel()} */
+        CANCELLED,
+        /** deadline has passed */
+        DEADLINE,
+        /** budget of pages is used up */
+        PAGE_BUDGET
+    }
+
+    /**
+     * Listener of the progress of a job
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Called when a page is done, i.e., all its elements are handed over, it's
+         * called by the thread extracting the page and it should return quickly
+         * 
+         * @param page      page number (starting at 1)
+         * @param pagesDone number of pages done by the job so far, see
+         *                  {@link ExtractionControl#getPagesDone()}
+         */
+        void pageDone(int page, int pagesDone);
+    }
+
+    private volatile StopReason stopReason;
+    /** deadline in {@link System#nanoTime()}, only if hasDeadline */
+    private volatile long deadlineNanos;
+    private volatile boolean hasDeadline = false;
+    /** maximum number of distinct pages, negative if it's unlimited */
+    private int pageBudget = -1;
+    /** pages processed, guarded by this */
+    private final BitSet pages = new BitSet();
+    private int pagesDone = 0;
+    private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Cancel the job, it stops at the next page or image
+     */
+    public void cancel() {
+        stop(StopReason.CANCELLED);
+    }
+
+    /**
+     * Set the time the job can take from now, it stops at the next page or image
+     * once the time is up
+     * 
+     * @param timeout time, not limited if it's less than or equal to 0
+     * @param unit    unit of the time
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            hasDeadline = false;
+            return;
+        }
+        deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        hasDeadline = true;
+    }
+
+    /**
+     * Set the number of distinct pages the job can process, the job stops before
+     * the first page over the budget
+     * 
+     * @param pageBudget number of pages, not limited if it's negative
+     */
+    public synchronized void setPageBudget(int pageBudget) {
+        this.pageBudget = pageBudget;
+    }
+
+    public void addProgressListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Whether the job is stopped, e.g., it's cancelled or the deadline has passed
+     */
+    public boolean isStopped() {
+        if (stopReason == null && hasDeadline && System.nanoTime() - deadlineNanos >= 0)
+            stop(StopReason.DEADLINE);
+        return stopReason != null;
+    }
+
+    /**
+     * Get why the job is stopped
+     * 
+     * @return reason, or {@code null} if it's not stopped
+     */
+    public StopReason getStopReason() {
+        isStopped();
+        return stopReason;
+    }
+
+    /**
+     * Get the number of pages done, a page is counted for each time it's done,
+     * e.g., once for text and once for images
+     */
+    public synchronized int getPagesDone() {
+        return pagesDone;
+    }
+
+    /**
+     * Check whether the job should go on
+     * 
+     * @throws CancellationException if the job is stopped
+     */
+    void check() {
+        if (isStopped())
+            throw new CancellationException(message(stopReason));
+    }
+
+    /**
+     * Check whether the job should go on to process the page, the page is counted
+     * against the budget. It's called by extractors, e.g., {@link PdfProcessor},
+     * before a page is handed over.
+     * 
+     * @param page page number (starting at 1)
+     * @throws CancellationException if the job is stopped, or the page is over the
+     *                               budget
+     */
+    public void checkPage(int page) {
+        check();
+        synchronized (this) {
+            if (pages.get(page))
+                return;
+            if (pageBudget >= 0 && pages.cardinality() >= pageBudget) {
+                stop(StopReason.PAGE_BUDGET);
+                throw new CancellationException(message(StopReason.PAGE_BUDGET));
+            }
+            pages.set(page);
+        }
+    }
+
+    /**
+     * Report that the page is done, it's called by extractors after the page is
+     * handed over
+     * 
+     * @param page page number (starting at 1)
+     */
+    public void pageDone(int page) {
+        int done;
+        synchronized (this) {
+            done = ++pagesDone;
+        }
+        for (var l : listeners)
+            l.pageDone(page, done);
+    }
+
+    private void stop(StopReason reason) {
+        synchronized (this) {
+            if (stopReason == null)
+                stopReason = reason;
+        }
+    }
+
+    private static String message(StopReason reason) {
+        switch (reason) {
+            case DEADLINE:
+                return "Extraction stopped, time is up";
+            case PAGE_BUDGET:
+                return "Extraction stopped, page budget is used up";
+            default:
+                return "Extraction cancelled";
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontFactory;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Cache of parsed fonts shared by documents, such that the same embedded font
+ * (its font program, CMaps and glyph widths) isn't parsed again for every
+ * document of a batch or every time a PDF file is opened. Fonts are looked up
+ * by a few attributes that are cheap to read, i.e., the name, the subtype and
+ * the length and filters of the embedded font program. Only when a font has
+ * the same attributes as fonts already parsed, they are told apart by the hash
+ * of the dictionary and the objects it references, including the encoded
+ * content of the streams, so the same font embedded in different PDF files is
+ * parsed once, and a font that is seen once is never hashed.
+ * </p>
+ * <p>
+ * A font is parsed from a copy of its objects held in memory, so it doesn't
+ * refer to the document it's from and outlives it. As {@code PDFont} isn't
+ * thread-safe, a parsed font is lent to one document at a time, through the
+ * {@link DocumentFonts} attached to the document as its resource cache, and
+ * it's returned to the cache when the document is released. Type 3 fonts are
+ * not cached, as their glyphs are content streams that refer to the resources
+ * of the document.
+ * </p>
+ * <p>
+ * The cache is bounded by the estimated memory used by the fonts that are not
+ * lent, the least recently used fonts are evicted first. It's thread-safe.
+ * </p>
+ */
+public class FontCache {
+
+    /** default maximum estimated bytes of the shared cache */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final Logger logger = LoggerProducer.getLogger(FontCache.class.getName());
+    /** entries of the font descriptor of the embedded font program */
+    private static final List<COSName> FONT_FILES = List.of(COSName.FONT_FILE, COSName.FONT_FILE2,
+            COSName.FONT_FILE3);
+
+    private final long maxBytes;
+    /** fonts that are not lent in access order, keyed by their attributes */
+    private final LinkedHashMap<String, Deque<CachedFont>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maxBytes maximum estimated bytes of the fonts that are not lent
+     */
+    public FontCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cache shared by everything in this JVM
+     */
+    public static FontCache shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Attach the cache to the document as its resource cache, it must be done
+     * before the pages of the document are used. If it's already attached, the
+     * attached one is returned, and later fonts are recorded to the given metrics.
+     * If another cache is attached, the fonts borrowed from it are returned before
+     * it's replaced. The returned {@link DocumentFonts} must be closed before the
+     * document is closed, such that the fonts it borrowed are returned.
+     * 
+     * @param doc     document
+     * @param metrics metrics the hits and misses are recorded to
+     * @return fonts of the document
+     */
+    public DocumentFonts attach(PDDocument doc, ExtractionMetrics metrics) {
+        var current = doc.getResourceCache();
+        if (current instanceof DocumentFonts) {
+            var fonts = (DocumentFonts) current;
+            if (fonts.cache == this) {
+                fonts.setMetrics(metrics);
+                return fonts;
+            }
+            fonts.close();
+        }
+        var fonts = new DocumentFonts(this, metrics);
+        doc.setResourceCache(fonts);
+        return fonts;
+    }
+
+    /**
+     * Return the fonts borrowed by the document, if a cache is attached to it
+     * 
+     * @param doc document
+     */
+    public static void release(PDDocument doc) {
+        var current = doc.getResourceCache();
+        if (current instanceof DocumentFonts)
+            ((DocumentFonts) current).close();
+    }
+
+    /**
+     * Get the number of fonts that are lent from the cache rather than parsed
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of fonts that are parsed as they are not in the cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of fonts evicted to keep the cache within its bound
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the estimated bytes of the fonts that are not lent
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * Evict all the fonts that are not lent
+     */
+    public synchronized void clear() {
+        idle.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d fonts cached, %d parsed, %d evicted, %.1f MB", hits, misses, evictions,
+                bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Borrow all the parsed fonts with the attributes, the ones that are not used
+     * are given back
+     * 
+     * @return fonts, it's empty if there is none
+     */
+    private synchronized Collection<CachedFont> borrowAll(String key) {
+        var fonts = idle.remove(key);
+        if (fonts == null)
+            return List.of();
+        for (var font : fonts)
+            bytes -= font.bytes;
+        return fonts;
+    }
+
+    private synchronized void hit() {
+        hits++;
+    }
+
+    private synchronized void miss() {
+        misses++;
+    }
+
+    /**
+     * Return fonts that are no longer used
+     * 
+     * @return number of fonts evicted
+     */
+    private synchronized int giveBack(Collection<CachedFont> fonts) {
+        int evicted = 0;
+        for (var font : fonts) {
+            if (font.bytes > maxBytes) {
+                evicted++;
+                continue;
+            }
+            idle.computeIfAbsent(font.key, k -> new ArrayDeque<>()).push(font);
+            bytes += font.bytes;
+        }
+        // least recently used first
+        var it = idle.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            var deque = it.next();
+            for (var font : deque)
+                bytes -= font.bytes;
+            evicted += deque.size();
+            it.remove();
+        }
+        evictions += evicted;
+        return evicted;
+    }
+
+    /**
+     * Get the attributes of the font that are cheap to read, fonts with different
+     * attributes are different fonts
+     */
+    private static String attributes(COSDictionary dict) {
+        var sb = new StringBuilder();
+        sb.append(dict.getNameAsString(COSName.SUBTYPE)).append('/').append(dict.getNameAsString(COSName.BASE_FONT));
+        var descriptor = dict.getDictionaryObject(COSName.FONT_DESC);
+        if (descriptor == null) {
+            // the font program of a composite font is in its descendant font
+            var descendants = dict.getDictionaryObject(COSName.DESCENDANT_FONTS);
+            if (descendants instanceof COSArray && ((COSArray) descendants).size() > 0) {
+                var descendant = ((COSArray) descendants).getObject(0);
+                if (descendant instanceof COSDictionary)
+                    descriptor = ((COSDictionary) descendant).getDictionaryObject(COSName.FONT_DESC);
+            }
+        }
+        if (descriptor instanceof COSDictionary) {
+            for (var name : FONT_FILES) {
+                var file = ((COSDictionary) descriptor).getDictionaryObject(name);
+                if (file instanceof COSStream) {
+                    var stream = (COSStream) file;
+                    sb.append('/').append(name.getName()).append(':').append(stream.getLength()).append(':')
+                            .append(stream.getFilters());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parsed font, its attributes and its estimated bytes
+     */
+    private static class CachedFont {
+
+        final String key;
+        final PDFont font;
+        final long bytes;
+        /** hash of the copy the font is parsed from, computed when it's needed */
+        private String hash;
+
+        CachedFont(String key, PDFont font, long bytes, String hash) {
+            this.key = key;
+            this.font = font;
+            this.bytes = bytes;
+            this.hash = hash;
+        }
+
+        /**
+         * Get the hash of the font, it's only called by the document that borrows
+         * it
+         */
+        String hash(PageFingerprinter fingerprinter) throws IOException {
+            if (hash == null)
+                hash = fingerprinter.hash(font.getCOSObject());
+            return hash;
+        }
+    }
+
+    /**
+     * Resource cache of a document, fonts are borrowed from the cache or parsed
+     * and kept until it's closed, other resources are cached as they are by
+     * {@code DefaultResourceCache}. It's used by one thread at a time like the
+     * document.
+     */
+    public static class DocumentFonts extends DefaultResourceCache implements AutoCloseable {
+
+        private final FontCache cache;
+        private volatile ExtractionMetrics metrics;
+        private final PageFingerprinter fingerprinter = new PageFingerprinter();
+        /** fonts of the indirect objects, including those not from the cache */
+        private final Map<COSObject, PDFont> fonts = new IdentityHashMap<>();
+        /** fonts borrowed or parsed by their attributes */
+        private final Map<String, List<CachedFont>> borrowed = new HashMap<>();
+
+        private DocumentFonts(FontCache cache, ExtractionMetrics metrics) {
+            this.cache = cache;
+            this.metrics = metrics;
+        }
+
+        /**
+         * Set the metrics the hits and misses are recorded to from now on
+         */
+        void setMetrics(ExtractionMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public synchronized PDFont getFont(COSObject indirect) throws IOException {
+            var font = fonts.get(indirect);
+            if (font != null)
+                return font;
+            font = load(indirect);
+            if (font != null)
+                fonts.put(indirect, font);
+            // parsed by the resources if it's null, and then put
+            return font;
+        }
+
+        @Override
+        public synchronized void put(COSObject indirect, PDFont font) throws IOException {
+            fonts.putIfAbsent(indirect, font);
+        }
+
+        /**
+         * Borrow the font from the cache, or parse it from a copy of its objects
+         * 
+         * @return font, or {@code null} if it can't be cached
+         */
+        private PDFont load(COSObject indirect) {
+            var base = indirect.getObject();
+            if (!(base instanceof COSDictionary))
+                return null;
+            var dict = (COSDictionary) base;
+            if (COSName.TYPE3.equals(dict.getCOSName(COSName.SUBTYPE)))
+                return null;
+            try {
+                var key = attributes(dict);
+                // hashed only if there are fonts with the same attributes
+                String hash = null;
+                // the same font may be embedded more than once in a document
+                var same = borrowed.computeIfAbsent(key, k -> new ArrayList<>());
+                for (var font : same) {
+                    if (hash == null)
+                        hash = fingerprinter.hash(dict);
+                    if (hash.equals(font.hash(fingerprinter))) {
+                        cache.hit();
+                        metrics.increment(Counter.CACHED_FONTS);
+                        return font.font;
+                    }
+                }
+                CachedFont font = null;
+                var candidates = cache.borrowAll(key);
+                if (!candidates.isEmpty()) {
+                    if (hash == null)
+                        hash = fingerprinter.hash(dict);
+                    List<CachedFont> others = new ArrayList<>();
+                    for (var c : candidates) {
+                        if (font == null && hash.equals(c.hash(fingerprinter)))
+                            font = c;
+                        else
+                            others.add(c);
+                    }
+                    metrics.add(Counter.EVICTED_FONTS, cache.giveBack(others));
+                }
+                if (font != null) {
+                    cache.hit();
+                    metrics.increment(Counter.CACHED_FONTS);
+                } else {
+                    cache.miss();
+                    long start = System.nanoTime();
+                    var copy = new Copier();
+                    var copied = (COSDictionary) copy.copy(dict);
+                    font = new CachedFont(key, PDFontFactory.createFont(copied, null), copy.estimateBytes(), hash);
+                    metrics.stop(Stage.FONT, start);
+                    metrics.increment(Counter.PARSED_FONTS);
+                }
+                same.add(font);
+                return font.font;
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.FINE, "Failed to cache font " + dict.getNameAsString(COSName.BASE_FONT), e);
+                return null;
+            }
+        }
+
+        /**
+         * Return the fonts borrowed or parsed to the cache, the fonts already handed
+         * out must not be used afterwards
+         */
+        @Override
+        public synchronized void close() {
+            if (borrowed.isEmpty())
+                return;
+            List<CachedFont> fonts = new ArrayList<>();
+            for (var same : borrowed.values())
+                fonts.addAll(same);
+            int evicted = cache.giveBack(fonts);
+            metrics.add(Counter.EVICTED_FONTS, evicted);
+            borrowed.clear();
+            this.fonts.clear();
+        }
+    }
+
+    /**
+     * Copier of a font's objects into memory, such that the copy doesn't refer to
+     * the document
+     */
+    private static class Copier {
+
+        private final Map<COSBase, COSBase> copies = new IdentityHashMap<>();
+        private long bytes = 0;
+
+        COSBase copy(COSBase base) throws IOException {
+            if (base instanceof COSObject)
+                base = ((COSObject) base).getObject();
+            if (base == null)
+                return null;
+            var copied = copies.get(base);
+            if (copied != null)
+                return copied;
+            if (base instanceof COSStream) {
+                var stream = (COSStream) base;
+                var copy = new COSStream();
+                copies.put(base, copy);
+                copyItems(stream, copy);
+                // encoded as it is, it's decoded when the font is parsed
+                try (var in = stream.createRawInputStream(); var out = copy.createRawOutputStream()) {
+                    bytes += in.transferTo(out);
+                }
+                return copy;
+            }
+            if (base instanceof COSDictionary) {
+                var copy = new COSDictionary();
+                copies.put(base, copy);
+                copyItems((COSDictionary) base, copy);
+                return copy;
+            }
+            if (base instanceof COSArray) {
+                var copy = new COSArray();
+                copies.put(base, copy);
+                for (var item : (COSArray) base) {
+                    var value = copy(item);
+                    copy.add(value != null ? value : COSNull.NULL);
+                }
+                return copy;
+            }
+            // names, strings, numbers and so on are not modified
+            return base;
+        }
+
+        private void copyItems(COSDictionary from, COSDictionary to) throws IOException {
+            for (var e : from.entrySet()) {
+                var value = copy(e.getValue());
+                if (value != null)
+                    to.setItem(e.getKey(), value);
+            }
+        }
+
+        /**
+         * Estimate the bytes of the parsed font, which takes a few times of its
+         * encoded streams
+         */
+        long estimateBytes() {
+            return 16 * 1024 + 4 * bytes;
+        }
+    }
+
+    /**
+     * Holder of the shared cache, such that it isn't created until it's used
+     */
+    private static class Shared {
+
+        static final FontCache INSTANCE = new FontCache(DEFAULT_MAX_BYTES);
+    }
+}
@@ -0,0 +1,69 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ------------------------------------
+ *
+ * Author: Yongjie Zhuang
+ *
+ * ------------------------------------
+ *
+ * <p>
+ * Pages that reference each of the extracted images. Images are indexed in the
+ * order they are handed over, i.e., the first image handed over is image 0.
+ * When images are deduplicated, an image shared by many pages is handed over
+ * once, and all the pages referencing it are recorded here.
+ * </p>
+ */
+public class ImageReferences {
+
+    private final List<List<Integer>> pages = new ArrayList<>();
+
+    /**
+     * Add an image referenced by the given page
+     *
+     * @param page page number (starting at 1)
+     * @return index of the image
+     */
+    int add(int page) {
+        List<Integer> list = new ArrayList<>(1);
+        list.add(page);
+        pages.add(list);
+        return pages.size() - 1;
+    }
+
+    /**
+     * Record that the image is referenced by the given page
+     *
+     * @param image index of the image
+     * @param page  page number (starting at 1)
+     */
+    void addReference(int image, int page) {
+        var list = pages.get(image);
+        // an image may be referenced more than once in the same page
+        if (list.get(list.size() - 1) != page)
+            list.add(page);
+    }
+
+    /**
+     * Get number of the images
+     *
+     * @return number of the images
+     */
+    public int getImageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Get the pages that reference the image
+     *
+     * @param image index of the image
+     * @return page numbers in ascending order
+     */
+    public List<Integer> getPages(int image) {
+        return Collections.unmodifiableList(pages.get(image));
+    }
+}
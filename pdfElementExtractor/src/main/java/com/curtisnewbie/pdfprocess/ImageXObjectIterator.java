@@ -0,0 +1,133 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * ------------------------------------
+ *
+ * Author: Yongjie Zhuang
+ *
+ * ------------------------------------
+ *
+ * <p>
+ * Iterator of the image XObjects in the specified pages, including the ones
+ * nested in form XObjects. Pages and resources are only visited when the next
+ * image is requested, and the images are not decoded, such that nothing but
+ * the current position is held in memory.
+ * </p>
+ */
+class ImageXObjectIterator implements Iterator<PDImageXObject> {
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final PageIndex index;
+    private final int to;
+    /** next page to visit (starting at 1) */
+    private int nextPage;
+    /** page of the image returned by {@link #next()} */
+    private int currentPage;
+    /** page of the prefetched image */
+    private int prefetchedPage;
+    private PDImageXObject prefetched;
+    /** names of XObjects yet to be visited in the resources of the page and nested form XObjects */
+    private final Deque<Iterator<COSName>> names = new ArrayDeque<>();
+    private final Deque<PDResources> resources = new ArrayDeque<>();
+
+    /**
+     * @param index  index of the pages of the document
+     * @param from   from which page (starting at 1)
+     * @param to     to which page (inclusive)
+     */
+    ImageXObjectIterator(PageIndex index, int from, int to) {
+        this.index = index;
+        this.nextPage = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (prefetched == null)
+            prefetched = advance();
+        return prefetched != null;
+    }
+
+    @Override
+    public PDImageXObject next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        var img = prefetched;
+        prefetched = null;
+        currentPage = prefetchedPage;
+        return img;
+    }
+
+    /**
+     * Get the page of the image last returned by {@link #next()}
+     *
+     * @return page number (starting at 1)
+     */
+    int getCurrentPage() {
+        return currentPage;
+    }
+
+    private PDImageXObject advance() {
+        while (true) {
+            if (names.isEmpty()) {
+                if (nextPage > to)
+                    return null;
+                prefetchedPage = nextPage++;
+                push(index.getPage(prefetchedPage).getResources());
+                continue;
+            }
+            var it = names.peek();
+            if (!it.hasNext()) {
+                names.pop();
+                resources.pop();
+                continue;
+            }
+            try {
+                PDXObject obj = resources.peek().getXObject(it.next());
+                if (obj instanceof PDFormXObject) {
+                    // nested xObject, visit its resources unless it's already being visited
+                    var formRes = ((PDFormXObject) obj).getResources();
+                    if (!isVisiting(formRes))
+                        push(formRes);
+                } else if (obj instanceof PDImageXObject) {
+                    return (PDImageXObject) obj;
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error when extracting image in page, skipping...");
+            }
+        }
+    }
+
+    private void push(PDResources res) {
+        if (res == null)
+            return;
+        resources.push(res);
+        names.push(res.getXObjectNames().iterator());
+    }
+
+    private boolean isVisiting(PDResources res) {
+        if (res == null)
+            return false;
+        for (var r : resources) {
+            if (r.getCOSObject() == res.getCOSObject())
+                return true;
+        }
+        return false;
+    }
+}
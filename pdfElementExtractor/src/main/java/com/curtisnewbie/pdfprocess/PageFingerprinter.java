@@ -0,0 +1,165 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Fingerprinter of pages, the fingerprint is a hash of what the elements of a
+ * page are extracted from, i.e., the content streams, the resources (fonts,
+ * images, forms and so on) and the geometry of the page. Streams are hashed
+ * without being decoded, and streams shared by pages (e.g., fonts) are only
+ * hashed once. It's not thread-safe.
+ * </p>
+ */
+class PageFingerprinter {
+
+    /** digests of the streams that are already hashed */
+    private final Map<COSStream, byte[]> streamDigests = new IdentityHashMap<>();
+
+    /**
+     * Get the fingerprint of the page
+     * 
+     * @param page page
+     * @return fingerprint in hex
+     * @throws IOException
+     */
+    String fingerprint(PDPage page) throws IOException {
+        var digest = newDigest();
+        update(digest, page.getMediaBox().getCOSArray(), new IdentityHashMap<>());
+        update(digest, page.getCropBox().getCOSArray(), new IdentityHashMap<>());
+        update(digest, "rotate:" + page.getRotation());
+        update(digest, page.getCOSObject().getItem(COSName.CONTENTS), new IdentityHashMap<>());
+        var resources = page.getResources();
+        update(digest, resources != null ? resources.getCOSObject() : null, new IdentityHashMap<>());
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    /**
+     * Get the hash of the object and the objects it references, e.g., to identify
+     * the same font in different documents
+     * 
+     * @param base object
+     * @return hash in hex
+     * @throws IOException
+     */
+    String hash(COSBase base) throws IOException {
+        var digest = newDigest();
+        update(digest, base, new IdentityHashMap<>());
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    /**
+     * Hash the object and the objects it references, an object that is being hashed
+     * is only referred to by the order it's visited, so cycles are hashed too
+     */
+    private void update(MessageDigest digest, COSBase base, Map<COSBase, Integer> visiting) throws IOException {
+        if (base instanceof COSObject)
+            base = ((COSObject) base).getObject();
+        if (base == null) {
+            update(digest, "null");
+        } else if (visiting.containsKey(base)) {
+            update(digest, "ref:" + visiting.get(base));
+        } else if (base instanceof COSStream) {
+            digest.update(streamDigest((COSStream) base));
+        } else if (base instanceof COSDictionary) {
+            visiting.put(base, visiting.size());
+            updateDictionary(digest, (COSDictionary) base, visiting);
+            visiting.remove(base);
+        } else if (base instanceof COSArray) {
+            visiting.put(base, visiting.size());
+            update(digest, "[");
+            for (var item : (COSArray) base)
+                update(digest, item, visiting);
+            update(digest, "]");
+            visiting.remove(base);
+        } else if (base instanceof COSName) {
+            update(digest, "/" + ((COSName) base).getName());
+        } else if (base instanceof COSString) {
+            update(digest, "(");
+            digest.update(((COSString) base).getBytes());
+            update(digest, ")");
+        } else if (base instanceof COSNumber) {
+            update(digest, Float.toString(((COSNumber) base).floatValue()));
+        } else if (base instanceof COSBoolean) {
+            update(digest, Boolean.toString(((COSBoolean) base).getValue()));
+        } else {
+            update(digest, base.getClass().getSimpleName());
+        }
+    }
+
+    private void updateDictionary(MessageDigest digest, COSDictionary dict, Map<COSBase, Integer> visiting)
+            throws IOException {
+        // sorted so that the order in the file doesn't matter
+        var keys = new ArrayList<>(dict.keySet());
+        keys.sort(null);
+        update(digest, "<<");
+        for (var key : keys) {
+            // parents are not what the page is extracted from
+            if (COSName.PARENT.equals(key))
+                continue;
+            update(digest, "/" + key.getName());
+            update(digest, dict.getItem(key), visiting);
+        }
+        update(digest, ">>");
+    }
+
+    /**
+     * Get the digest of the stream's dictionary and its encoded content
+     */
+    private byte[] streamDigest(COSStream stream) throws IOException {
+        var cached = streamDigests.get(stream);
+        if (cached != null)
+            return cached;
+        var digest = newDigest();
+        // mark it as being hashed in case it's referenced by its own dictionary
+        streamDigests.put(stream, new byte[0]);
+        Map<COSBase, Integer> visiting = new IdentityHashMap<>();
+        visiting.put(stream, 0);
+        updateDictionary(digest, stream, visiting);
+        try (var in = new DigestInputStream(stream.createRawInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        var bytes = digest.digest();
+        streamDigests.put(stream, bytes);
+        return bytes;
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        digest.update(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
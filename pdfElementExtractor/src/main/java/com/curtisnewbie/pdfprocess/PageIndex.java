@@ -0,0 +1,127 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Index of the pages of a document, which is built by a single walk of the
+ * page tree, such that a page is then found in constant time rather than by
+ * walking the page tree from its root, e.g., for each page of a small range
+ * near the end of a large document. The pages are kept as they are created by
+ * the document, so they share the document's resource cache, and the
+ * resources resolved for a page (e.g., fonts) are reused by later ranges of the
+ * same pages. It's built for a document and reused as long as the document is
+ * used, it's not thread-safe, as the document isn't.
+ * </p>
+ */
+class PageIndex {
+
+    private final PDDocument doc;
+    private final PDPage[] pages;
+    /** page number of each page, built when it's first needed */
+    private Map<COSDictionary, Integer> pageNumbers;
+
+    PageIndex(PDDocument doc) {
+        this.doc = doc;
+        // the count in the page tree of a broken document may be wrong, the walk is trusted
+        List<PDPage> list = new ArrayList<>(doc.getNumberOfPages());
+        for (var page : doc.getPages())
+            list.add(page);
+        this.pages = list.toArray(new PDPage[0]);
+    }
+
+    PDDocument getDocument() {
+        return doc;
+    }
+
+    int getPageCount() {
+        return pages.length;
+    }
+
+    /**
+     * Get the page
+     * 
+     * @param page page number (starting at 1)
+     */
+    PDPage getPage(int page) {
+        return pages[page - 1];
+    }
+
+    /**
+     * Get the number of the page with the dictionary
+     * 
+     * @return page number (starting at 1), or {@code null} if it's not a page of
+     *         the document
+     */
+    Integer getPageNumber(COSDictionary page) {
+        if (pageNumbers == null) {
+            pageNumbers = new HashMap<>(pages.length * 2);
+            for (int i = 0; i < pages.length; i++)
+                pageNumbers.putIfAbsent(pages[i].getCOSObject(), i + 1);
+        }
+        return pageNumbers.get(page);
+    }
+
+    /**
+     * Get a page tree of the pages in the range, which is only meant to be
+     * iterated, e.g., by a {@code PDFTextStripper}
+     * 
+     * @param from from which page (starting at 1)
+     * @param to   to which page (inclusive)
+     */
+    PDPageTree subTree(int from, int to) {
+        return new PageList(Arrays.asList(pages).subList(from - 1, to));
+    }
+
+    /**
+     * Page tree of a list of pages, the page tree of the document is left as it is
+     */
+    private static class PageList extends PDPageTree {
+
+        private final List<PDPage> list;
+
+        PageList(List<PDPage> list) {
+            this.list = list;
+        }
+
+        @Override
+        public Iterator<PDPage> iterator() {
+            return list.iterator();
+        }
+
+        @Override
+        public PDPage get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int indexOf(PDPage page) {
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i).getCOSObject() == page.getCOSObject())
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int getCount() {
+            return list.size();
+        }
+    }
+}
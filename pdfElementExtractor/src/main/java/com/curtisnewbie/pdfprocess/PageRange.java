@@ -5,7 +5,7 @@ public class PageRange {
     private int from;
     private int to;
 
-    PageRange(int from, int to) {
+    public PageRange(int from, int to) {
         this.from = from;
         this.to = to;
     }
@@ -17,4 +17,8 @@ public class PageRange {
     public int getToPage() {
         return this.to;
     }
+
+    public int getPageCount() {
+        return this.to - this.from + 1;
+    }
 }
\ No newline at end of file
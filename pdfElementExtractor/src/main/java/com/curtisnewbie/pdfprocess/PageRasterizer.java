@@ -0,0 +1,166 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
+
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Renders pages of a document into images with a {@code PDFRenderer} of its
+ * own. Pages that would be larger than the maximum number of pixels are either
+ * rendered in tiles, each of which is rendered into an image of its own such
+ * that the whole page is never held in memory, or rendered at a lower
+ * resolution, see {@link RenderOptions}. Each tile processes the content of the
+ * whole page, only the pixels in the tile are drawn. It's not thread-safe, as
+ * neither the document nor the renderer is.
+ * </p>
+ */
+class PageRasterizer {
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final PageIndex index;
+    private final PDFRenderer renderer;
+    private final RenderOptions options;
+    private final ExtractionMetrics metrics;
+
+    PageRasterizer(PageIndex index, RenderOptions options, ExtractionMetrics metrics) {
+        this.index = index;
+        this.renderer = new PDFRenderer(index.getDocument());
+        this.options = options;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Whether the page is rendered in tiles
+     */
+    boolean isTiled(int page) {
+        return options.getTileSize() > 0 && pixels(page, options.getDpi() / 72f) > options.getMaxPixels();
+    }
+
+    /**
+     * Render the page, and hand over the image or its tiles row by row to the
+     * consumer
+     * 
+     * @param page     page number (starting at 1)
+     * @param consumer consumer of the images
+     * @return whether the page is rendered, if not the tiles after the one that
+     *         failed are not handed over
+     */
+    boolean render(int page, Consumer<RenderedPage> consumer) {
+        float scale = options.getDpi() / 72f;
+        long pixels = pixels(page, scale);
+        if (pixels <= options.getMaxPixels()) {
+            var img = renderImage(page, scale);
+            if (img == null)
+                return false;
+            consumer.accept(new RenderedPage(page, img, options.getDpi(), 0, 0, 1, 1));
+            metrics.increment(Counter.RENDERED_PAGES);
+            return true;
+        }
+        if (options.getTileSize() <= 0) {
+            // the largest resolution that fits
+            scale *= (float) Math.sqrt((double) options.getMaxPixels() / pixels);
+            var img = renderImage(page, scale);
+            if (img == null)
+                return false;
+            consumer.accept(new RenderedPage(page, img, scale * 72f, 0, 0, 1, 1));
+            metrics.increment(Counter.RENDERED_PAGES);
+            return true;
+        }
+
+        int tile = options.getTileSize();
+        int width = width(page, scale);
+        int height = height(page, scale);
+        int rows = (height + tile - 1) / tile;
+        int columns = (width + tile - 1) / tile;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                int x = c * tile;
+                int y = r * tile;
+                var img = renderTile(page, scale, x, y, Math.min(tile, width - x), Math.min(tile, height - y));
+                if (img == null)
+                    return false;
+                consumer.accept(new RenderedPage(page, img, options.getDpi(), r, c, rows, columns));
+            }
+        }
+        metrics.increment(Counter.RENDERED_PAGES);
+        return true;
+    }
+
+    private BufferedImage renderImage(int page, float scale) {
+        long start = System.nanoTime();
+        try {
+            return renderer.renderImage(page - 1, scale, options.getImageType());
+        } catch (IOException | RuntimeException e) {
+            fail(page, e);
+            return null;
+        } finally {
+            metrics.stop(Stage.RENDER, start);
+        }
+    }
+
+    private BufferedImage renderTile(int page, float scale, int x, int y, int width, int height) {
+        long start = System.nanoTime();
+        var img = new BufferedImage(width, height, options.getBufferedImageType());
+        var g = img.createGraphics();
+        try {
+            // the renderer clears the page with the background
+            g.setBackground(options.getImageType() == ImageType.ARGB ? new Color(0, 0, 0, 0) : Color.WHITE);
+            g.clipRect(0, 0, width, height);
+            g.translate(-x, -y);
+            renderer.renderPageToGraphics(page - 1, g, scale);
+            return img;
+        } catch (IOException | RuntimeException e) {
+            fail(page, e);
+            return null;
+        } finally {
+            g.dispose();
+            metrics.stop(Stage.RENDER, start);
+        }
+    }
+
+    private void fail(int page, Exception e) {
+        logger.log(Level.SEVERE, String.format("Failed to render page %d: %s", page, e.getMessage()));
+        metrics.increment(Counter.FAILED_RENDERS);
+    }
+
+    private long pixels(int page, float scale) {
+        return (long) width(page, scale) * height(page, scale);
+    }
+
+    /** width as displayed, the same as PDFRenderer */
+    private int width(int page, float scale) {
+        var p = index.getPage(page);
+        var box = p.getCropBox();
+        float w = isSideways(p.getRotation()) ? box.getHeight() : box.getWidth();
+        return (int) Math.max(Math.floor(w * scale), 1);
+    }
+
+    private int height(int page, float scale) {
+        var p = index.getPage(page);
+        var box = p.getCropBox();
+        float h = isSideways(p.getRotation()) ? box.getWidth() : box.getHeight();
+        return (int) Math.max(Math.floor(h * scale), 1);
+    }
+
+    private static boolean isSideways(int rotation) {
+        return rotation == 90 || rotation == 270;
+    }
+}
@@ -0,0 +1,105 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.function.ObjIntConsumer;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * {@code PDFTextStripper} that hands over the text of each page as soon as the
+ * page is stripped, such that a range of pages is extracted in a single pass
+ * rather than one pass per page. Only the pages in the range are visited, so
+ * the content streams of the other pages are never read, and the pages are
+ * found through the {@link PageIndex} of the document rather than the page
+ * tree. It can be reused, but it's not thread-safe.
+ * </p>
+ */
+class PageTextStripper extends PDFTextStripper {
+
+    private final StringWriter buffer = new StringWriter();
+    private ObjIntConsumer<String> consumer;
+    /** next page that should be handed over */
+    private int nextPage;
+    /** pages in the range being stripped */
+    private PDPageTree pages;
+    /** number of pages before the range */
+    private int offset;
+
+    PageTextStripper() throws IOException {
+        super();
+    }
+
+    /**
+     * Strip the text in the specified pages, the text of each page is handed over
+     * to the consumer in page order. Pages without content are handed over as
+     * empty strings.
+     * 
+     * @param index    index of the pages of the document
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the text and page number
+     * @throws IOException
+     */
+    void strip(PageIndex index, int from, int to, ObjIntConsumer<String> consumer) throws IOException {
+        this.consumer = consumer;
+        this.nextPage = from;
+        this.offset = from - 1;
+        this.pages = index.subTree(from, to);
+        this.buffer.getBuffer().setLength(0);
+        setStartPage(1);
+        setEndPage(to - from + 1);
+        try {
+            writeText(index.getDocument(), buffer);
+        } finally {
+            this.pages = null;
+        }
+        skipTo(to + 1);
+    }
+
+    /**
+     * Process the pages in the range instead of all pages in the document
+     */
+    @Override
+    protected void processPages(PDPageTree pages) throws IOException {
+        super.processPages(this.pages);
+    }
+
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        skipTo(getCurrentPageNumber());
+        super.startPage(page);
+    }
+
+    @Override
+    protected void endPage(PDPage page) throws IOException {
+        super.endPage(page);
+        var sb = buffer.getBuffer();
+        int pageNo = getCurrentPageNumber();
+        consumer.accept(sb.toString(), pageNo);
+        sb.setLength(0);
+        nextPage = pageNo + 1;
+    }
+
+    /**
+     * Get the number of the page being stripped in the document (starting at 1)
+     */
+    int getCurrentPageNumber() {
+        return getCurrentPageNo() + offset;
+    }
+
+    /** Hand over empty strings for the pages skipped (without content) */
+    private void skipTo(int page) {
+        while (nextPage < page)
+            consumer.accept("", nextPage++);
+    }
+}
@@ -0,0 +1,214 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Renders a range of pages concurrently. Each worker opens its own
+ * {@code PDDocument} using the {@link DocumentOpener}, renders with a
+ * {@link PageRasterizer} of its own, and keeps claiming pages one at a time
+ * until there is none left. Rendered pages are handed over in page order, and
+ * a worker waits when it's too far ahead of the next page, so only a few images
+ * are held in memory. Pages rendered in tiles are not buffered, the worker
+ * waits for the turn of the page and then hands over the tiles as they are
+ * rendered.
+ * </p>
+ */
+class ParallelPageRenderer {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final DocumentOpener opener;
+    private final int parallelism;
+    private final RenderOptions options;
+    /** cache of parsed fonts, may be null */
+    private final FontCache fontCache;
+    private final ExtractionMetrics metrics;
+
+    ParallelPageRenderer(DocumentOpener opener, int parallelism, RenderOptions options, FontCache fontCache,
+            ExtractionMetrics metrics) {
+        this.opener = opener;
+        this.parallelism = parallelism;
+        this.options = options;
+        this.fontCache = fontCache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Render the specified pages, the images of each page are handed over to the
+     * consumer in page order. The consumer is never called concurrently. Pages
+     * that failed to be rendered are skipped.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the images
+     * @param control  control checked before each page is rendered
+     * @throws CancellationException if the job is stopped, the consumer throws it,
+     *                               or the caller is interrupted
+     */
+    void render(int from, int to, Consumer<RenderedPage> consumer, ExtractionControl control) {
+        int pages = to - from + 1;
+        int workers = Math.min(parallelism, pages);
+        var nextPage = new AtomicInteger(from);
+        var reorder = new ReorderBuffer(from, pages, workers * 2, consumer);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            tasks.add(() -> {
+                try (var doc = opener.open()) {
+                    if (fontCache != null)
+                        fontCache.attach(doc, metrics);
+                    try {
+                        var rasterizer = new PageRasterizer(new PageIndex(doc), options, metrics);
+                        int page;
+                        while (!Thread.currentThread().isInterrupted() && (page = nextPage.getAndIncrement()) <= to) {
+                            control.check();
+                            if (rasterizer.isTiled(page)) {
+                                reorder.awaitTurn(page);
+                                rasterizer.render(page, consumer);
+                                reorder.put(page, Collections.emptyList());
+                            } else {
+                                reorder.awaitWindow(page);
+                                List<RenderedPage> images = new ArrayList<>(1);
+                                rasterizer.render(page, images::add);
+                                reorder.put(page, images);
+                            }
+                        }
+                    } finally {
+                        // the fonts it borrowed are returned before the document is closed
+                        FontCache.release(doc);
+                    }
+                } catch (RuntimeException | InterruptedException e) {
+                    // the others would wait for the pages of this worker forever
+                    reorder.abort(e);
+                    throw e;
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+            var t = new Thread(r, "page-renderer-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (Future<Void> f : executor.invokeAll(tasks)) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException)
+                        throw (CancellationException) e.getCause();
+                    logger.log(Level.SEVERE, "Page rendering worker failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Page rendering interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        // pages that are not claimed by any worker, e.g., all workers failed to open the document
+        reorder.skipRemaining();
+    }
+
+    /**
+     * Buffer that hands over the images of pages in page order
+     */
+    private static class ReorderBuffer {
+
+        private final int from;
+        private final List<List<RenderedPage>> pending;
+        private final int window;
+        private final Consumer<RenderedPage> consumer;
+        /** index of the next page to be handed over */
+        private int next = 0;
+        private boolean aborted = false;
+        /** message of why it's aborted, so waiting workers stop for the same reason */
+        private String abortMessage;
+
+        ReorderBuffer(int from, int pages, int window, Consumer<RenderedPage> consumer) {
+            this.from = from;
+            this.pending = new ArrayList<>(Collections.nCopies(pages, null));
+            this.window = window;
+            this.consumer = consumer;
+        }
+
+        /** Wait until the page is within the window of pages that may be buffered */
+        synchronized void awaitWindow(int page) throws InterruptedException {
+            while (!aborted && page - from - next >= window)
+                wait();
+            checkAborted();
+        }
+
+        /** Wait until all the pages before it are handed over */
+        synchronized void awaitTurn(int page) throws InterruptedException {
+            while (!aborted && page - from != next)
+                wait();
+            checkAborted();
+        }
+
+        synchronized void put(int page, List<RenderedPage> images) {
+            if (aborted)
+                return;
+            pending.set(page - from, images);
+            drain();
+        }
+
+        /** Skip the pages that are not yet rendered */
+        synchronized void skipRemaining() {
+            if (aborted)
+                return;
+            for (int i = next; i < pending.size(); i++) {
+                if (pending.get(i) == null)
+                    pending.set(i, Collections.emptyList());
+            }
+            drain();
+        }
+
+        synchronized void abort(Exception cause) {
+            if (!aborted) {
+                aborted = true;
+                abortMessage = cause instanceof CancellationException ? cause.getMessage() : "Page rendering aborted";
+            }
+            notifyAll();
+        }
+
+        private void checkAborted() {
+            if (aborted)
+                throw new CancellationException(abortMessage);
+        }
+
+        private void drain() {
+            List<RenderedPage> images;
+            while (next < pending.size() && (images = pending.get(next)) != null) {
+                pending.set(next, null);
+                next++;
+                images.forEach(consumer);
+            }
+            notifyAll();
+        }
+    }
+}
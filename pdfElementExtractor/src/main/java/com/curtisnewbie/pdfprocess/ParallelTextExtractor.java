@@ -0,0 +1,224 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Extracts text of a range of pages concurrently. The range is split into
+ * chunks of a few consecutive pages, each worker acquires a document from the
+ * {@link DocumentPool} and keeps claiming chunks until there is none left, or
+ * the {@link ExtractionControl} is stopped. Each chunk is stripped in a single
+ * pass by a {@link PageTextStripper} that is reused by the worker.
+ * </p>
+ */
+class ParallelTextExtractor {
+
+    /** number of pages of a chunk, which doesn't depend on the size of the document */
+    static final int CHUNK_PAGES = 4;
+    /** number of chunks per worker that may be buffered ahead of the next page */
+    static final int WINDOW_CHUNKS = 2;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final DocumentPool documents;
+    private final int parallelism;
+
+    /**
+     * @param documents   documents used by the workers, each worker holds one of
+     *                    them until it's done
+     * @param parallelism number of workers
+     */
+    ParallelTextExtractor(DocumentPool documents, int parallelism) {
+        this.documents = documents;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Extract text of each page in the specified pages, the text of each page is
+     * handed over to the consumer in page order as soon as it and all the pages
+     * before it are stripped. The consumer is never called concurrently. Workers
+     * wait when they are more than {@link #WINDOW_CHUNKS} chunks each ahead of the
+     * next page to be handed over, so at most a few pages of text per worker are
+     * held in memory, however long the document is.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the text and page number, the text is
+     *                 {@code null} if it failed to be extracted
+     * @param control  control checked before each chunk is claimed
+     * @throws CancellationException if the job is stopped by the control, the
+     *                               consumer throws it, or the caller is
+     *                               interrupted
+     */
+    void extract(int from, int to, ObjIntConsumer<String> consumer, ExtractionControl control) {
+        int pages = to - from + 1;
+        int chunks = (pages + CHUNK_PAGES - 1) / CHUNK_PAGES;
+        int workers = Math.min(parallelism, chunks);
+        var nextChunk = new AtomicInteger();
+        var reorder = new ReorderBuffer(from, pages, workers * WINDOW_CHUNKS * CHUNK_PAGES, consumer);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            tasks.add(() -> {
+                try (var doc = documents.acquire()) {
+                    var stripper = new PageTextStripper();
+                    int chunk;
+                    while (!Thread.currentThread().isInterrupted()
+                            && (chunk = nextChunk.getAndIncrement()) < chunks) {
+                        int chunkFrom = from + chunk * CHUNK_PAGES;
+                        int chunkTo = Math.min(to, chunkFrom + CHUNK_PAGES - 1);
+                        reorder.awaitWindow(chunkFrom);
+                        try {
+                            // a stopped job doesn't strip another chunk
+                            control.check();
+                            stripper.strip(doc.pages(), chunkFrom, chunkTo, reorder::put);
+                        } catch (CancellationException e) {
+                            // the other workers stop waiting for this chunk
+                            reorder.cancel(e);
+                            throw e;
+                        } catch (Exception e) {
+                            logger.log(Level.SEVERE,
+                                    String.format("Failed to extract text from pages %d-%d", chunkFrom, chunkTo), e);
+                        }
+                        reorder.fail(chunkFrom, chunkTo);
+                    }
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+            var t = new Thread(r, "text-extractor-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (var task : tasks)
+                futures.add(executor.submit(task));
+            for (var f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException)
+                        throw (CancellationException) e.getCause();
+                    logger.log(Level.SEVERE, "Text extraction worker failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            var cancelled = new CancellationException("Text extraction interrupted");
+            reorder.cancel(cancelled);
+            throw cancelled;
+        } finally {
+            // when it's cancelled, the workers still running are stopped rather than waited for
+            for (var f : futures)
+                f.cancel(true);
+            executor.shutdownNow();
+        }
+        // pages that are not claimed by any worker, e.g., all workers failed to acquire a document
+        reorder.fail(from, to);
+    }
+
+    /**
+     * Buffer that hands over the text of pages in page order. Once it's cancelled,
+     * e.g., the consumer throws {@code CancellationException}, nothing is handed
+     * over anymore, and the workers waiting for their turn or handing over pages
+     * get the {@code CancellationException}.
+     */
+    private static class ReorderBuffer {
+
+        /** marker of pages that failed to be extracted */
+        private static final String FAILED = new String();
+
+        private final int from;
+        private final String[] pending;
+        private final int window;
+        private final ObjIntConsumer<String> consumer;
+        /** index of the next page to be handed over */
+        private int next = 0;
+        private CancellationException cancelled;
+
+        ReorderBuffer(int from, int pages, int window, ObjIntConsumer<String> consumer) {
+            this.from = from;
+            this.pending = new String[pages];
+            this.window = window;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Wait until the page is within the window of pages that may be buffered
+         * 
+         * @throws CancellationException if it's cancelled
+         */
+        synchronized void awaitWindow(int page) throws InterruptedException {
+            while (cancelled == null && page - from - next >= window)
+                wait();
+            if (cancelled != null)
+                throw cancelled;
+        }
+
+        /**
+         * Stop handing over pages, and wake up the workers waiting for their turn
+         */
+        synchronized void cancel(CancellationException e) {
+            if (cancelled == null)
+                cancelled = e;
+            notifyAll();
+        }
+
+        synchronized void put(String text, int page) {
+            if (cancelled != null)
+                throw cancelled;
+            if (page - from < next)
+                return;
+            pending[page - from] = text;
+            drain();
+        }
+
+        /** Mark the pages in the range that are not yet extracted as failed */
+        synchronized void fail(int fromPage, int toPage) {
+            if (cancelled != null)
+                return;
+            for (int i = fromPage - from; i <= toPage - from; i++) {
+                if (i >= next && pending[i] == null)
+                    pending[i] = FAILED;
+            }
+            drain();
+        }
+
+        private void drain() {
+            while (next < pending.length && pending[next] != null) {
+                var text = pending[next];
+                pending[next] = null;
+                try {
+                    consumer.accept(text == FAILED ? null : text, from + next);
+                } catch (CancellationException e) {
+                    cancel(e);
+                    throw e;
+                }
+                next++;
+            }
+            notifyAll();
+        }
+    }
+}
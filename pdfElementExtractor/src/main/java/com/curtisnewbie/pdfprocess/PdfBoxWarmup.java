@@ -0,0 +1,65 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import com.curtisnewbie.main.LoggerProducer;
+
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Warm-up of PDFBox in the background at startup, such that the first page
+ * doesn't wait for it. PDFBox builds its font mapper on the first font that
+ * isn't embedded, it loads the fallback font and the list of system fonts,
+ * which are scanned and cached in {@code .pdfbox.cache} the first time. It
+ * takes longer than extracting a small PDF file, so it's started on a daemon
+ * thread while the arguments and the PDF files are being read, and a page that
+ * needs it earlier simply waits for it to be built. With a single processor,
+ * it would only compete with the extraction for it, so it's left to be built
+ * when it's used.
+ * </p>
+ */
+public final class PdfBoxWarmup {
+
+    private static final Logger logger = LoggerProducer.getLogger(PdfBoxWarmup.class.getName());
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+
+    private PdfBoxWarmup() {
+    }
+
+    /**
+     * Start the warm-up in the background, it's only started once in a JVM
+     */
+    public static void start() {
+        if (Runtime.getRuntime().availableProcessors() < 2 || !started.compareAndSet(false, true))
+            return;
+        var t = new Thread(PdfBoxWarmup::warmUp, "pdfbox-warmup");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    private static void warmUp() {
+        long start = System.nanoTime();
+        try {
+            // builds the font mapper and the list of system fonts
+            FontMappers.instance().getFontBoxFont("Helvetica", null);
+            // registers the image readers and writers
+            ImageIO.getReaderFormatNames();
+            logger.fine(String.format("PDFBox warmed up in %d ms", (System.nanoTime() - start) / 1_000_000));
+        } catch (RuntimeException | LinkageError e) {
+            // it's built again when it's used
+            logger.log(Level.FINE, "Failed to warm up PDFBox", e);
+        }
+    }
+}
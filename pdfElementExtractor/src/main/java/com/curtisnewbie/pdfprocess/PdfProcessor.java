@@ -2,22 +2,58 @@ package com.curtisnewbie.pdfprocess;
 
 import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.awt.image.*;
 
 import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
 
+import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDResources;
-import org.apache.pdfbox.pdmodel.graphics.PDXObject;
-import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
 import org.apache.pdfbox.text.PDFTextStripper;
 
 /**
@@ -34,15 +70,310 @@ import org.apache.pdfbox.text.PDFTextStripper;
  * {@link PdfProcessor#validateAndReturnPageRange(int, int)}. If the page range
  * is invalid, there may be unexpected behaviours.
  * </p>
+ * <p>
+ * It's thread-safe, jobs (e.g., extracting text and images) can run
+ * concurrently on the same processor. As {@code PDDocument} isn't thread-safe,
+ * only one job uses the document at a time, a concurrent job uses another
+ * document opened by the {@link DocumentOpener} if there is one, else it waits
+ * for the document.
+ * </p>
  * 
  */
 public class PdfProcessor {
 
+    /** filters of the encoded streams of images that can be written to files as they are */
+    private static final List<String> ENCODED_IMAGE_FILTERS = List.of(COSName.DCT_DECODE.getName(),
+            COSName.JPX_DECODE.getName());
+    /** time waiting for a document before checking the document of the other leases again */
+    private static final long CLONE_WAIT_MILLIS = 50;
+    private static final AtomicInteger imageConsumerCount = new AtomicInteger();
+    /** threads of consumers of images shared by the processors, idle ones are stopped */
+    private static final ExecutorService IMAGE_CONSUMERS = Executors.newCachedThreadPool(r -> {
+        var t = new Thread(r, "image-consumer-" + imageConsumerCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
     private PDDocument pdfDoc;
     private Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    /** opener of new documents for workers, may be null */
+    private DocumentOpener opener;
+    /** lease of the cached document, may be null */
+    private DocumentCache.Lease lease;
+    /** number of workers extracting text concurrently */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    /** maximum number of decoded images waiting to be consumed */
+    private int maxImagesInFlight = 4;
+    /** executor of the consumers of images, when they are consumed by another thread */
+    private Executor imageExecutor = IMAGE_CONSUMERS;
+    /** whether images referenced more than once are only handed over once */
+    private boolean deduplicateImages = false;
+    /** whether images are also deduplicated by the hash of their content */
+    private boolean hashImageContent = false;
+    private ExtractionMetrics metrics = ExtractionMetrics.global();
+    /** cache of parsed fonts shared with other documents, may be null */
+    private FontCache fontCache = FontCache.shared();
+    /** guards the document, which isn't thread-safe */
+    private final ReentrantLock documentLock;
+    /** documents opened for jobs that run while the document is in use */
+    private final List<PDDocument> clones = new ArrayList<>();
+    /** clones that are not in use, guarded by clones */
+    private final Deque<PDDocument> idleClones = new ArrayDeque<>();
+    /** number of clones being opened, guarded by clones */
+    private int openingClones = 0;
+    /** maximum number of clones opened, each of them holds a parsed copy of the PDF file */
+    private volatile int maxClones = 2;
+    /** number of pages, -1 if it's not known yet */
+    private volatile int pageCount = -1;
+    /** index of the pages of each document, built when it's first used, guarded by itself */
+    private final Map<PDDocument, PageIndex> pageIndexes = new IdentityHashMap<>();
+    /** fonts of each document, attached when it's first used, guarded by itself */
+    private final Map<PDDocument, FontCache.DocumentFonts> documentFonts = new IdentityHashMap<>();
 
     public PdfProcessor(PDDocument pdfDoc) throws NullPointerException {
         this.pdfDoc = pdfDoc;
+        this.documentLock = new ReentrantLock();
+    }
+
+    /**
+     * Create a PdfProcessor that extracts text concurrently, where each worker
+     * opens its own {@code PDDocument} of the same PDF file using the given opener
+     * 
+     * @param pdfDoc PDDocument
+     * @param opener opener of new {@code PDDocument} of the same PDF file
+     */
+    public PdfProcessor(PDDocument pdfDoc, DocumentOpener opener) throws NullPointerException {
+        this.pdfDoc = pdfDoc;
+        this.opener = opener;
+        this.documentLock = new ReentrantLock();
+    }
+
+    /**
+     * Create a PdfProcessor of a cached document, the text of pages and the images
+     * that are extracted are cached along with the document, and those that are
+     * already cached are not extracted again. Closing the PdfProcessor closes the
+     * lease instead of the document.
+     * 
+     * @param lease  lease of the cached document
+     * @param opener opener of new {@code PDDocument} of the same PDF file for
+     *               workers extracting text concurrently, may be {@code null}
+     */
+    public PdfProcessor(DocumentCache.Lease lease, DocumentOpener opener) {
+        this.pdfDoc = lease.getDocument();
+        this.lease = lease;
+        this.opener = opener;
+        // the document is shared by the processors of the same lease
+        this.documentLock = lease.getLock();
+    }
+
+    /**
+     * Acquire a document for an operation. The document of this processor is used
+     * if it's not in use, else a clone is used if there is an opener, such that
+     * concurrent jobs (e.g., text and images) run in parallel rather than waiting
+     * for each other. Once {@link #setMaxClones(int)} clones are opened, it waits
+     * for the document or a clone, whichever is released first. Without an
+     * opener, it waits for the document.
+     * 
+     * @throws CancellationException if it's interrupted while waiting
+     */
+    private Acquired acquire() {
+        if (documentLock.tryLock())
+            return new Acquired(pdfDoc, true);
+        if (opener != null) {
+            try {
+                var acquired = acquireClone();
+                if (acquired != null)
+                    return acquired;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the document");
+            }
+        }
+        try {
+            documentLock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the document");
+        }
+        return new Acquired(pdfDoc, true);
+    }
+
+    /**
+     * Acquire an idle clone or open a new one, or wait for the document or a clone
+     * if there are too many clones
+     * 
+     * @return acquired document, or {@code null} if a clone failed to be opened
+     */
+    private Acquired acquireClone() throws InterruptedException {
+        synchronized (clones) {
+            while (true) {
+                var clone = idleClones.poll();
+                if (clone != null)
+                    return new Acquired(clone, false);
+                if (clones.size() + openingClones < maxClones) {
+                    openingClones++;
+                    break;
+                }
+                if (documentLock.tryLock())
+                    return new Acquired(pdfDoc, true);
+                // the document may also be released by another lease of the cached document
+                clones.wait(CLONE_WAIT_MILLIS);
+            }
+        }
+        PDDocument clone = null;
+        try {
+            clone = opener.open();
+            logger.info("Opened another document for concurrent extraction");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to open another document, waiting for the document instead");
+        } finally {
+            synchronized (clones) {
+                openingClones--;
+                if (clone != null)
+                    clones.add(clone);
+                clones.notifyAll();
+            }
+        }
+        return clone != null ? new Acquired(clone, false) : null;
+    }
+
+    /**
+     * Document acquired for an operation, it must be released by closing it
+     */
+    private class Acquired implements DocumentPool.PooledDocument {
+
+        final PDDocument doc;
+        /**
+         * whether it's the document of this processor rather than a clone, results
+         * are only cached with the document, as images are cached by their objects
+         */
+        final boolean primary;
+
+        /** fonts of the document, the fonts it borrowed are returned when it's released */
+        final FontCache.DocumentFonts fonts;
+
+        private PageIndex index;
+
+        Acquired(PDDocument doc, boolean primary) {
+            this.doc = doc;
+            this.primary = primary;
+            this.fonts = documentFonts(doc);
+        }
+
+        /**
+         * Get the index of the pages of the document, which is built once for the
+         * document and reused by later jobs
+         */
+        @Override
+        public PageIndex pages() {
+            if (index == null)
+                index = pageIndex(this);
+            return index;
+        }
+
+        @Override
+        public void close() {
+            // while the document is still held
+            if (fonts != null)
+                fonts.close();
+            if (primary)
+                documentLock.unlock();
+            synchronized (clones) {
+                if (!primary)
+                    idleClones.push(doc);
+                clones.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Get the fonts of the document, the font cache is attached to the document
+     * when it's first used, and later jobs record to their metrics
+     * 
+     * @return fonts or {@code null} if there is no font cache
+     */
+    private FontCache.DocumentFonts documentFonts(PDDocument doc) {
+        if (fontCache == null)
+            return null;
+        synchronized (documentFonts) {
+            var fonts = documentFonts.get(doc);
+            if (fonts == null) {
+                fonts = fontCache.attach(doc, metrics);
+                documentFonts.put(doc, fonts);
+            } else {
+                fonts.setMetrics(metrics);
+            }
+            return fonts;
+        }
+    }
+
+    /**
+     * Get the index of the pages of the acquired document, the index of the cached
+     * document is shared with the other leases of it
+     */
+    private PageIndex pageIndex(Acquired acquired) {
+        if (acquired.primary && lease != null) {
+            var index = lease.getPageIndex();
+            if (index == null) {
+                index = new PageIndex(acquired.doc);
+                lease.setPageIndex(index);
+            }
+            return index;
+        }
+        synchronized (pageIndexes) {
+            var index = pageIndexes.get(acquired.doc);
+            if (index != null)
+                return index;
+        }
+        // the document is held by this job, so it's built once
+        var index = new PageIndex(acquired.doc);
+        synchronized (pageIndexes) {
+            pageIndexes.put(acquired.doc, index);
+        }
+        return index;
+    }
+
+    /**
+     * Set the maximum number of documents opened by the {@link DocumentOpener} for
+     * jobs that run while the document is in use, a job waits for a document once
+     * there are as many, it's 2 by default
+     * 
+     * @param maxClones maximum number of documents (at least 0)
+     */
+    public void setMaxClones(int maxClones) {
+        this.maxClones = Math.max(0, maxClones);
+    }
+
+    /**
+     * Set the number of workers extracting text concurrently, it only takes effect
+     * when a {@link DocumentOpener} is provided. Workers use the document and its
+     * clones, so there are at most {@link #setMaxClones(int)} + 1 of them.
+     * 
+     * @param parallelism number of workers (at least 1)
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Set the metrics that the time spent in each stage and the number of pages
+     * and images are recorded to, it's {@link ExtractionMetrics#global()} by
+     * default
+     * 
+     * @param metrics metrics, e.g., of a job
+     */
+    public void setMetrics(ExtractionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Set the cache of parsed fonts, which is shared with other documents, it's
+     * {@link FontCache#shared()} by default. It should be set before the first job.
+     * 
+     * @param fontCache cache, or {@code null} to parse the fonts of each document
+     */
+    public void setFontCache(FontCache fontCache) {
+        this.fontCache = fontCache;
     }
 
     /**
@@ -54,17 +385,24 @@ public class PdfProcessor {
      */
     public String extractText(int from, int to) {
         logger.info(String.format("Extracting text from pages %d-%d", from, to));
+        long start = System.nanoTime();
         try {
             PDFTextStripper textStripper = new PDFTextStripper();
             textStripper.setStartPage(from);
             textStripper.setEndPage(to);
 
             Writer writer = new CharArrayWriter();
-            textStripper.writeText(pdfDoc, writer);
+            try (var acquired = acquire()) {
+                textStripper.writeText(acquired.doc, writer);
+            }
+            metrics.add(Counter.PAGES, to - from + 1);
             return writer.toString();
         } catch (IOException e) {
             logger.log(Level.SEVERE, e.getMessage());
+            metrics.add(Counter.FAILED_PAGES, to - from + 1);
             return null;
+        } finally {
+            metrics.stop(Stage.STRIP, start);
         }
     }
 
@@ -78,22 +416,388 @@ public class PdfProcessor {
      * @return all text in the specified pages
      */
     public List<String> extractText(int from, int to, int every) {
+        if (every <= 1)
+            return extractTextByPage(from, to);
+
         List<String> list = new ArrayList<>();
-        if (from != to && to - from + 1 < every) {
-            every = to - from + 1;
+        extractTextChunks(from, to, TextChunkOptions.byPages(every), chunk -> list.add(chunk.getText()),
+                new ExtractionControl());
+        return list;
+    }
+
+    /**
+     * Extract text of the specified pages grouped into chunks, e.g., of about the
+     * same size or of the sections of the outline, see {@link TextChunkOptions}
+     * 
+     * @param from    from which page (starting at 1)
+     * @param to      to which page (inclusive)
+     * @param options options of the chunks
+     * @return chunks in page order
+     */
+    public List<TextChunk> extractTextChunks(int from, int to, TextChunkOptions options) {
+        List<TextChunk> list = new ArrayList<>();
+        extractTextChunks(from, to, options, list::add, new ExtractionControl());
+        return list;
+    }
+
+    /**
+     * Extract text of the specified pages grouped into chunks, the pages are
+     * stripped in a single pass (see
+     * {@link #extractTextByPage(int, int, ObjIntConsumer, ExtractionControl)}), and
+     * each chunk is handed over to the consumer as soon as its last page is
+     * stripped
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param options  options of the chunks
+     * @param consumer consumer of the chunks in page order
+     * @param control  control of the job
+     * @throws CancellationException if the job is stopped by the control, the
+     *                               pages extracted before are handed over as the
+     *                               last chunk
+     */
+    public void extractTextChunks(int from, int to, TextChunkOptions options, Consumer<TextChunk> consumer,
+            ExtractionControl control) {
+        var chunker = createTextChunker(from, to, options, consumer);
+        try {
+            extractTextByPage(from, to, chunker, control);
+        } finally {
+            chunker.finish();
+        }
+    }
+
+    /**
+     * Create a chunker of the text of the specified pages, which groups the text
+     * of the pages handed over to it in page order, e.g., by
+     * {@link #extractTextByPage(int, int, ObjIntConsumer)} or a scheduler of page
+     * ranges. The outline is read when it's created if the chunks are grouped by
+     * it.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param options  options of the chunks
+     * @param consumer consumer of the chunks in page order
+     * @return chunker, {@link TextChunker#finish()} must be called after the last
+     *         page
+     */
+    public TextChunker createTextChunker(int from, int to, TextChunkOptions options, Consumer<TextChunk> consumer) {
+        Map<Integer, String> sections = new HashMap<>();
+        if (options.getOutlineDepth() > 0) {
+            try (var acquired = acquire()) {
+                var outline = acquired.doc.getDocumentCatalog().getDocumentOutline();
+                if (outline != null) {
+                    addSections(acquired.doc, outline, 1, options.getOutlineDepth(), acquired.pages(), sections);
+                }
+            }
+            sections.keySet().removeIf(page -> page < from || page > to);
         }
-        if (to == from) {
-            list.add(extractText(from, to));
-            return list;
+        return new TextChunker(options, sections, consumer);
+    }
+
+    /**
+     * Add the page each item of the outline starts at with its title, the first
+     * item wins if many items start at the same page
+     */
+    private void addSections(PDDocument doc, PDOutlineNode node, int level, int depth, PageIndex index,
+            Map<Integer, String> sections) {
+        for (var item : node.children()) {
+            try {
+                var page = item.findDestinationPage(doc);
+                var number = page != null ? index.getPageNumber(page.getCOSObject()) : null;
+                if (number != null)
+                    sections.putIfAbsent(number, item.getTitle());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, String.format("Invalid outline item %s: %s", item.getTitle(), e.getMessage()));
+            }
+            if (level < depth)
+                addSections(doc, item, level + 1, depth, index, sections);
+        }
+    }
+
+    /**
+     * Extract text of each page in the specified pages. The pages are stripped in a
+     * single pass, and concurrently by multiple workers if a
+     * {@link DocumentOpener} is provided.
+     * 
+     * @param from from which page (starting at 1)
+     * @param to   to which page (inclusive)
+     * @return text of each page in page order, the text of a page is {@code null}
+     *         if it failed to be extracted
+     */
+    public List<String> extractTextByPage(int from, int to) {
+        String[] results = new String[to - from + 1];
+        extractTextByPage(from, to, (text, page) -> results[page - from] = text);
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * Extract text of each page in the specified pages, and hand over the text of
+     * each page to the consumer in page order as soon as it's stripped, without
+     * holding all the text in memory. The consumer is never called concurrently,
+     * but it may be called by threads other than the caller's. This method returns
+     * when all the pages are handed over.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the text and page number, the text is
+     *                 {@code null} if it failed to be extracted
+     * @throws CancellationException if the consumer throws it to stop the
+     *                               extraction, or the caller is interrupted
+     */
+    public void extractTextByPage(int from, int to, ObjIntConsumer<String> consumer) {
+        extractTextByPage(from, to, consumer, new ExtractionControl());
+    }
+
+    /**
+     * Extract text of each page in the specified pages the same way as
+     * {@link #extractTextByPage(int, int, ObjIntConsumer)}, the control is checked
+     * before each page is handed over and the page is reported done after the
+     * consumer returns
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the text and page number, the text is
+     *                 {@code null} if it failed to be extracted
+     * @param control  control of the job
+     * @throws CancellationException if the job is stopped by the control, the
+     *                               consumer throws it to stop the extraction, or
+     *                               the caller is interrupted
+     */
+    public void extractTextByPage(int from, int to, ObjIntConsumer<String> consumer, ExtractionControl control) {
+        logger.info(String.format("Extracting text of each page from pages %d-%d", from, to));
+        control.check();
+        consumer = controlled(consumer, control);
+        if (lease == null) {
+            stripText(from, to, consumer, control);
+            return;
+        }
+
+        // hand over the cached pages, and strip each run of pages that aren't cached
+        int page = from;
+        while (page <= to) {
+            var text = lease.getText(page);
+            if (text != null) {
+                consumer.accept(text, page++);
+                continue;
+            }
+            int end = page;
+            while (end < to && lease.getText(end + 1) == null)
+                end++;
+            var c = consumer;
+            stripText(page, end, (t, p) -> {
+                if (t != null)
+                    lease.putText(p, t);
+                c.accept(t, p);
+            }, control);
+            page = end + 1;
+        }
+    }
+
+    /**
+     * Wrap the consumer such that the control is checked before each page is
+     * handed over, and the page is done after it's consumed
+     */
+    private static <T> ObjIntConsumer<T> controlled(ObjIntConsumer<T> consumer, ExtractionControl control) {
+        return (element, page) -> {
+            control.checkPage(page);
+            consumer.accept(element, page);
+            control.pageDone(page);
+        };
+    }
+
+    /**
+     * Strip text of each page in the specified pages, and hand over them in page
+     * order, workers stripping pages concurrently stop once the control is stopped
+     */
+    private void stripText(int from, int to, ObjIntConsumer<String> consumer, ExtractionControl control) {
+        // time until each page is handed over, excluding the time spent by the consumer
+        long[] start = { System.nanoTime() };
+        ObjIntConsumer<String> timed = (text, page) -> {
+            metrics.stop(Stage.STRIP, start[0]);
+            metrics.increment(text != null ? Counter.PAGES : Counter.FAILED_PAGES);
+            consumer.accept(text, page);
+            start[0] = System.nanoTime();
+        };
+        // workers use the document and the clones, so they are no more than the documents
+        int workers = opener != null ? Math.min(parallelism, maxClones + 1) : 1;
+        if (workers > 1 && to > from) {
+            new ParallelTextExtractor(this::acquire, workers).extract(from, to, timed, control);
         } else {
-            for (int i = from; i < to; i += every) {
-                // remaining pages
-                if (i + every >= to) {
-                    list.add(extractText(i, to));
+            int[] next = { from };
+            try (var acquired = acquire()) {
+                new PageTextStripper().strip(acquired.pages(), from, to, (text, page) -> {
+                    timed.accept(text, page);
+                    next[0] = page + 1;
+                });
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e.getMessage());
+            }
+            // remaining pages failed to be extracted
+            for (int i = next[0]; i <= to; i++)
+                timed.accept(null, i);
+        }
+    }
+
+    /**
+     * Extract the words of each page in the specified pages with their positions,
+     * fonts and lines, see {@link StructuredText}. The pages are stripped in a
+     * single pass by the caller's thread, and the words of each page are handed
+     * over in page order as soon as the page is stripped. The same
+     * {@code StructuredText} is reused for every page, it's only valid until the
+     * consumer returns.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the words of each page
+     * @return whether all the pages are extracted, if not the pages after the one
+     *         that failed are not handed over
+     */
+    public boolean extractStructuredText(int from, int to, Consumer<StructuredText> consumer) {
+        return extractStructuredText(from, to, consumer, new ExtractionControl());
+    }
+
+    /**
+     * Extract the words of each page in the specified pages the same way as
+     * {@link #extractStructuredText(int, int, Consumer)}, the control is checked
+     * before each page is handed over and the page is reported done after the
+     * consumer returns
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the words of each page
+     * @param control  control of the job
+     * @return whether all the pages are extracted, if not the pages after the one
+     *         that failed are not handed over
+     * @throws CancellationException if the job is stopped by the control
+     */
+    public boolean extractStructuredText(int from, int to, Consumer<StructuredText> consumer,
+            ExtractionControl control) {
+        logger.info(String.format("Extracting structured text from pages %d-%d", from, to));
+        control.check();
+        long[] start = { System.nanoTime() };
+        int[] next = { from };
+        try (var acquired = acquire()) {
+            new StructuredTextStripper().stripStructured(acquired.pages(), from, to, text -> {
+                metrics.stop(Stage.STRIP, start[0]);
+                metrics.increment(Counter.PAGES);
+                control.checkPage(text.getPage());
+                consumer.accept(text);
+                control.pageDone(text.getPage());
+                next[0] = text.getPage() + 1;
+                start[0] = System.nanoTime();
+            });
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+            metrics.add(Counter.FAILED_PAGES, to - next[0] + 1);
+            return false;
+        }
+    }
+
+    /**
+     * Get the fingerprint of each page in the specified pages, which changes when
+     * anything the elements of the page are extracted from changes, see
+     * {@link PageFingerprinter}
+     * 
+     * @param from from which page (starting at 1)
+     * @param to   to which page (inclusive)
+     * @return fingerprint of each page in page order, the fingerprint of a page is
+     *         {@code null} if it failed to be computed
+     */
+    public List<String> fingerprintPages(int from, int to) {
+        return fingerprintPages(from, to, new ExtractionControl());
+    }
+
+    /**
+     * Get the fingerprint of each page in the specified pages, see
+     * {@link #fingerprintPages(int, int)}. The control is checked before each
+     * page, but pages are neither counted against its budget nor reported done,
+     * as no element is extracted.
+     * 
+     * @param from    from which page (starting at 1)
+     * @param to      to which page (inclusive)
+     * @param control control of the job
+     * @return fingerprint of each page in page order
+     * @throws CancellationException if the job is stopped by the control
+     */
+    public List<String> fingerprintPages(int from, int to, ExtractionControl control) {
+        var fingerprinter = new PageFingerprinter();
+        List<String> fingerprints = new ArrayList<>();
+        try (var acquired = acquire()) {
+            for (int i = from; i <= to; i++) {
+                control.check();
+                long start = System.nanoTime();
+                try {
+                    fingerprints.add(fingerprinter.fingerprint(acquired.pages().getPage(i)));
+                } catch (IOException | RuntimeException e) {
+                    logger.log(Level.WARNING, String.format("Failed to fingerprint page %d: %s", i, e.getMessage()));
+                    fingerprints.add(null);
                 }
-                list.add(extractText(i, i + every));
+                metrics.stop(Stage.FINGERPRINT, start);
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Render each page in the specified pages into an image, or into tiles if the
+     * page is too large, see {@link RenderOptions}. The pages are rendered
+     * concurrently by multiple workers if a {@link DocumentOpener} is provided,
+     * and the images of each page are handed over to the consumer in page order.
+     * The consumer is never called concurrently, but it may be called by threads
+     * other than the caller's.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param options  options of rendering
+     * @param consumer consumer of the images, pages that failed to be rendered
+     *                 are skipped
+     * @throws CancellationException if the consumer throws it to stop rendering,
+     *                               or the caller is interrupted
+     */
+    public void renderPages(int from, int to, RenderOptions options, Consumer<RenderedPage> consumer) {
+        renderPages(from, to, options, consumer, new ExtractionControl());
+    }
+
+    /**
+     * Render each page in the specified pages the same way as
+     * {@link #renderPages(int, int, RenderOptions, Consumer)}, the control is
+     * checked before each page is handed over and the page is reported done after
+     * all its images are consumed
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param options  options of rendering
+     * @param consumer consumer of the images, pages that failed to be rendered
+     *                 are skipped
+     * @param control  control of the job
+     * @throws CancellationException if the job is stopped by the control, the
+     *                               consumer throws it to stop rendering, or the
+     *                               caller is interrupted
+     */
+    public void renderPages(int from, int to, RenderOptions options, Consumer<RenderedPage> consumer,
+            ExtractionControl control) {
+        logger.info(String.format("Rendering pages %d-%d at %.0f DPI", from, to, options.getDpi()));
+        control.check();
+        Consumer<RenderedPage> controlled = rendered -> {
+            if (rendered.getRow() == 0 && rendered.getColumn() == 0)
+                control.checkPage(rendered.getPage());
+            consumer.accept(rendered);
+            if (rendered.getRow() == rendered.getRows() - 1 && rendered.getColumn() == rendered.getColumns() - 1)
+                control.pageDone(rendered.getPage());
+        };
+        if (opener != null && parallelism > 1 && to > from) {
+            new ParallelPageRenderer(opener, parallelism, options, fontCache, metrics).render(from, to, controlled, control);
+            return;
+        }
+        try (var acquired = acquire()) {
+            var rasterizer = new PageRasterizer(acquired.pages(), options, metrics);
+            for (int i = from; i <= to; i++) {
+                control.check();
+                if (Thread.currentThread().isInterrupted())
+                    throw new CancellationException("Page rendering interrupted");
+                rasterizer.render(i, controlled);
             }
-            return list;
         }
     }
 
@@ -105,7 +809,7 @@ public class PdfProcessor {
      * @return all text in the specified pages
      */
     public List<String> extractText(int every) {
-        var pages = pdfDoc.getNumberOfPages();
+        var pages = getNumberOfPages();
         return extractText(1, pages, every);
     }
 
@@ -115,7 +819,7 @@ public class PdfProcessor {
      * @return all text in the PDF document
      */
     public String extractText() {
-        var pages = pdfDoc.getNumberOfPages();
+        var pages = getNumberOfPages();
         return extractText(1, pages);
     }
 
@@ -125,7 +829,7 @@ public class PdfProcessor {
      * @return all images in a List
      */
     public List<BufferedImage> extractImages() {
-        var pages = pdfDoc.getNumberOfPages();
+        var pages = getNumberOfPages();
         return extractImages(1, pages);
     }
 
@@ -137,45 +841,535 @@ public class PdfProcessor {
      * @return all images in the specified pages
      */
     public List<BufferedImage> extractImages(int from, int to) {
-        logger.info(String.format("Extracting images from pages %d-%d", from, to));
         List<BufferedImage> images = new ArrayList<>();
-        for (int i = from; i < to; i++) {
-            var currPage = pdfDoc.getPage(i);
-            images.addAll(extractImagesInPage(currPage));
-        }
+        extractImages(from, to, (img, page) -> images.add(img));
         return images;
     }
 
-    private List<BufferedImage> extractImagesInPage(PDPage page) {
-        List<BufferedImage> images = new ArrayList<>();
-        PDResources resources = page.getResources();
-        images.addAll(extractImagesInResources(resources));
-        return images;
+    /**
+     * Extract all images in the specified pages, and hand over each image to the
+     * consumer as soon as it's decoded. Images are decoded one at a time, and at
+     * most {@link #setMaxImagesInFlight(int) N} decoded images are waiting for the
+     * consumer, so the memory used doesn't grow with the size of the document. The
+     * consumer is never called concurrently, but it may be called by a thread
+     * other than the caller's, see {@link #setImageExecutor(Executor)}. This method
+     * returns when all the images are handed over. If the consumer throws, no more
+     * images are extracted and the exception is thrown by this method, whichever
+     * thread consumes the images.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the image and the page number of it
+     * @return pages that reference each of the images
+     * @throws CancellationException if the consumer throws it to stop the
+     *                               extraction, or the caller is interrupted
+     */
+    public ImageReferences extractImages(int from, int to, ObjIntConsumer<BufferedImage> consumer) {
+        return extractImages(from, to, consumer, new ExtractionControl());
     }
 
-    private List<BufferedImage> extractImagesInResources(PDResources resources) {
-        List<BufferedImage> images = new ArrayList<>();
-        // iterate the external objects (e.g., images) in this resources of this page
-        for (COSName objName : resources.getXObjectNames()) {
+    /**
+     * Extract all images in the specified pages the same way as
+     * {@link #extractImages(int, int, ObjIntConsumer)}, the control is checked
+     * before each image, and each page is reported done once the images in it are
+     * handed over
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the image and the page number of it
+     * @param control  control of the job
+     * @return pages that reference each of the images
+     * @throws CancellationException if the job is stopped by the control, the
+     *                               consumer throws it to stop the extraction, or
+     *                               the caller is interrupted
+     */
+    public ImageReferences extractImages(int from, int to, ObjIntConsumer<BufferedImage> consumer,
+            ExtractionControl control) {
+        logger.info(String.format("Extracting images from pages %d-%d", from, to));
+        return extractImages(from, to, "decoded", this::decode, consumer, control);
+    }
+
+    /**
+     * Extract all images in the specified pages without decoding them if possible.
+     * JPEG and JPEG 2000 images that can be displayed as they are, are handed over
+     * as the original encoded streams, the others are decoded. Images are handed
+     * over the same way as {@link #extractImages(int, int, ObjIntConsumer)}.
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the image and the page number of it
+     * @return pages that reference each of the images
+     * @throws CancellationException if the consumer throws it to stop the
+     *                               extraction, or the caller is interrupted
+     */
+    public ImageReferences extractImagesPassthrough(int from, int to, ObjIntConsumer<ExtractedImage> consumer) {
+        return extractImagesPassthrough(from, to, consumer, new ExtractionControl());
+    }
+
+    /**
+     * Extract all images in the specified pages without decoding them if possible,
+     * see {@link #extractImagesPassthrough(int, int, ObjIntConsumer)}, the control
+     * is used the same way as
+     * {@link #extractImages(int, int, ObjIntConsumer, ExtractionControl)}
+     * 
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the image and the page number of it
+     * @param control  control of the job
+     * @return pages that reference each of the images
+     * @throws CancellationException if the job is stopped by the control, the
+     *                               consumer throws it to stop the extraction, or
+     *                               the caller is interrupted
+     */
+    public ImageReferences extractImagesPassthrough(int from, int to, ObjIntConsumer<ExtractedImage> consumer,
+            ExtractionControl control) {
+        logger.info(String.format("Extracting images (passthrough) from pages %d-%d", from, to));
+        return extractImages(from, to, "passthrough", this::passthrough, consumer, control);
+    }
+
+    /**
+     * Convert the images in the specified pages, and hand over them to the consumer
+     * 
+     * @param from      from which page (starting at 1)
+     * @param to        to which page (inclusive)
+     * @param kind      kind of conversion, converted images are cached by it
+     * @param converter converter of images, it returns {@code null} if the image
+     *                  should be skipped
+     * @param consumer  consumer of the converted image and the page number of it
+     * @param control   control of the job
+     * @return pages that reference each of the images
+     */
+    private <T> ImageReferences extractImages(int from, int to, String kind, Function<PDImageXObject, T> converter,
+            ObjIntConsumer<T> consumer, ExtractionControl control) {
+        var refs = new ImageReferences();
+        control.check();
+        if (maxImagesInFlight <= 1) {
             try {
-                PDXObject obj = resources.getXObject(objName);
-                if (obj instanceof PDFormXObject)
-                    // nested xObject, do recursion
-                    images.addAll(extractImagesInResources(((PDFormXObject) obj).getResources()));
-                else if (obj instanceof PDImageXObject)
-                    images.add(((PDImageXObject) obj).getImage());
-            } catch (IOException e) {
-                logger.log(Level.WARNING, "Error when extracting image in page, skipping...");
+                convertImages(from, to, kind, converter, refs, consumer::accept, control);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Image extraction interrupted");
             }
+            return refs;
         }
-        return images;
+
+        // convert images in this thread and consume them in another one
+        BlockingQueue<PageImage<T>> queue = new ArrayBlockingQueue<>(maxImagesInFlight);
+        var end = new PageImage<T>(null, 0);
+        // first failure of either side, which is thrown to the caller
+        var failure = new AtomicReference<Throwable>();
+        var consuming = new FutureTask<Void>(() -> {
+            try {
+                PageImage<T> pi;
+                while ((pi = queue.take()) != end) {
+                    // once failed, the images are dropped until the producer stops
+                    if (failure.get() != null)
+                        continue;
+                    try {
+                        consumer.accept(pi.image, pi.page);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, new CancellationException("Image extraction interrupted"));
+            }
+        }, null);
+        imageExecutor.execute(consuming);
+        try {
+            convertImages(from, to, kind, converter, refs, (img, page) -> {
+                if (failure.get() != null)
+                    throw new CancellationException("Image consumer failed");
+                handOver(queue, new PageImage<>(img, page), consuming);
+            }, control);
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, new CancellationException("Image extraction interrupted"));
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            try {
+                handOver(queue, end, consuming);
+                consuming.get();
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, new CancellationException("Image extraction interrupted"));
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            } finally {
+                consuming.cancel(true);
+            }
+        }
+        var e = failure.get();
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return refs;
+    }
+
+    /**
+     * Put the image in the queue, unless the consumer is gone, e.g., its thread
+     * died, such that the producer never waits for it forever
+     */
+    private static <T> void handOver(BlockingQueue<PageImage<T>> queue, PageImage<T> image, Future<?> consuming)
+            throws InterruptedException {
+        while (!queue.offer(image, CLONE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (consuming.isDone())
+                return;
+        }
+    }
+
+    /**
+     * Convert the images in the specified pages, images that are already handed
+     * over are skipped if images are deduplicated
+     */
+    private <T> void convertImages(int from, int to, String kind, Function<PDImageXObject, T> converter,
+            ImageReferences refs, ImageHandOver<T> handOver, ExtractionControl control) throws InterruptedException {
+        try (var acquired = acquire()) {
+            convertImages(acquired, from, to, kind, converter, refs, handOver, control);
+        }
+    }
+
+    private <T> void convertImages(Acquired acquired, int from, int to, String kind,
+            Function<PDImageXObject, T> converter, ImageReferences refs, ImageHandOver<T> handOver,
+            ExtractionControl control) throws InterruptedException {
+        Map<COSStream, Integer> seenObjects = new IdentityHashMap<>();
+        Map<String, Integer> seenContents = new HashMap<>();
+        var it = new ImageXObjectIterator(acquired.pages(), from, to);
+        // last page checked by the control
+        int reached = from - 1;
+        while (it.hasNext()) {
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedException();
+            control.check();
+            var imgObj = it.next();
+            var page = it.getCurrentPage();
+            reached = reachPage(control, from, reached, page);
+            String hash = null;
+            if (deduplicateImages) {
+                var index = seenObjects.get(imgObj.getCOSObject());
+                if (index == null && hashImageContent) {
+                    hash = hashContent(imgObj, acquired.primary);
+                    index = hash != null ? seenContents.get(hash) : null;
+                    if (index != null)
+                        seenObjects.put(imgObj.getCOSObject(), index);
+                }
+                if (index != null) {
+                    refs.addReference(index, page);
+                    metrics.increment(Counter.DUPLICATE_IMAGES);
+                    continue;
+                }
+            }
+
+            var img = convert(kind, converter, imgObj, acquired.primary);
+            if (img == null) {
+                metrics.increment(Counter.FAILED_IMAGES);
+                continue;
+            }
+            metrics.increment(Counter.IMAGES);
+            int index = refs.add(page);
+            if (deduplicateImages) {
+                seenObjects.put(imgObj.getCOSObject(), index);
+                if (hash != null)
+                    seenContents.put(hash, index);
+            }
+            handOver.accept(img, page);
+        }
+        reached = reachPage(control, from, reached, to);
+        if (reached >= from)
+            control.pageDone(reached);
+    }
+
+    /**
+     * Check the pages after the last page reached up to the page, the pages
+     * before the page are done as the images are visited in page order
+     * 
+     * @return the page
+     */
+    private static int reachPage(ExtractionControl control, int from, int reached, int page) {
+        while (reached < page) {
+            if (reached >= from)
+                control.pageDone(reached);
+            control.checkPage(++reached);
+        }
+        return reached;
+    }
+
+    /**
+     * Convert the image, or get the cached one if the document is cached
+     * 
+     * @param cacheable whether the image is of the cached document
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T convert(String kind, Function<PDImageXObject, T> converter, PDImageXObject imgObj,
+            boolean cacheable) {
+        if (lease == null || !cacheable)
+            return converter.apply(imgObj);
+        var img = (T) lease.getImage(kind, imgObj.getCOSObject());
+        if (img == null) {
+            img = converter.apply(imgObj);
+            if (img != null)
+                lease.putImage(kind, imgObj.getCOSObject(), img);
+        }
+        return img;
+    }
+
+    /**
+     * Hash the encoded stream and the attributes of the image, such that identical
+     * images that are stored as different objects can be found
+     * 
+     * @return hash or {@code null} if it failed to read the stream
+     */
+    private String hashContent(PDImageXObject imgObj, boolean cacheable) {
+        if (lease == null || !cacheable)
+            return computeHash(imgObj);
+        var hash = lease.getImageHash(imgObj.getCOSObject());
+        if (hash == null) {
+            hash = computeHash(imgObj);
+            if (hash != null)
+                lease.putImageHash(imgObj.getCOSObject(), hash);
+        }
+        return hash;
+    }
+
+    private String computeHash(PDImageXObject imgObj) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.format("%d:%d:%d:%s:%s:%b:%b;", imgObj.getWidth(), imgObj.getHeight(),
+                    imgObj.getBitsPerComponent(), imgObj.getSuffix(), imgObj.getCOSObject().getFilters(),
+                    imgObj.getCOSObject().getItem(COSName.MASK) != null,
+                    imgObj.getCOSObject().getItem(COSName.SMASK) != null).getBytes(StandardCharsets.UTF_8));
+            var cs = imgObj.getCOSObject().getItem(COSName.COLORSPACE);
+            if (cs instanceof COSName)
+                digest.update(((COSName) cs).getName().getBytes(StandardCharsets.UTF_8));
+            try (var in = new DigestInputStream(imgObj.getCOSObject().createRawInputStream(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.log(Level.WARNING, "Error when hashing image, it won't be deduplicated by content");
+            return null;
+        }
+    }
+
+    /**
+     * Set whether images are deduplicated, if so an image referenced by many pages
+     * (e.g., logo) is only decoded and handed over once, the pages referencing it
+     * are recorded in the returned {@link ImageReferences}. Images are identified
+     * by the underlying objects in the document.
+     * 
+     * @param deduplicateImages whether images are deduplicated
+     * @param hashImageContent  whether images stored as different objects are also
+     *                          deduplicated by the hash of their content, which
+     *                          costs reading the encoded streams of all the images
+     */
+    public void setDeduplicateImages(boolean deduplicateImages, boolean hashImageContent) {
+        this.deduplicateImages = deduplicateImages;
+        this.hashImageContent = hashImageContent;
     }
 
     /**
-     * Close the internal {@code PDDocument}
+     * Set the maximum number of decoded images that are waiting to be consumed
+     * 
+     * @param maxImagesInFlight maximum number of images, if it's less than or equal
+     *                          to 1, images are consumed by the caller's thread
+     *                          right after they are decoded
+     */
+    public void setMaxImagesInFlight(int maxImagesInFlight) {
+        this.maxImagesInFlight = maxImagesInFlight;
+    }
+
+    /**
+     * Set the executor that images are consumed by when more than one image may be
+     * in flight, it's a pool of threads shared by the processors by default
+     * 
+     * @param imageExecutor executor, it runs a task for each call that extracts
+     *                      images
+     */
+    public void setImageExecutor(Executor imageExecutor) {
+        this.imageExecutor = imageExecutor;
+    }
+
+    private BufferedImage decode(PDImageXObject imgObj) {
+        long start = System.nanoTime();
+        try {
+            return imgObj.getImage();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error when extracting image in page, skipping...");
+            return null;
+        } finally {
+            metrics.stop(Stage.DECODE, start);
+        }
+    }
+
+    /**
+     * Read the original encoded stream of the image if it can be displayed as it
+     * is, else decode it. A JPEG or JPEG 2000 image without masks is displayed as
+     * it is if it's in gray or RGB, including ICC based color spaces of 1 or 3
+     * components (the profile is dropped), with the default Decode array. A JPEG
+     * image in CMYK is displayed as it is if its Decode array inverts the colors
+     * exactly when the JPEG has an Adobe marker, as viewers take the CMYK of such
+     * JPEG as inverted.
+     */
+    private ExtractedImage passthrough(PDImageXObject imgObj) {
+        try {
+            var suffix = imgObj.getSuffix();
+            boolean jpeg = "jpg".equals(suffix);
+            if ((jpeg || "jpx".equals(suffix)) && imgObj.getMask() == null && imgObj.getSoftMask() == null) {
+                int components = numberOfComponents(imgObj.getColorSpace());
+                var decode = decodeOf(imgObj.getDecode(), components);
+                if ((components == 1 || components == 3) && decode == Decode.DEFAULT) {
+                    return new ExtractedImage(readEncoded(imgObj), jpeg ? "jpg" : "jp2");
+                } else if (jpeg && components == 4 && decode != Decode.OTHER) {
+                    var encoded = readEncoded(imgObj);
+                    if (hasAdobeMarker(encoded) == (decode == Decode.INVERTED))
+                        return new ExtractedImage(encoded, "jpg");
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error when reading encoded image, decoding it instead...");
+        }
+        var img = decode(imgObj);
+        return img != null ? new ExtractedImage(img) : null;
+    }
+
+    private byte[] readEncoded(PDImageXObject imgObj) throws IOException {
+        long start = System.nanoTime();
+        try (var in = imgObj.createInputStream(ENCODED_IMAGE_FILTERS)) {
+            return in.readAllBytes();
+        } finally {
+            metrics.stop(Stage.READ, start);
+        }
+    }
+
+    /**
+     * Get the number of components of the color space, or of the alternate color
+     * space of an ICC based one
+     * 
+     * @return number of components, or -1 if it's not a device or ICC based color
+     *         space
+     */
+    private static int numberOfComponents(PDColorSpace colorSpace) throws IOException {
+        if (colorSpace instanceof PDICCBased)
+            colorSpace = ((PDICCBased) colorSpace).getAlternateColorSpace();
+        if (colorSpace instanceof PDDeviceGray || colorSpace instanceof PDDeviceRGB
+                || colorSpace instanceof PDDeviceCMYK)
+            return colorSpace.getNumberOfComponents();
+        return -1;
+    }
+
+    /**
+     * Decode arrays of images
+     */
+    private enum Decode {
+        /** [0 1 0 1 ...] or absent */
+        DEFAULT,
+        /** [1 0 1 0 ...] */
+        INVERTED,
+        OTHER
+    }
+
+    private static Decode decodeOf(COSArray decode, int components) {
+        if (decode == null)
+            return Decode.DEFAULT;
+        if (components <= 0 || decode.size() != 2 * components)
+            return Decode.OTHER;
+        boolean isDefault = true;
+        boolean isInverted = true;
+        for (int i = 0; i < decode.size(); i++) {
+            var value = decode.getObject(i);
+            if (!(value instanceof COSNumber))
+                return Decode.OTHER;
+            float f = ((COSNumber) value).floatValue();
+            isDefault &= f == (i % 2 == 0 ? 0 : 1);
+            isInverted &= f == (i % 2 == 0 ? 1 : 0);
+        }
+        return isDefault ? Decode.DEFAULT : isInverted ? Decode.INVERTED : Decode.OTHER;
+    }
+
+    /**
+     * Whether the JPEG has an Adobe (APP14) marker before its image data
+     */
+    static boolean hasAdobeMarker(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xff) != 0xff || (jpeg[1] & 0xff) != 0xd8)
+            return false;
+        int i = 2;
+        while (i + 4 <= jpeg.length) {
+            if ((jpeg[i] & 0xff) != 0xff) {
+                i++;
+                continue;
+            }
+            int marker = jpeg[i + 1] & 0xff;
+            // fill bytes, and markers without segments
+            if (marker == 0xff || marker == 0x01 || (marker >= 0xd0 && marker <= 0xd7)) {
+                i += marker == 0xff ? 1 : 2;
+                continue;
+            }
+            // start of scan or end of image
+            if (marker == 0xda || marker == 0xd9)
+                return false;
+            int length = ((jpeg[i + 2] & 0xff) << 8) | (jpeg[i + 3] & 0xff);
+            if (marker == 0xee && length >= 7 && i + 9 <= jpeg.length
+                    && new String(jpeg, i + 4, 5, StandardCharsets.US_ASCII).equals("Adobe"))
+                return true;
+            i += 2 + length;
+        }
+        return false;
+    }
+
+    /**
+     * Hand over of converted images
+     */
+    @FunctionalInterface
+    private interface ImageHandOver<T> {
+        void accept(T image, int page) throws InterruptedException;
+    }
+
+    /**
+     * Converted image and the page it's in
+     */
+    private static class PageImage<T> {
+
+        final T image;
+        final int page;
+
+        PageImage(T image, int page) {
+            this.image = image;
+            this.page = page;
+        }
+    }
+
+    /**
+     * Close the internal {@code PDDocument}, or the lease of it if it's cached, and
+     * the documents opened for concurrent jobs. It should be called after the jobs
+     * are done.
      */
     public void close() {
+        synchronized (clones) {
+            for (var clone : clones) {
+                try {
+                    FontCache.release(clone);
+                    clone.close();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, e.getMessage());
+                }
+            }
+            clones.clear();
+            idleClones.clear();
+        }
+        synchronized (pageIndexes) {
+            pageIndexes.clear();
+        }
+        synchronized (documentFonts) {
+            documentFonts.clear();
+        }
+        if (lease != null) {
+            lease.close();
+            return;
+        }
         try {
+            FontCache.release(pdfDoc);
             this.pdfDoc.close();
         } catch (IOException e) {
             logger.log(Level.SEVERE, e.getMessage());
@@ -197,7 +1391,7 @@ public class PdfProcessor {
      * @return validated page range
      */
     public PageRange validateAndReturnPageRange(int fromPage, int toPage) {
-        var pages = pdfDoc.getNumberOfPages();
+        var pages = getNumberOfPages();
         if (fromPage <= 0)
             fromPage = 1;
         else if (fromPage > pages)
@@ -209,4 +1403,19 @@ public class PdfProcessor {
             toPage = fromPage;
         return new PageRange(fromPage, toPage);
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the number of pages, it's counted once by the page index, which is kept
+     * for the jobs that follow
+     */
+    private int getNumberOfPages() {
+        int count = pageCount;
+        if (count < 0) {
+            try (var acquired = acquire()) {
+                count = acquired.pages().getPageCount();
+            }
+            pageCount = count;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.awt.image.BufferedImage;
+
+import org.apache.pdfbox.rendering.ImageType;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Options of rendering pages into images, i.e., the resolution, the type of
+ * the images, and how pages that are too large at the resolution are rendered:
+ * either in tiles of at most the given size at the same resolution, or as a
+ * whole at a lower resolution such that the image isn't larger than the
+ * maximum number of pixels.
+ * </p>
+ */
+public class RenderOptions {
+
+    /** default maximum number of pixels of a rendered image, 64MB as RGB */
+    public static final long DEFAULT_MAX_PIXELS = 16L * 1024 * 1024;
+
+    private final float dpi;
+    private final ImageType imageType;
+    private final long maxPixels;
+    private final int tileSize;
+
+    /**
+     * @param dpi       resolution in dots per inch, 72 renders a point as a pixel
+     * @param imageType type of the images
+     * @param maxPixels maximum number of pixels of an image
+     * @param tileSize  width and height of tiles in pixels that pages larger than
+     *                  the maximum are rendered in, 0 to render these pages at a
+     *                  lower resolution instead
+     */
+    public RenderOptions(float dpi, ImageType imageType, long maxPixels, int tileSize) {
+        if (dpi <= 0)
+            throw new IllegalArgumentException("DPI should be greater than 0");
+        if (tileSize > 0 && (long) tileSize * tileSize > maxPixels)
+            throw new IllegalArgumentException("Tiles should not be larger than the maximum number of pixels");
+        this.dpi = dpi;
+        this.imageType = imageType;
+        this.maxPixels = maxPixels;
+        this.tileSize = Math.max(0, tileSize);
+    }
+
+    /**
+     * Get the default options with the resolution, which renders RGB images and
+     * renders pages larger than {@link #DEFAULT_MAX_PIXELS} at a lower resolution
+     * 
+     * @param dpi resolution in dots per inch
+     * @return options
+     */
+    public static RenderOptions withDpi(float dpi) {
+        return new RenderOptions(dpi, ImageType.RGB, DEFAULT_MAX_PIXELS, 0);
+    }
+
+    public float getDpi() {
+        return dpi;
+    }
+
+    public ImageType getImageType() {
+        return imageType;
+    }
+
+    public long getMaxPixels() {
+        return maxPixels;
+    }
+
+    /**
+     * Get the width and height of tiles, 0 if pages are not rendered in tiles
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("dpi=%s,type=%s,maxPixels=%d,tile=%d", dpi, imageType, maxPixels, tileSize);
+    }
+
+    /**
+     * Get the type of {@code BufferedImage} of the image type
+     */
+    int getBufferedImageType() {
+        switch (imageType) {
+            case BINARY:
+                return BufferedImage.TYPE_BYTE_BINARY;
+            case GRAY:
+                return BufferedImage.TYPE_BYTE_GRAY;
+            case ARGB:
+                return BufferedImage.TYPE_INT_ARGB;
+            default:
+                return BufferedImage.TYPE_INT_RGB;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Image of a rendered page, or of a tile of it if the page is rendered in
+ * tiles. Tiles are numbered by their row and column from the top-left corner
+ * of the page as displayed.
+ * </p>
+ */
+public class RenderedPage {
+
+    private final int page;
+    private final BufferedImage image;
+    private final float dpi;
+    private final int row;
+    private final int column;
+    private final int rows;
+    private final int columns;
+
+    RenderedPage(int page, BufferedImage image, float dpi, int row, int column, int rows, int columns) {
+        this.page = page;
+        this.image = image;
+        this.dpi = dpi;
+        this.row = row;
+        this.column = column;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Get the page number (starting at 1)
+     */
+    public int getPage() {
+        return page;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Get the resolution it's rendered at, which is lower than the one requested
+     * if the page is too large and it's not rendered in tiles
+     */
+    public float getDpi() {
+        return dpi;
+    }
+
+    /**
+     * Whether it's a tile of the page rather than the whole page
+     */
+    public boolean isTile() {
+        return rows > 1 || columns > 1;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the filename of the image without the extension, e.g., "page3" or
+     * "page3_r0_c1" for a tile
+     */
+    public String getBaseName() {
+        return isTile() ? String.format("page%d_r%d_c%d", page, row, column) : "page" + page;
+    }
+}
@@ -0,0 +1,235 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Words of a page with their positions, in reading order. Each word has a
+ * bounding box in points from the top-left corner of the page (as displayed,
+ * i.e., rotation applied), a font, a font size and the line it's in. Words are
+ * kept in columns of primitive arrays and their characters in a single buffer,
+ * which are reused for the next page, so no object is held per word.
+ * </p>
+ * <p>
+ * An instance handed over by {@link PdfProcessor} is only valid until the
+ * consumer returns, it should be copied (e.g., written) rather than kept.
+ * </p>
+ */
+public class StructuredText {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int page;
+    private int words;
+    private int lines;
+    private float[] x = new float[INITIAL_CAPACITY];
+    private float[] y = new float[INITIAL_CAPACITY];
+    private float[] width = new float[INITIAL_CAPACITY];
+    private float[] height = new float[INITIAL_CAPACITY];
+    private float[] fontSize = new float[INITIAL_CAPACITY];
+    private int[] font = new int[INITIAL_CAPACITY];
+    private int[] line = new int[INITIAL_CAPACITY];
+    /** end of the characters of each word in the buffer */
+    private int[] textEnd = new int[INITIAL_CAPACITY];
+    private final StringBuilder chars = new StringBuilder();
+    private final List<PDFont> fonts = new ArrayList<>();
+    private final List<String> fontNames = new ArrayList<>();
+    /** whether the next word starts a new line */
+    private boolean lineBreak = true;
+    /** bounding box of the word being added, empty if there isn't one */
+    private float left, top, right, bottom;
+    private boolean inWord = false;
+
+    /**
+     * Clear everything for the page
+     */
+    void reset(int page) {
+        this.page = page;
+        this.words = 0;
+        this.lines = 0;
+        this.chars.setLength(0);
+        this.fonts.clear();
+        this.fontNames.clear();
+        this.lineBreak = true;
+        this.inWord = false;
+    }
+
+    /**
+     * Add a glyph to the word being added, a word is started if there isn't one,
+     * it's in a new line if {@link #endLine()} was called after the last word
+     */
+    void addGlyph(String unicode, float x, float y, float width, float height, PDFont font, float fontSize) {
+        if (!inWord) {
+            if (words == this.x.length)
+                grow();
+            if (lineBreak) {
+                lines++;
+                lineBreak = false;
+            }
+            // the font of a word is the font of its first glyph
+            this.font[words] = fontIndex(font);
+            this.fontSize[words] = fontSize;
+            left = x;
+            top = y;
+            right = x + width;
+            bottom = y + height;
+            inWord = true;
+        } else {
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x + width);
+            bottom = Math.max(bottom, y + height);
+        }
+        if (unicode != null)
+            chars.append(unicode);
+    }
+
+    /**
+     * End the word being added, if any
+     */
+    void endWord() {
+        if (!inWord)
+            return;
+        inWord = false;
+        int i = words++;
+        this.x[i] = left;
+        this.y[i] = top;
+        this.width[i] = right - left;
+        this.height[i] = bottom - top;
+        this.line[i] = lines - 1;
+        textEnd[i] = chars.length();
+    }
+
+    void endLine() {
+        endWord();
+        lineBreak = true;
+    }
+
+    private int fontIndex(PDFont font) {
+        // a page uses a few fonts, it's cheaper than hashing
+        for (int i = 0; i < fonts.size(); i++) {
+            if (fonts.get(i) == font)
+                return i;
+        }
+        fonts.add(font);
+        fontNames.add(font != null ? font.getName() : null);
+        return fonts.size() - 1;
+    }
+
+    private void grow() {
+        int n = x.length * 2;
+        x = Arrays.copyOf(x, n);
+        y = Arrays.copyOf(y, n);
+        width = Arrays.copyOf(width, n);
+        height = Arrays.copyOf(height, n);
+        fontSize = Arrays.copyOf(fontSize, n);
+        font = Arrays.copyOf(font, n);
+        line = Arrays.copyOf(line, n);
+        textEnd = Arrays.copyOf(textEnd, n);
+    }
+
+    /**
+     * Get the page number (starting at 1)
+     */
+    public int getPage() {
+        return page;
+    }
+
+    public int getWordCount() {
+        return words;
+    }
+
+    public int getLineCount() {
+        return lines;
+    }
+
+    /**
+     * Get the characters of all the words, the word {@code i} is from
+     * {@link #getTextStart(int)} to {@link #getTextEnd(int)}
+     */
+    public CharSequence getChars() {
+        return chars;
+    }
+
+    public int getTextStart(int word) {
+        return word == 0 ? 0 : textEnd[word - 1];
+    }
+
+    public int getTextEnd(int word) {
+        return textEnd[word];
+    }
+
+    /**
+     * Get the text of the word, it creates a string, see {@link #getChars()}
+     */
+    public String getText(int word) {
+        return chars.substring(getTextStart(word), getTextEnd(word));
+    }
+
+    /**
+     * Get the left of the word in points
+     */
+    public float getX(int word) {
+        return x[word];
+    }
+
+    /**
+     * Get the top of the word in points
+     */
+    public float getY(int word) {
+        return y[word];
+    }
+
+    public float getWidth(int word) {
+        return width[word];
+    }
+
+    public float getHeight(int word) {
+        return height[word];
+    }
+
+    public float getFontSize(int word) {
+        return fontSize[word];
+    }
+
+    /**
+     * Get the index of the word's font, see {@link #getFontName(int)}
+     */
+    public int getFont(int word) {
+        return font[word];
+    }
+
+    /**
+     * Get the line of the word (starting at 0)
+     */
+    public int getLine(int word) {
+        return line[word];
+    }
+
+    /**
+     * Get number of fonts used by the words in this page
+     */
+    public int getFontCount() {
+        return fontNames.size();
+    }
+
+    /**
+     * Get the name of the font
+     * 
+     * @param font index of the font
+     * @return name, or {@code null} if it's unknown
+     */
+    public String getFontName(int font) {
+        return fontNames.get(font);
+    }
+}
@@ -0,0 +1,91 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.TextPosition;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * {@link PageTextStripper} that records the words of each page with their
+ * positions into a {@link StructuredText}, which is reused for every page. The
+ * {@code TextPosition} of the glyphs are only read when the word is written,
+ * nothing refers to them afterwards. It can be reused, but it's not
+ * thread-safe.
+ * </p>
+ */
+class StructuredTextStripper extends PageTextStripper {
+
+    private final StructuredText text = new StructuredText();
+    private Consumer<StructuredText> consumer;
+
+    StructuredTextStripper() throws IOException {
+        super();
+    }
+
+    /**
+     * Strip the words in the specified pages, the words of each page are handed
+     * over to the consumer in page order. Pages without content are handed over
+     * without words.
+     * 
+     * @param index    index of the pages of the document
+     * @param from     from which page (starting at 1)
+     * @param to       to which page (inclusive)
+     * @param consumer consumer of the words of each page, the instance is reused
+     * @throws IOException
+     */
+    void stripStructured(PageIndex index, int from, int to, Consumer<StructuredText> consumer) throws IOException {
+        this.consumer = consumer;
+        this.text.reset(from);
+        strip(index, from, to, (ignored, page) -> {
+            // pages without content haven't been started
+            if (text.getPage() != page)
+                text.reset(page);
+            text.endWord();
+            this.consumer.accept(text);
+            text.reset(page + 1);
+        });
+    }
+
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        super.startPage(page);
+        text.reset(getCurrentPageNumber());
+    }
+
+    /**
+     * Add the glyphs of the string as they are, split into words at spaces
+     */
+    @Override
+    protected void writeString(String string, List<TextPosition> positions) throws IOException {
+        for (int i = 0; i < positions.size(); i++) {
+            var p = positions.get(i);
+            var unicode = p.getUnicode();
+            if (unicode == null || unicode.isBlank()) {
+                text.endWord();
+                continue;
+            }
+            // the baseline is at y, glyphs are above it
+            text.addGlyph(unicode, p.getXDirAdj(), p.getYDirAdj() - p.getHeightDir(), p.getWidthDirAdj(),
+                    p.getHeightDir(), p.getFont(), p.getFontSizeInPt());
+        }
+    }
+
+    @Override
+    protected void writeWordSeparator() throws IOException {
+        text.endWord();
+    }
+
+    @Override
+    protected void writeLineSeparator() throws IOException {
+        text.endLine();
+    }
+}
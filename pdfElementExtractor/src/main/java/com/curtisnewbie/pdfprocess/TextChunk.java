@@ -0,0 +1,52 @@
+package com.curtisnewbie.pdfprocess;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Text of a range of consecutive pages, see {@link TextChunker}
+ * </p>
+ */
+public class TextChunk {
+
+    private final int fromPage;
+    private final int toPage;
+    private final String text;
+    private final String title;
+
+    TextChunk(int fromPage, int toPage, String text, String title) {
+        this.fromPage = fromPage;
+        this.toPage = toPage;
+        this.text = text;
+        this.title = title;
+    }
+
+    public int getFromPage() {
+        return fromPage;
+    }
+
+    public int getToPage() {
+        return toPage;
+    }
+
+    /**
+     * Get the text of the pages, pages that failed to be extracted are left out
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the title of the outline section the chunk is in
+     * 
+     * @return title, or {@code null} if the outline is ignored or the chunk is
+     *         before the first section
+     */
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,79 @@
+package com.curtisnewbie.pdfprocess;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Options of grouping the text of pages into chunks, see {@link TextChunker}.
+ * A chunk always consists of whole pages, and a new chunk is started before a
+ * page when any of the enabled limits is reached: the number of pages, the
+ * target number of characters, or a section of the document outline
+ * (bookmarks) starting at the page.
+ * </p>
+ */
+public class TextChunkOptions {
+
+    private final int maxPages;
+    private final int targetChars;
+    private final int outlineDepth;
+
+    /**
+     * @param maxPages     maximum number of pages in a chunk, 0 if it's not
+     *                     limited
+     * @param targetChars  target number of characters in a chunk, a page that
+     *                     would take a chunk over it starts the next chunk
+     *                     instead, so a chunk is only larger than it if it has a
+     *                     single page, 0 if it's not limited
+     * @param outlineDepth depth of the outline whose items start new chunks, 1 for
+     *                     the top-level items only, 0 to ignore the outline
+     */
+    public TextChunkOptions(int maxPages, int targetChars, int outlineDepth) {
+        if (maxPages < 0 || targetChars < 0 || outlineDepth < 0)
+            throw new IllegalArgumentException("Options of chunks should not be negative");
+        this.maxPages = maxPages;
+        this.targetChars = targetChars;
+        this.outlineDepth = outlineDepth;
+    }
+
+    /**
+     * Chunks of every N pages
+     */
+    public static TextChunkOptions byPages(int pages) {
+        return new TextChunkOptions(Math.max(1, pages), 0, 0);
+    }
+
+    /**
+     * Chunks of about the number of characters
+     */
+    public static TextChunkOptions bySize(int targetChars) {
+        return new TextChunkOptions(0, Math.max(1, targetChars), 0);
+    }
+
+    /**
+     * Chunks of the sections of the outline up to the depth
+     */
+    public static TextChunkOptions byOutline(int depth) {
+        return new TextChunkOptions(0, 0, Math.max(1, depth));
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public int getTargetChars() {
+        return targetChars;
+    }
+
+    public int getOutlineDepth() {
+        return outlineDepth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pages=%d,chars=%d,outline=%d", maxPages, targetChars, outlineDepth);
+    }
+}
@@ -0,0 +1,89 @@
+package com.curtisnewbie.pdfprocess;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Groups the text of pages handed over in page order into {@link TextChunk
+ * chunks} as the pages come, e.g., from
+ * {@link PdfProcessor#extractTextByPage(int, int, ObjIntConsumer)}, so the pages
+ * are stripped in a single pass however they are grouped, and only the text of
+ * the current chunk is held in memory. It's created by
+ * {@link PdfProcessor#createTextChunker(int, int, TextChunkOptions, Consumer)},
+ * which resolves the outline of the document. It's not thread-safe, and
+ * {@link #finish()} must be called after the last page.
+ * </p>
+ */
+public class TextChunker implements ObjIntConsumer<String> {
+
+    private final TextChunkOptions options;
+    /** title of the section starting at each page */
+    private final Map<Integer, String> sections;
+    private final Consumer<TextChunk> consumer;
+    private final StringBuilder text = new StringBuilder();
+    /** first page of the current chunk, 0 if there isn't one */
+    private int chunkFrom = 0;
+    private int lastPage = 0;
+    private String title;
+
+    TextChunker(TextChunkOptions options, Map<Integer, String> sections, Consumer<TextChunk> consumer) {
+        this.options = options;
+        this.sections = sections;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Add the text of the next page, the current chunk is handed over first if the
+     * page starts the next chunk
+     * 
+     * @param pageText text of the page, {@code null} if it failed to be extracted
+     * @param page     page number (starting at 1)
+     */
+    @Override
+    public void accept(String pageText, int page) {
+        int chars = pageText != null ? pageText.length() : 0;
+        var section = sections.get(page);
+        if (chunkFrom > 0 && startsChunk(page, chars, section != null))
+            flush();
+        if (section != null)
+            title = section;
+        if (chunkFrom == 0)
+            chunkFrom = page;
+        if (pageText != null)
+            text.append(pageText);
+        lastPage = page;
+    }
+
+    /**
+     * Hand over the last chunk
+     */
+    public void finish() {
+        if (chunkFrom > 0)
+            flush();
+    }
+
+    private boolean startsChunk(int page, int chars, boolean sectionStarts) {
+        if (sectionStarts)
+            return true;
+        if (options.getMaxPages() > 0 && page - chunkFrom >= options.getMaxPages())
+            return true;
+        // pages without text join the next page
+        return options.getTargetChars() > 0 && text.length() > 0
+                && text.length() + chars > options.getTargetChars();
+    }
+
+    private void flush() {
+        var chunk = new TextChunk(chunkFrom, lastPage, text.toString(), title);
+        text.setLength(0);
+        chunkFrom = 0;
+        consumer.accept(chunk);
+    }
+}
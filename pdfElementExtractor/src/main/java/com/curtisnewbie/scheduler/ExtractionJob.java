@@ -0,0 +1,143 @@
+package com.curtisnewbie.scheduler;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Job submitted to {@link ExtractionScheduler}, which consists of a task
+ * extracting elements and a task writing them. The job is done when both tasks
+ * have ended, so once the result is completed, nothing of this job is running.
+ * </p>
+ * <p>
+ * The {@link ExtractionControl} of the job reports the progress of the job,
+ * and may limit it by a deadline or a budget of pages. If the job is stopped by
+ * them, the result is completed with the paths of the files written before it
+ * stopped, see {@link ExtractionControl#getStopReason()}.
+ * </p>
+ */
+public class ExtractionJob {
+
+    private final CompletableFuture<List<String>> result = new CompletableFuture<>();
+    private volatile boolean cancelled = false;
+    private volatile Throwable failure;
+    private volatile List<String> paths;
+    /** number of tasks that haven't ended */
+    private final AtomicInteger running = new AtomicInteger(2);
+    private final Task producing = new Task();
+    private final Task writing = new Task();
+    private final ExtractionControl control;
+
+    ExtractionJob(ExtractionControl control) {
+        this.control = control;
+    }
+
+    public ExtractionControl getControl() {
+        return control;
+    }
+
+    /**
+     * Get the result of this job, which is completed with the paths of written
+     * files, or completed exceptionally with {@code CancellationException} if
+     * it's cancelled
+     * 
+     * @return result
+     */
+    public CompletableFuture<List<String>> getResult() {
+        return result;
+    }
+
+    /**
+     * Cancel this job, tasks that haven't started won't run, and tasks that are
+     * running are interrupted and stop at the next element
+     */
+    public void cancel() {
+        cancelled = true;
+        control.cancel();
+        producing.cancel();
+        writing.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    Task getProducing() {
+        return producing;
+    }
+
+    Task getWriting() {
+        return writing;
+    }
+
+    void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * Set the failure of the job, the first one is kept
+     */
+    synchronized void setFailure(Throwable failure) {
+        if (this.failure == null)
+            this.failure = failure;
+    }
+
+    private void taskEnded() {
+        if (running.decrementAndGet() > 0)
+            return;
+        if (cancelled)
+            result.completeExceptionally(new CancellationException("Job cancelled"));
+        else if (failure != null)
+            result.completeExceptionally(failure);
+        else
+            result.complete(paths);
+    }
+
+    /**
+     * Task of this job, it either runs or is cancelled before it starts
+     */
+    class Task {
+
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private volatile Future<?> future;
+
+        void setFuture(Future<?> future) {
+            this.future = future;
+        }
+
+        /**
+         * Run the task unless it's cancelled before it starts
+         */
+        void run(Runnable r) {
+            if (!started.compareAndSet(false, true))
+                return;
+            try {
+                if (!cancelled)
+                    r.run();
+            } finally {
+                taskEnded();
+            }
+        }
+
+        void cancel() {
+            if (started.compareAndSet(false, true)) {
+                // it will never run
+                taskEnded();
+            } else if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.curtisnewbie.scheduler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Scheduler of extraction jobs. CPU-bound work (e.g., stripping text and
+ * decoding images) and I/O-bound work (e.g., writing files) run on two separate
+ * pools with bounded number of threads and bounded task queues. Elements are
+ * handed over from the extracting task to the writing task of a job through a
+ * bounded queue, such that extraction waits when writing falls behind. It must
+ * be shut down when it's no longer used.
+ * </p>
+ */
+public class ExtractionScheduler {
+
+    /** default number of queued tasks in each pool */
+    private static final int TASK_QUEUE_CAPACITY = 64;
+    /** time waiting for room in the queue of elements before checking the writer again */
+    private static final long HAND_OVER_WAIT_MILLIS = 50;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final ThreadPoolExecutor cpuExecutor;
+    private final ThreadPoolExecutor ioExecutor;
+    /** number of elements that can be waiting to be written in each job */
+    private final int elementQueueCapacity;
+
+    /**
+     * Create a scheduler with a thread per core for CPU-bound work, and half as
+     * many for I/O-bound work
+     */
+    public ExtractionScheduler() {
+        this(Runtime.getRuntime().availableProcessors(),
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2), 16);
+    }
+
+    /**
+     * @param cpuThreads           number of threads for CPU-bound work
+     * @param ioThreads            number of threads for I/O-bound work
+     * @param elementQueueCapacity number of elements that can be waiting to be
+     *                             written in each job
+     */
+    public ExtractionScheduler(int cpuThreads, int ioThreads, int elementQueueCapacity) {
+        this.cpuExecutor = newPool("extraction-cpu-", cpuThreads);
+        this.ioExecutor = newPool("extraction-io-", ioThreads);
+        this.elementQueueCapacity = elementQueueCapacity;
+    }
+
+    /**
+     * Submit a job, where the producer extracts elements on the CPU pool and hands
+     * over them to the writer running on the I/O pool. Jobs start in the order they
+     * are submitted.
+     * 
+     * @param producer producer of elements
+     * @param writer   writer of elements
+     * @return job
+     * @throws RejectedExecutionException if there are too many jobs waiting
+     */
+    public <T> ExtractionJob submit(Producer<T> producer, ElementWriter<T> writer)
+            throws RejectedExecutionException {
+        return submit(new ExtractionControl(), producer, writer);
+    }
+
+    /**
+     * Submit a job with the control, which should also be given to the
+     * {@code PdfProcessor} used by the producer, such that the job reports its
+     * progress and stops at the next page or image once it's cancelled or limited
+     * by the control
+     * 
+     * @param control  control of the job
+     * @param producer producer of elements
+     * @param writer   writer of elements
+     * @return job
+     * @throws RejectedExecutionException if there are too many jobs waiting
+     */
+    public <T> ExtractionJob submit(ExtractionControl control, Producer<T> producer, ElementWriter<T> writer)
+            throws RejectedExecutionException {
+        return submit(control, null, producer, writer);
+    }
+
+    /**
+     * Submit a job with the control like
+     * {@link #submit(ExtractionControl, Producer, ElementWriter)}, which starts
+     * once the given future is completed, normally or exceptionally. No thread is
+     * blocked while the job waits, and if it's cancelled before it starts, it
+     * never runs.
+     * 
+     * @param control  control of the job
+     * @param after    future completed when the job can start, e.g., the end of
+     *                 the previous jobs, it may be {@code null}
+     * @param producer producer of elements
+     * @param writer   writer of elements
+     * @return job
+     * @throws RejectedExecutionException if there are too many jobs waiting, it's
+     *                                    only thrown if the job starts right away,
+     *                                    else the job is cancelled
+     */
+    public <T> ExtractionJob submit(ExtractionControl control, CompletableFuture<?> after, Producer<T> producer,
+            ElementWriter<T> writer) throws RejectedExecutionException {
+        var job = new ExtractionJob(control);
+        if (after == null || after.isDone()) {
+            start(job, producer, writer);
+            return job;
+        }
+        after.whenComplete((r, ex) -> {
+            try {
+                start(job, producer, writer);
+            } catch (RejectedExecutionException e) {
+                logger.warning("Too many jobs waiting, the job is cancelled");
+                job.cancel();
+            }
+        });
+        return job;
+    }
+
+    private synchronized <T> void start(ExtractionJob job, Producer<T> producer, ElementWriter<T> writer)
+            throws RejectedExecutionException {
+        BlockingQueue<Element<T>> queue = new ArrayBlockingQueue<>(elementQueueCapacity);
+        var end = new Element<T>(null, 0);
+        // set once the writer stops taking elements, the producer never waits for it then
+        var writerStopped = new AtomicBoolean(false);
+
+        job.getProducing().setFuture(cpuExecutor.submit(() -> job.getProducing().run(() -> {
+            try {
+                producer.produce((element, page) -> {
+                    if (job.isCancelled())
+                        throw new CancellationException();
+                    try {
+                        if (!handOver(queue, new Element<>(element, page), writerStopped))
+                            throw new CancellationException("Writer of the job stopped");
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException();
+                    }
+                });
+            } catch (CancellationException e) {
+                // job cancelled, or stopped by its control
+                if (!job.isCancelled())
+                    logger.info(e.getMessage());
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Failed to extract elements", e);
+                job.setFailure(e);
+            } finally {
+                // the writer stops taking elements if the job is cancelled
+                if (!job.isCancelled()) {
+                    try {
+                        handOver(queue, end, writerStopped);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        })));
+
+        try {
+            job.getWriting().setFuture(ioExecutor.submit(() -> job.getWriting().run(() -> {
+                List<String> paths = new ArrayList<>();
+                try {
+                    Element<T> e;
+                    while (!job.isCancelled() && (e = queue.take()) != end) {
+                        try {
+                            var path = writer.write(e.element, e.page);
+                            if (path != null)
+                                paths.add(path);
+                        } catch (IOException ex) {
+                            logger.severe(ex.getMessage());
+                        } catch (RuntimeException ex) {
+                            // the job fails, and the producer stops at the next element
+                            logger.log(Level.SEVERE, "Failed to write elements", ex);
+                            job.setFailure(ex);
+                            break;
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    writerStopped.set(true);
+                }
+                try {
+                    paths.addAll(writer.finish(job.isCancelled()));
+                } catch (IOException ex) {
+                    logger.severe(ex.getMessage());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                job.setPaths(paths);
+            })));
+        } catch (RejectedExecutionException e) {
+            job.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Put the element in the queue, unless the writer has stopped taking elements
+     * 
+     * @return whether it's put in the queue
+     */
+    private static <T> boolean handOver(BlockingQueue<Element<T>> queue, Element<T> element,
+            AtomicBoolean writerStopped) throws InterruptedException {
+        while (!queue.offer(element, HAND_OVER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (writerStopped.get())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the executor for I/O-bound tasks that are not part of a job, e.g.,
+     * opening a directory
+     * 
+     * @return executor
+     */
+    public ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Shut down the pools, running jobs are interrupted
+     */
+    public void shutdown() {
+        cpuExecutor.shutdownNow();
+        ioExecutor.shutdownNow();
+        try {
+            if (!cpuExecutor.awaitTermination(5, TimeUnit.SECONDS)
+                    || !ioExecutor.awaitTermination(5, TimeUnit.SECONDS))
+                logger.warning("Extraction scheduler didn't terminate in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadPoolExecutor newPool(String prefix, int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(TASK_QUEUE_CAPACITY), r -> {
+                    var t = new Thread(r, prefix + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Producer of elements
+     */
+    @FunctionalInterface
+    public interface Producer<T> {
+
+        /**
+         * Extract elements and hand over each of them with its page number to the
+         * sink, which blocks when the writer falls behind, and throws
+         * {@code CancellationException} when the job is cancelled
+         * 
+         * @param sink sink of elements
+         * @throws Exception
+         */
+        void produce(ObjIntConsumer<T> sink) throws Exception;
+    }
+
+    /**
+     * Writer of elements
+     */
+    @FunctionalInterface
+    public interface ElementWriter<T> {
+
+        /**
+         * Write an element
+         * 
+         * @param element element, it may be {@code null} if it failed to be extracted
+         * @param page    page number of the element
+         * @return path of the written file, or {@code null} if nothing is written or
+         *         it's written asynchronously
+         * @throws IOException
+         */
+        String write(T element, int page) throws IOException;
+
+        /**
+         * Called after the last element is written or the job is cancelled, e.g., to
+         * wait for elements that are written asynchronously
+         * 
+         * @param cancelled whether the job is cancelled
+         * @return paths of the files written asynchronously
+         * @throws IOException
+         * @throws InterruptedException
+         */
+        default List<String> finish(boolean cancelled) throws IOException, InterruptedException {
+            return List.of();
+        }
+    }
+
+    private static class Element<T> {
+
+        final T element;
+        final int page;
+
+        Element(T element, int page) {
+            this.element = element;
+            this.page = page;
+        }
+    }
+}
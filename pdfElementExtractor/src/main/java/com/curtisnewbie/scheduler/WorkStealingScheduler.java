@@ -0,0 +1,317 @@
+package com.curtisnewbie.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+import com.curtisnewbie.pdfprocess.PageRange;
+import com.curtisnewbie.pdfprocess.PdfProcessor;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Work-stealing scheduler of extraction across many documents. A task is
+ * submitted per document, and the pages of a document are split into
+ * {@link PageRange page ranges} of a few pages that are forked as tasks of
+ * their own. Idle workers steal page ranges from the workers busy with large
+ * documents, so all the workers are kept busy however the sizes of the
+ * documents are spread, rather than one worker grinding a large document while
+ * the others are idle.
+ * </p>
+ * <p>
+ * Page ranges of a document are extracted (e.g., text or rendered pages)
+ * concurrently through the same {@link PdfProcessor}, which uses another
+ * document for each concurrent range, and the results are handed over in page
+ * order. Only a few ranges per worker are extracted ahead of the pages handed
+ * over, so the results waiting for the pages before them are bounded. It must
+ * be shut down when it's no longer used.
+ * </p>
+ */
+public class WorkStealingScheduler {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    /** page ranges forked per worker ahead of the first range that isn't done */
+    private static final int MAX_RANGES_PER_WORKER = 2;
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final ForkJoinPool pool;
+    /** maximum number of pages in a page range task */
+    private final int pagesPerTask;
+
+    /**
+     * Extractor of the elements of each page in a page range
+     * 
+     * @param <T> type of the elements of a page
+     */
+    @FunctionalInterface
+    public interface PageRangeExtractor<T> {
+
+        /**
+         * Extract the elements of each page in the range, and hand over them to the
+         * sink, each page at most once and in any order. Pages not handed over are
+         * handed over as {@code null}.
+         * 
+         * @param processor processor of the document
+         * @param from      from which page (starting at 1)
+         * @param to        to which page (inclusive)
+         * @param sink      sink of the elements and page number
+         */
+        void extract(PdfProcessor processor, int from, int to, ObjIntConsumer<T> sink);
+    }
+
+    /**
+     * @param parallelism  number of workers
+     * @param pagesPerTask maximum number of pages in a page range task, smaller
+     *                     tasks balance the workload better while each of them
+     *                     costs an extra setup of the stripper, the pages are
+     *                     indexed once per document
+     */
+    public WorkStealingScheduler(int parallelism, int pagesPerTask) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), p -> {
+            var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("work-stealing-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        this.pagesPerTask = Math.max(1, pagesPerTask);
+    }
+
+    /**
+     * Submit a task of a document, which may split its pages into page range
+     * tasks, see
+     * {@link #extractByPage(PdfProcessor, PageRange, PageRangeExtractor, ObjIntConsumer, ExtractionControl)}
+     * 
+     * @param task task of the document
+     * @return future of the result
+     */
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        return pool.submit(task);
+    }
+
+    /**
+     * Extract text of each page in the range, the range is split into page range
+     * tasks that are extracted concurrently, and the text of each page is handed
+     * over to the consumer in page order as soon as it and the pages before it
+     * are extracted. The consumer is never called concurrently, but it may be
+     * called by threads other than the caller's. If it's called by a worker of
+     * this scheduler, the worker runs or steals other tasks while waiting for the
+     * page ranges.
+     * 
+     * @param processor processor of the document, it should use a
+     *                  {@code DocumentOpener} to run page ranges concurrently
+     * @param range     pages
+     * @param consumer  consumer of the text and page number, the text is
+     *                  {@code null} if it failed to be extracted
+     * @param control   control of the job
+     * @throws CancellationException if the job is stopped by the control, or the
+     *                               consumer throws it
+     */
+    public void extractTextByPage(PdfProcessor processor, PageRange range, ObjIntConsumer<String> consumer,
+            ExtractionControl control) {
+        extractByPage(processor, range, (p, from, to, sink) -> p.extractTextByPage(from, to, sink), consumer,
+                control);
+    }
+
+    /**
+     * Extract the elements of each page in the range with the extractor, the range
+     * is split into page range tasks the same way as
+     * {@link #extractTextByPage(PdfProcessor, PageRange, ObjIntConsumer, ExtractionControl)},
+     * and the elements of each page are handed over in page order. Work done on
+     * the elements in the extractor (e.g., encoding) runs concurrently, while the
+     * consumer doesn't.
+     * 
+     * @param processor processor of the document
+     * @param range     pages
+     * @param extractor extractor of the elements of a page range
+     * @param consumer  consumer of the elements and page number, the elements are
+     *                  {@code null} if they failed to be extracted
+     * @param control   control of the job
+     * @throws CancellationException if the job is stopped by the control, or the
+     *                               consumer throws it
+     */
+    public <T> void extractByPage(PdfProcessor processor, PageRange range, PageRangeExtractor<T> extractor,
+            ObjIntConsumer<T> consumer, ExtractionControl control) {
+        var sink = new PageOrderSink<T>(range.getFromPage(), consumer);
+        var task = new PageRangesTask<T>(processor, range, extractor, sink, control);
+        if (ForkJoinTask.getPool() == pool)
+            task.invoke();
+        else
+            pool.invoke(task);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Shut down the workers, running tasks are interrupted
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS))
+                logger.warning("Work-stealing scheduler didn't terminate in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Task of the pages of a document, which forks a task per page range in page
+     * order. At most {@link #MAX_RANGES_PER_WORKER} ranges per worker are forked
+     * ahead of the first range that isn't done, so ranges extracted ahead of the
+     * pages handed over are bounded however far the workers get ahead.
+     */
+    private class PageRangesTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient PdfProcessor processor;
+        private final transient PageRange range;
+        private final transient PageRangeExtractor<T> extractor;
+        private final transient PageOrderSink<T> sink;
+        private final transient ExtractionControl control;
+
+        PageRangesTask(PdfProcessor processor, PageRange range, PageRangeExtractor<T> extractor,
+                PageOrderSink<T> sink, ExtractionControl control) {
+            this.processor = processor;
+            this.range = range;
+            this.extractor = extractor;
+            this.sink = sink;
+            this.control = control;
+        }
+
+        @Override
+        protected void compute() {
+            int maxForked = MAX_RANGES_PER_WORKER * getParallelism();
+            Deque<PageRangeTask<T>> forked = new ArrayDeque<>();
+            try {
+                for (int from = range.getFromPage(); from <= range.getToPage(); from += pagesPerTask) {
+                    // the worker runs or steals other ranges while waiting for the first one
+                    if (forked.size() >= maxForked)
+                        forked.removeFirst().join();
+                    int to = Math.min(range.getToPage(), from + pagesPerTask - 1);
+                    forked.addLast(new PageRangeTask<T>(processor, new PageRange(from, to), extractor, sink, control));
+                    forked.getLast().fork();
+                }
+                while (!forked.isEmpty())
+                    forked.removeFirst().join();
+            } catch (RuntimeException | Error e) {
+                // nothing is handed over once the caller returns
+                sink.stop();
+                for (var task : forked)
+                    task.cancel(false);
+                for (var task : forked)
+                    task.quietlyJoin();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Task of a page range of a few pages
+     */
+    private static class PageRangeTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient PdfProcessor processor;
+        private final transient PageRange range;
+        private final transient PageRangeExtractor<T> extractor;
+        private final transient PageOrderSink<T> sink;
+        private final transient ExtractionControl control;
+
+        PageRangeTask(PdfProcessor processor, PageRange range, PageRangeExtractor<T> extractor, PageOrderSink<T> sink,
+                ExtractionControl control) {
+            this.processor = processor;
+            this.range = range;
+            this.extractor = extractor;
+            this.sink = sink;
+            this.control = control;
+        }
+
+        @Override
+        protected void compute() {
+            int from = range.getFromPage();
+            int to = range.getToPage();
+            if (control.isStopped() || Thread.currentThread().isInterrupted() || sink.isStopped())
+                throw new CancellationException("Extraction stopped");
+            Object[] elements = new Object[to - from + 1];
+            // pages are counted by the control when they are handed over in order
+            extractor.extract(processor, from, to, (element, page) -> elements[page - from] = element);
+            sink.accept(from, elements, control);
+        }
+    }
+
+    /**
+     * Hands over the elements of page ranges extracted in any order to the consumer
+     * in page order
+     */
+    private static class PageOrderSink<T> {
+
+        private final ObjIntConsumer<T> consumer;
+        /**
+         * ranges extracted but not handed over, by their first page, they are within
+         * the ranges forked ahead of the first one that isn't done
+         */
+        private final Map<Integer, Object[]> pending = new HashMap<>();
+        private int nextPage;
+        private volatile boolean stopped = false;
+
+        PageOrderSink(int from, ObjIntConsumer<T> consumer) {
+            this.nextPage = from;
+            this.consumer = consumer;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized void accept(int from, Object[] elements, ExtractionControl control) {
+            if (stopped)
+                return;
+            pending.put(from, elements);
+            Object[] next;
+            try {
+                while ((next = pending.remove(nextPage)) != null) {
+                    for (var element : next) {
+                        int page = nextPage++;
+                        control.checkPage(page);
+                        consumer.accept((T) element, page);
+                        control.pageDone(page);
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                // pages after the failed one are never handed over
+                stop();
+                throw e;
+            }
+        }
+
+        /**
+         * Stop handing over elements, the pending ones are dropped
+         */
+        synchronized void stop() {
+            stopped = true;
+            pending.clear();
+        }
+
+        boolean isStopped() {
+            return stopped;
+        }
+    }
+}
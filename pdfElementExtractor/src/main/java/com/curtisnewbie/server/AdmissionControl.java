@@ -0,0 +1,131 @@
+package com.curtisnewbie.server;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Admission control of requests, at most a number of requests run at a time,
+ * and a bounded number of requests wait in a queue for their turn in the order
+ * they arrive. A request is rejected immediately when the queue is full, or
+ * when it has waited too long. It's thread-safe.
+ * </p>
+ */
+class AdmissionControl {
+
+    private final int maxRunning;
+    private final int maxQueued;
+    /** permits of running requests, fair so that requests run in order */
+    private final Semaphore permits;
+    /** requests running or waiting */
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * @param maxRunning number of requests running at a time
+     * @param maxQueued  number of requests waiting for their turn
+     */
+    AdmissionControl(int maxRunning, int maxQueued) {
+        this.maxRunning = Math.max(1, maxRunning);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.permits = new Semaphore(this.maxRunning, true);
+    }
+
+    /**
+     * Wait for the turn of a request, {@link #exit()} must be called after it
+     * runs if it's admitted
+     * 
+     * @param timeout maximum time waiting in the queue
+     * @param unit    unit of the time
+     * @return whether it's admitted, else it's rejected as the queue is full or
+     *         the time is up
+     * @throws InterruptedException
+     */
+    boolean enter(long timeout, TimeUnit unit) throws InterruptedException {
+        int n;
+        do {
+            n = admitted.get();
+            if (n >= maxRunning + maxQueued) {
+                rejected.increment();
+                return false;
+            }
+        } while (!admitted.compareAndSet(n, n + 1));
+
+        boolean acquired = false;
+        try {
+            acquired = permits.tryAcquire(timeout, unit);
+        } finally {
+            if (!acquired)
+                admitted.decrementAndGet();
+        }
+        if (acquired)
+            accepted.increment();
+        else
+            timedOut.increment();
+        return acquired;
+    }
+
+    /**
+     * Count a request rejected before it asks for its turn, e.g., as there is no
+     * thread for it
+     */
+    void reject() {
+        rejected.increment();
+    }
+
+    /**
+     * Release the turn of a request that is done, the next one in the queue runs
+     */
+    void exit() {
+        permits.release();
+        admitted.decrementAndGet();
+    }
+
+    int getMaxRunning() {
+        return maxRunning;
+    }
+
+    int getMaxQueued() {
+        return maxQueued;
+    }
+
+    int getRunning() {
+        return maxRunning - permits.availablePermits();
+    }
+
+    int getQueued() {
+        return Math.max(0, admitted.get() - getRunning());
+    }
+
+    /**
+     * Get the number of requests that are admitted and run
+     */
+    long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * Get the number of requests rejected as the queue is full, or there is no
+     * thread for them
+     */
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get the number of requests rejected as they waited too long
+     */
+    long getTimedOut() {
+        return timedOut.sum();
+    }
+}
@@ -0,0 +1,636 @@
+package com.curtisnewbie.server;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.io.PdfLoadOptions;
+import com.curtisnewbie.io.PdfNotFoundException;
+import com.curtisnewbie.main.LoggerProducer;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.pdfprocess.DocumentCache;
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+import com.curtisnewbie.pdfprocess.FontCache;
+import com.curtisnewbie.pdfprocess.ImageReferences;
+import com.curtisnewbie.pdfprocess.PageRange;
+import com.curtisnewbie.pdfprocess.PdfProcessor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Local HTTP service of extraction, such that other processes extract elements
+ * through a warm JVM rather than starting one per PDF file. A PDF file is
+ * either a local path in the {@code path} parameter, or uploaded as the body of
+ * a {@code POST} request. Paths are resolved against the root directory set by
+ * {@link #setRoot(Path)}, and those outside of it are rejected with 403. Without
+ * a root directory, paths are only accepted when it's bound to a loopback
+ * address. The elements are streamed back as they are extracted:
+ * </p>
+ * <ul>
+ * <li>{@code /text}: JSON Lines, a line per page, e.g.,
+ * {@code {"page":1,"text":"..."}}, and a last line with {@code "done":true},
+ * the number of pages and why it stopped if it did</li>
+ * <li>{@code /images}: {@code multipart/mixed}, a part per image with its page in
+ * {@code X-Page}, images are sent as they are encoded in the PDF file if
+ * possible, else as PNG, and a last JSON part with the pages referencing each
+ * image</li>
+ * <li>{@code /health}: JSON of the requests running and queued, and the
+ * caches</li>
+ * <li>{@code /metrics}: JSON of the global {@link ExtractionMetrics}</li>
+ * </ul>
+ * <p>
+ * Pages are selected with {@code from} and {@code to}, and limited with
+ * {@code timeout} (seconds) and {@code maxPages}. Local PDF files are kept in a
+ * {@link DocumentCache}, so another page range of the same file isn't parsed
+ * again, and fonts are shared through {@link FontCache#shared()}.
+ * </p>
+ * <p>
+ * Requests are admitted by an {@link AdmissionControl}: at most the number of
+ * workers run at a time, a bounded number wait in a queue, and the others are
+ * rejected with 503 immediately. Each request runs on a thread of a bounded
+ * pool, which has a thread for each request that can be admitted and a few
+ * more for requests that are rejected or ask for the status, so a full queue
+ * doesn't keep them waiting. Requests wait for a thread in a bounded queue, and
+ * once it's full they are rejected with 503 by a few threads of their own,
+ * without reading their bodies. Beyond those, the thread accepting requests
+ * closes their connections without reading anything, so a slow client never
+ * holds it up. It has no authentication, it's meant to be bound to the loopback
+ * address.
+ * </p>
+ */
+public class ExtractionServer {
+
+    /** threads of requests that are rejected or ask for the status */
+    private static final int SPARE_THREADS = 2;
+    private static final int BACKLOG = 64;
+    /** requests waiting for a thread, the others are rejected right away */
+    private static final int PENDING_REQUESTS = 16;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    /** whether the request is rejected as there is no thread for it */
+    private static final ThreadLocal<Boolean> overflowed = new ThreadLocal<>();
+
+    private final Logger logger = LoggerProducer.getLogger(this.getClass().getName());
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    /** threads rejecting requests that don't fit in the queue of the executor */
+    private final ThreadPoolExecutor overflowExecutor;
+    private final AdmissionControl admission;
+    private final DocumentCache documentCache = new DocumentCache(Runtime.getRuntime().maxMemory() / 4);
+    private PdfLoadOptions loadOptions = PdfLoadOptions.defaults();
+    private long maxUploadBytes = 256L * 1024 * 1024;
+    private long queueTimeoutMillis = 30_000;
+    /** directory the paths of PDF files are resolved against, may be null */
+    private Path root;
+
+    /**
+     * Create a server, it's started by {@link #start()}
+     * 
+     * @param address       address bound to, e.g., the loopback address
+     * @param workers       number of requests extracting elements at a time
+     * @param queueCapacity number of requests waiting for their turn
+     * @throws IOException if the address can't be bound
+     */
+    public ExtractionServer(InetSocketAddress address, int workers, int queueCapacity) throws IOException {
+        this.admission = new AdmissionControl(workers, queueCapacity);
+        int threads = admission.getMaxRunning() + admission.getMaxQueued() + SPARE_THREADS;
+        this.overflowExecutor = new ThreadPoolExecutor(SPARE_THREADS, SPARE_THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PENDING_REQUESTS), ExtractionServer::newThread, (r, e) -> {
+                    // the connection is closed by the thread accepting requests, which doesn't
+                    // read or run anything of the request
+                    admission.reject();
+                    throw new RejectedExecutionException("Too many requests");
+                });
+        this.overflowExecutor.allowCoreThreadTimeOut(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PENDING_REQUESTS), ExtractionServer::newThread, (r, e) -> {
+                    // the exchange isn't known here, it's rejected by its handler on a thread of
+                    // the overflow executor
+                    overflowExecutor.execute(() -> {
+                        overflowed.set(Boolean.TRUE);
+                        try {
+                            r.run();
+                        } finally {
+                            overflowed.remove();
+                        }
+                    });
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/text", rejectOverflow(e -> extract(e, this::streamText)));
+        server.createContext("/images", rejectOverflow(e -> extract(e, this::streamImages)));
+        server.createContext("/health", rejectOverflow(this::health));
+        server.createContext("/metrics", rejectOverflow(e -> respond(e, 200, ExtractionMetrics.global().toJson())));
+    }
+
+    /**
+     * Set the options of loading PDF files
+     */
+    public void setLoadOptions(PdfLoadOptions loadOptions) {
+        this.loadOptions = loadOptions;
+    }
+
+    /**
+     * Set the maximum size of an uploaded PDF file, larger ones are rejected with
+     * 413
+     * 
+     * @param maxUploadBytes number of bytes
+     */
+    public void setMaxUploadBytes(long maxUploadBytes) {
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    /**
+     * Set how long a request can wait in the queue, it's rejected with 503 once the
+     * time is up
+     * 
+     * @param timeout time
+     * @param unit    unit of the time
+     */
+    public void setQueueTimeout(long timeout, TimeUnit unit) {
+        this.queueTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * Set the directory the paths of PDF files are resolved against, paths outside
+     * of it are rejected with 403
+     * 
+     * @param root directory, or {@code null} to only accept paths when it's bound
+     *             to a loopback address
+     * @throws IOException if the directory doesn't exist
+     */
+    public void setRoot(Path root) throws IOException {
+        this.root = root != null ? root.toRealPath() : null;
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Extraction server is listening on " + getAddress());
+    }
+
+    /**
+     * Get the address bound to, e.g., for the port chosen when it's 0
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stop accepting requests, running requests are given the delay to finish
+     * 
+     * @param delaySeconds seconds running requests are given
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+        overflowExecutor.shutdownNow();
+        documentCache.clear();
+    }
+
+    private static Thread newThread(Runnable r) {
+        var t = new Thread(r, "extraction-server-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+
+    /**
+     * Streamer of the elements of a PDF file in the response
+     */
+    @FunctionalInterface
+    private interface Streamer {
+
+        void stream(HttpExchange exchange, PdfProcessor processor, PageRange range, ExtractionControl control,
+                ExtractionMetrics metrics) throws IOException;
+    }
+
+    /**
+     * Reject the request with 503 without reading its body if there is no thread
+     * for it, else handle it
+     */
+    private HttpHandler rejectOverflow(HttpHandler handler) {
+        return exchange -> {
+            if (overflowed.get() == null) {
+                handler.handle(exchange);
+                return;
+            }
+            try {
+                admission.reject();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respondError(exchange, 503, "Too many requests, try again later");
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    /**
+     * Admit the request, open the PDF file, and stream its elements
+     */
+    private void extract(HttpExchange exchange, Streamer streamer) {
+        try {
+            var method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"POST".equals(method))
+                throw new HttpError(405, "Only GET and POST are supported");
+            var params = parseQuery(exchange.getRequestURI().getRawQuery());
+            var path = params.get("path");
+            if (path == null && !"POST".equals(method))
+                throw new HttpError(400, "Specify the path of a PDF file, or upload it with POST");
+            if (path != null)
+                path = resolve(path);
+            if (path == null)
+                checkUploadSize(exchange);
+            int from = intParam(params, "from", 1);
+            int to = intParam(params, "to", -1);
+            long timeout = intParam(params, "timeout", 0);
+            int maxPages = intParam(params, "maxPages", -1);
+
+            if (!admission.enter(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                throw new HttpError(503, "Too many requests, try again later");
+            }
+            try {
+                var metrics = ExtractionMetrics.newJob(path != null ? path : "upload");
+                var processor = open(exchange, path, metrics);
+                try {
+                    processor.setParallelism(1);
+                    processor.setMetrics(metrics);
+                    var range = processor.validateAndReturnPageRange(from, to);
+                    var control = new ExtractionControl();
+                    control.setTimeout(timeout, TimeUnit.SECONDS);
+                    control.setPageBudget(maxPages);
+                    streamer.stream(exchange, processor, range, control, metrics);
+                } finally {
+                    processor.close();
+                }
+            } finally {
+                admission.exit();
+            }
+        } catch (HttpError e) {
+            respondError(exchange, e.status, e.getMessage());
+        } catch (PdfNotFoundException e) {
+            respondError(exchange, 404, e.getMessage());
+        } catch (UploadTooLargeException e) {
+            respondError(exchange, 413, e.getMessage());
+        } catch (IOException e) {
+            // the PDF file is broken, or the client is gone
+            logger.log(Level.WARNING, "Failed to extract " + exchange.getRequestURI(), e);
+            respondError(exchange, 400, "Failed to read the PDF file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respondError(exchange, 503, "Server is shutting down");
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to extract " + exchange.getRequestURI(), e);
+            respondError(exchange, 500, "Failed to extract: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Resolve the path of the PDF file against the root directory
+     * 
+     * @throws HttpError if it's outside of the root directory, or paths aren't
+     *                   accepted
+     */
+    private String resolve(String path) throws HttpError, IOException {
+        if (root == null) {
+            if (!getAddress().getAddress().isLoopbackAddress())
+                throw new HttpError(403, "Paths are only accepted on the loopback address, upload it with POST");
+            return path;
+        }
+        Path file;
+        try {
+            file = root.resolve(path).normalize();
+        } catch (InvalidPathException e) {
+            throw new HttpError(400, "Invalid path: " + e.getMessage());
+        }
+        // links are followed, so they can't point out of the root directory either
+        if (Files.exists(file))
+            file = file.toRealPath();
+        if (!file.startsWith(root))
+            throw new HttpError(403, "Path is outside of the root directory");
+        return file.toString();
+    }
+
+    /**
+     * Open the local PDF file through the document cache, or read the uploaded one
+     */
+    private PdfProcessor open(HttpExchange exchange, String path, ExtractionMetrics metrics) throws IOException {
+        if (path != null)
+            return new PdfProcessor(documentCache.acquire(path, loadOptions, metrics),
+                    () -> IOManager.readPdfFile(path, loadOptions, metrics));
+        try (var in = new LimitedInputStream(exchange.getRequestBody(), maxUploadBytes)) {
+            return new PdfProcessor(IOManager.readPdf(in, loadOptions, metrics));
+        }
+    }
+
+    /**
+     * Stream the text of each page as JSON Lines
+     */
+    private void streamText(HttpExchange exchange, PdfProcessor processor, PageRange range,
+            ExtractionControl control, ExtractionMetrics metrics) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        var out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+        int[] pages = { 0, 0 };
+        String error = null;
+        var sb = new StringBuilder();
+        try {
+            processor.extractTextByPage(range.getFromPage(), range.getToPage(), (text, page) -> {
+                sb.setLength(0);
+                sb.append("{\"page\":").append(page);
+                if (text != null) {
+                    pages[0]++;
+                    sb.append(",\"text\":");
+                    ExtractionMetrics.appendString(sb, text);
+                } else {
+                    pages[1]++;
+                    sb.append(",\"error\":\"Failed to extract text\"");
+                }
+                writeFlushed(out, sb.append("}\n").toString());
+            }, control);
+        } catch (CancellationException e) {
+            error = e.getMessage();
+        } catch (UncheckedIOException e) {
+            // the client is gone
+            logger.info("Client of " + exchange.getRequestURI() + " is gone: " + e.getMessage());
+            return;
+        }
+        sb.setLength(0);
+        sb.append("{\"done\":true,\"pages\":").append(pages[0]).append(",\"failedPages\":").append(pages[1]);
+        appendStop(sb, control, error);
+        out.write(sb.append("}\n").toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Stream the images as parts of {@code multipart/mixed}
+     */
+    private void streamImages(HttpExchange exchange, PdfProcessor processor, PageRange range,
+            ExtractionControl control, ExtractionMetrics metrics) throws IOException {
+        var boundary = "pdf-element-extractor-" + UUID.randomUUID();
+        exchange.getResponseHeaders().set("Content-Type", "multipart/mixed; boundary=" + boundary);
+        exchange.sendResponseHeaders(200, 0);
+        var out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+        processor.setDeduplicateImages(true, true);
+        // images are written by this thread, so a client that is gone fails the extraction
+        processor.setMaxImagesInFlight(1);
+        List<String> filenames = new ArrayList<>();
+        List<Integer> imagePages = new ArrayList<>();
+        String error = null;
+        ImageReferences refs = null;
+        try {
+            refs = processor.extractImagesPassthrough(range.getFromPage(), range.getToPage(), (img, page) -> {
+                try {
+                    var bytes = img.isEncoded() ? img.getEncoded() : IOManager.encodePng(img.getImage(), metrics);
+                    var filename = "img" + filenames.size() + "." + img.getFormat();
+                    filenames.add(filename);
+                    imagePages.add(page);
+                    var header = "--" + boundary + "\r\nContent-Type: " + contentType(img.getFormat())
+                            + "\r\nContent-Disposition: attachment; filename=\"" + filename + "\"\r\nX-Page: " + page
+                            + "\r\nContent-Length: " + bytes.length + "\r\n\r\n";
+                    out.write(header.getBytes(StandardCharsets.US_ASCII));
+                    out.write(bytes);
+                    out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, control);
+        } catch (CancellationException e) {
+            error = e.getMessage();
+        } catch (UncheckedIOException e) {
+            logger.info("Client of " + exchange.getRequestURI() + " is gone: " + e.getMessage());
+            return;
+        }
+
+        // pages referencing each image, images shared by pages are sent once
+        var sb = new StringBuilder("{\"done\":true,\"images\":[");
+        for (int i = 0; i < filenames.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"filename\":");
+            ExtractionMetrics.appendString(sb, filenames.get(i));
+            sb.append(",\"pages\":[");
+            var pages = refs != null && i < refs.getImageCount() ? refs.getPages(i) : List.of(imagePages.get(i));
+            for (int j = 0; j < pages.size(); j++)
+                sb.append(j > 0 ? "," : "").append(pages.get(j));
+            sb.append("]}");
+        }
+        sb.append(']');
+        appendStop(sb, control, error);
+        sb.append('}');
+        var header = "--" + boundary + "\r\nContent-Type: application/json; charset=utf-8\r\n\r\n";
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        try {
+            var fonts = FontCache.shared();
+            var sb = new StringBuilder("{\"status\":\"ok\"");
+            sb.append(",\"workers\":").append(admission.getMaxRunning());
+            sb.append(",\"running\":").append(admission.getRunning());
+            sb.append(",\"queued\":").append(admission.getQueued());
+            sb.append(",\"queueCapacity\":").append(admission.getMaxQueued());
+            sb.append(",\"accepted\":").append(admission.getAccepted());
+            sb.append(",\"rejected\":").append(admission.getRejected());
+            sb.append(",\"timedOut\":").append(admission.getTimedOut());
+            sb.append(",\"documentCacheBytes\":").append(documentCache.getEstimatedBytes());
+            sb.append(",\"fontCache\":{\"hits\":").append(fonts.getHits());
+            sb.append(",\"misses\":").append(fonts.getMisses());
+            sb.append(",\"evictions\":").append(fonts.getEvictions());
+            sb.append(",\"bytes\":").append(fonts.getEstimatedBytes()).append("}}");
+            respond(exchange, 200, sb.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void appendStop(StringBuilder sb, ExtractionControl control, String error) {
+        var reason = control.getStopReason();
+        sb.append(",\"stopped\":");
+        ExtractionMetrics.appendString(sb, reason != null ? reason.name() : null);
+        if (error != null && reason == null) {
+            sb.append(",\"error\":");
+            ExtractionMetrics.appendString(sb, error);
+        }
+    }
+
+    private static void writeFlushed(OutputStream out, String s) {
+        try {
+            out.write(s.getBytes(StandardCharsets.UTF_8));
+            // each page is sent as soon as it's extracted
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentType(String format) {
+        switch (format) {
+            case "jpg":
+                return "image/jpeg";
+            case "jp2":
+                return "image/jp2";
+            default:
+                return "image/" + format;
+        }
+    }
+
+    private void checkUploadSize(HttpExchange exchange) throws UploadTooLargeException {
+        var length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length == null)
+            return;
+        try {
+            if (Long.parseLong(length.trim()) > maxUploadBytes)
+                throw new UploadTooLargeException(maxUploadBytes);
+        } catch (NumberFormatException e) {
+            // it's limited while it's read
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        var bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Respond with the error as JSON, unless the response is already started
+     */
+    private void respondError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1)
+            return;
+        var sb = new StringBuilder("{\"error\":");
+        ExtractionMetrics.appendString(sb, message);
+        try {
+            respond(exchange, status, sb.append('}').toString());
+        } catch (IOException e) {
+            logger.fine("Failed to respond to " + exchange.getRequestURI() + ": " + e.getMessage());
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty())
+            return params;
+        for (var pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            var key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            var value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) throws HttpError {
+        var value = params.get(name);
+        if (value == null || value.isEmpty())
+            return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, name + " should be an integer");
+        }
+    }
+
+    /**
+     * Error responded with its status
+     */
+    private static class HttpError extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Uploaded PDF file is larger than the maximum
+     */
+    private static class UploadTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        UploadTooLargeException(long maxBytes) {
+            super("Uploaded PDF file is larger than " + maxBytes + " bytes");
+        }
+    }
+
+    /**
+     * Stream that fails once more than the maximum bytes are read
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long read = 0;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count(n);
+            return n;
+        }
+
+        private void count(int n) throws UploadTooLargeException {
+            read += n;
+            if (read > maxBytes)
+                throw new UploadTooLargeException(maxBytes);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.curtisnewbie;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * PDF files generated for tests, page {@code n} has the text
+ * {@link #textOf(int)}
+ * </p>
+ */
+public class TestPdfs {
+
+    /**
+     * Text of the page
+     * 
+     * @param page page number (starting at 1)
+     */
+    public static String textOf(int page) {
+        return "Page " + page;
+    }
+
+    /**
+     * Create a document of pages with text, it's saved and parsed again like a
+     * PDF file
+     * 
+     * @param pages number of pages
+     */
+    public static PDDocument textDocument(int pages) throws IOException {
+        return PDDocument.load(textBytes(pages));
+    }
+
+    /**
+     * Write a PDF file of pages with text
+     * 
+     * @param file  path of the PDF file
+     * @param pages number of pages
+     */
+    public static Path textFile(Path file, int pages) throws IOException {
+        Files.write(file, textBytes(pages));
+        return file;
+    }
+
+    /**
+     * Create a PDF file of pages with text
+     * 
+     * @param pages number of pages
+     */
+    public static byte[] textBytes(int pages) throws IOException {
+        try (var doc = new PDDocument()) {
+            for (int i = 1; i <= pages; i++)
+                addTextPage(doc, textOf(i));
+            return save(doc);
+        }
+    }
+
+    /**
+     * Add a page with a line of text
+     */
+    public static PDPage addTextPage(PDDocument doc, String text) throws IOException {
+        var page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        try (var cs = new PDPageContentStream(doc, page)) {
+            cs.beginText();
+            cs.setFont(PDType1Font.HELVETICA, 12);
+            cs.newLineAtOffset(40, 800);
+            cs.showText(text);
+            cs.endText();
+        }
+        return page;
+    }
+
+    /**
+     * Add a page that draws the images
+     */
+    public static PDPage addImagePage(PDDocument doc, PDImageXObject... images) throws IOException {
+        var page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        try (var cs = new PDPageContentStream(doc, page)) {
+            int y = 700;
+            for (var image : images) {
+                cs.drawImage(image, 40, y, image.getWidth(), image.getHeight());
+                y -= image.getHeight() + 10;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Create a lossless image of a single color
+     */
+    public static PDImageXObject pngImage(PDDocument doc, int width, int height, Color color) throws IOException {
+        return LosslessFactory.createFromImage(doc, image(width, height, color));
+    }
+
+    /**
+     * Create an RGB image of a single color
+     */
+    public static BufferedImage image(int width, int height, Color color) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        try {
+            g.setColor(color);
+            g.fillRect(0, 0, width, height);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Save the document and parse it again like a PDF file
+     */
+    public static PDDocument reload(PDDocument doc) throws IOException {
+        return PDDocument.load(save(doc));
+    }
+
+    private static byte[] save(PDDocument doc) throws IOException {
+        var out = new ByteArrayOutputStream();
+        doc.save(out);
+        return out.toByteArray();
+    }
+}
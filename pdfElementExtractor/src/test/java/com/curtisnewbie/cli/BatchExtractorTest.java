@@ -0,0 +1,171 @@
+package com.curtisnewbie.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.curtisnewbie.TestPdfs;
+import com.curtisnewbie.io.ExtractionManifest;
+import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+import com.curtisnewbie.pdfprocess.PageRange;
+import com.curtisnewbie.scheduler.WorkStealingScheduler;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BatchExtractorTest {
+
+    @TempDir
+    Path tmp;
+
+    private WorkStealingScheduler scheduler;
+
+    @BeforeEach
+    public void create() {
+        scheduler = new WorkStealingScheduler(2, 2);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void unchangedFileIsSkipped() throws IOException {
+        var pdf = TestPdfs.textFile(tmp.resolve("a.pdf"), 5);
+        var out = tmp.resolve("out");
+        var extractor = extractor(out);
+
+        var first = extractor.extract(pdf, out, scheduler);
+        assertFalse(first.skipped);
+        assertEquals(5, first.pages);
+        assertEquals(TestPdfs.textOf(3), Files.readString(text(out, "page3.txt")).trim());
+
+        assertTrue(extractor.extract(pdf, out, scheduler).skipped);
+
+        // a file recorded by the manifest is gone
+        Files.delete(text(out, "page3.txt"));
+        var third = extractor.extract(pdf, out, scheduler);
+        assertFalse(third.skipped);
+        assertEquals(1, third.pages);
+        assertEquals(4, third.reusedPages);
+        assertTrue(Files.exists(text(out, "page3.txt")));
+    }
+
+    @Test
+    public void onlyChangedPagesAreExtractedAgain() throws IOException {
+        var pdf = TestPdfs.textFile(tmp.resolve("a.pdf"), 5);
+        var out = tmp.resolve("out");
+        var extractor = extractor(out);
+        extractor.extract(pdf, out, scheduler);
+
+        try (var doc = new PDDocument()) {
+            for (int i = 1; i <= 5; i++)
+                TestPdfs.addTextPage(doc, i == 2 ? "Changed" : TestPdfs.textOf(i));
+            doc.save(pdf.toFile());
+        }
+        Files.setLastModifiedTime(pdf, FileTime.fromMillis(Files.getLastModifiedTime(pdf).toMillis() + 2000));
+
+        var second = extractor.extract(pdf, out, scheduler);
+        assertFalse(second.skipped);
+        assertEquals(1, second.pages);
+        assertEquals(4, second.reusedPages);
+        assertEquals("Changed", Files.readString(text(out, "page2.txt")).trim());
+        assertEquals(TestPdfs.textOf(5), Files.readString(text(out, "page5.txt")).trim());
+        assertTrue(ExtractionManifest.read(out).isUpToDate(f -> Files.exists(out.resolve(f)), Files.size(pdf),
+                Files.getLastModifiedTime(pdf).toMillis(), ExtractionManifest.read(out).getOptions()));
+    }
+
+    @Test
+    public void nothingIsReusedWhenNotIncremental() throws IOException {
+        var pdf = TestPdfs.textFile(tmp.resolve("a.pdf"), 3);
+        var out = tmp.resolve("out");
+        var extractor = extractor(out);
+        extractor.setIncremental(false);
+        extractor.extract(pdf, out, scheduler);
+        // pages aren't fingerprinted as they are never compared
+        assertNull(ExtractionManifest.read(out).getFingerprint(1));
+
+        var second = extractor.extract(pdf, out, scheduler);
+        assertFalse(second.skipped);
+        assertEquals(3, second.pages);
+        assertEquals(0, second.reusedPages);
+    }
+
+    @Test
+    public void fileStoppedByPageBudgetIsExtractedAgain() throws IOException {
+        var pdf = TestPdfs.textFile(tmp.resolve("a.pdf"), 200);
+        var out = tmp.resolve("out");
+        var extractor = extractor(out);
+        extractor.setMaxPages(5);
+
+        var first = extractor.extract(pdf, out, scheduler);
+        assertTrue(first.stopped);
+        assertTrue(first.pages < 200);
+        assertTrue(Files.exists(text(out, "page1.txt")));
+        assertFalse(Files.exists(text(out, "page200.txt")));
+
+        extractor.setMaxPages(-1);
+        var second = extractor.extract(pdf, out, scheduler);
+        assertFalse(second.skipped);
+        assertFalse(second.stopped);
+        assertEquals(200, second.pages + second.reusedPages);
+        assertTrue(second.reusedPages > 0);
+        assertTrue(Files.exists(text(out, "page200.txt")));
+    }
+
+    @Test
+    public void pageRangesRunOnAllTheWorkersAtOnce() throws Exception {
+        int workers = 4;
+        var wide = new WorkStealingScheduler(workers, 1);
+        var pdf = TestPdfs.textFile(tmp.resolve("a.pdf"), 2 * workers);
+        var processor = extractor(tmp.resolve("out")).openProcessor(pdf.toString(), ExtractionMetrics.newJob("test"),
+                wide);
+        try {
+            // each range holds its document until the ranges of all the workers are running
+            var running = new CountDownLatch(workers);
+            var together = new AtomicBoolean(true);
+            wide.<String>extractByPage(processor, new PageRange(1, 2 * workers), (p, from, to, sink) -> {
+                p.extractTextByPage(from, to, (txt, page) -> {
+                    running.countDown();
+                    try {
+                        if (!running.await(10, TimeUnit.SECONDS))
+                            together.set(false);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    sink.accept(txt, page);
+                });
+            }, (txt, page) -> assertEquals(TestPdfs.textOf(page), txt.trim()), new ExtractionControl());
+            assertTrue(together.get());
+        } finally {
+            processor.close();
+            wide.shutdown();
+        }
+    }
+
+    private static Path text(Path out, String filename) {
+        return out.resolve(IOManager.TEXT_DIR).resolve(filename);
+    }
+
+    private static BatchExtractor extractor(Path out) {
+        var extractor = new BatchExtractor(out.toString());
+        extractor.setExtractImages(false);
+        extractor.setFontCache(null);
+        return extractor;
+    }
+}
@@ -0,0 +1,92 @@
+package com.curtisnewbie.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.imageio.ImageIO;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ContainerWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void entriesAreReadAsTheyAreWritten() throws IOException {
+        var file = dir.resolve("elements.zip");
+        byte[] jpeg = { (byte) 0xff, (byte) 0xd8, 1, 2, 3 };
+        try (var writer = new ContainerWriter(file)) {
+            assertEquals("text/page1.txt", writer.writeText(1, "first page", "page1.txt"));
+            assertEquals("images/a.jpg", writer.writeImage(1, jpeg, "a.jpg"));
+            writer.writeImage(3, TestPdfs.image(8, 4, Color.RED), "b.png");
+            writer.writeText(3, "third page ü", "page3.txt");
+            // an image first found in page 1
+            writer.addReference(3, "images/a.jpg");
+            writer.addReference(3, "images/a.jpg");
+        }
+
+        try (var reader = new ContainerReader(file)) {
+            assertEquals(Set.of(1, 3), reader.getPages());
+            assertEquals(List.of("text/page1.txt", "images/a.jpg"), reader.getEntries(1));
+            assertEquals(List.of("images/b.png", "text/page3.txt", "images/a.jpg"), reader.getEntries(3));
+            assertEquals(List.of(), reader.getEntries(2));
+            assertEquals("first page", reader.readText(1));
+            assertEquals("third page ü", reader.readText(3));
+            assertNull(reader.readText(2));
+            assertArrayEquals(jpeg, reader.read("images/a.jpg"));
+            assertTrue(reader.contains("images/b.png"));
+            assertFalse(reader.contains("images/c.png"));
+            assertThrows(IOException.class, () -> reader.read("images/c.png"));
+
+            var png = ImageIO.read(new ByteArrayInputStream(reader.read("images/b.png")));
+            assertEquals(8, png.getWidth());
+            assertEquals(4, png.getHeight());
+            assertEquals(Color.RED.getRGB(), png.getRGB(1, 1));
+        }
+    }
+
+    @Test
+    public void containerIsReplacedOnlyWhenClosed() throws IOException {
+        var file = dir.resolve("elements.zip");
+        try (var writer = new ContainerWriter(file)) {
+            writer.writeText(1, "old", "page1.txt");
+        }
+
+        var writer = new ContainerWriter(file);
+        writer.writeText(1, "new", "page1.txt");
+        writer.abort();
+        try (var reader = new ContainerReader(file)) {
+            assertEquals("old", reader.readText(1));
+        }
+
+        try (var reader = new ContainerReader(file); var copy = new ContainerWriter(file)) {
+            // entries copied from the container being replaced
+            copy.writeEntry(1, "text/page1.txt", reader.read("text/page1.txt"));
+            copy.writeText(2, "new", "page2.txt");
+        }
+        try (var reader = new ContainerReader(file)) {
+            assertEquals("old", reader.readText(1));
+            assertEquals("new", reader.readText(2));
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.collect(Collectors.toList()));
+        }
+    }
+}
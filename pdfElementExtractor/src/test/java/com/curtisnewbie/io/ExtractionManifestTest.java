@@ -0,0 +1,108 @@
+package com.curtisnewbie.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ExtractionManifestTest {
+
+    private static final String OPTIONS = "pages=1--1 text=true";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void manifestIsReadAsItIsWritten() throws IOException {
+        var manifest = manifest();
+        manifest.setComplete(true);
+        manifest.setImagesExtracted(true);
+        manifest.write(dir);
+
+        var read = ExtractionManifest.read(dir);
+        assertNotNull(read);
+        assertEquals(OPTIONS, read.getOptions());
+        assertTrue(read.isImagesExtracted());
+        assertEquals("aaa", read.getFingerprint(1));
+        assertNull(read.getFingerprint(2));
+        assertEquals("page1.txt", read.getTextFile(1));
+        assertNull(read.getTextFile(2));
+        assertEquals(List.of("image1.png", "image2.png"), read.getImageFiles(1));
+        assertEquals(List.of("render2.png"), read.getRenderFiles(2));
+        assertEquals(Set.of("page1.txt", "image1.png", "image2.png", "render2.png"), read.getFiles());
+        assertTrue(read.isUpToDate(f -> true, 100, 200, OPTIONS));
+        assertFalse(Files.exists(dir.resolve(ExtractionManifest.FILENAME + ".tmp")));
+    }
+
+    @Test
+    public void missingOrInvalidManifestIsIgnored() throws IOException {
+        assertNull(ExtractionManifest.read(dir));
+
+        Files.writeString(dir.resolve(ExtractionManifest.FILENAME), "not a manifest\n");
+        assertNull(ExtractionManifest.read(dir));
+
+        manifest().write(dir);
+        assertNotNull(ExtractionManifest.read(dir));
+        ExtractionManifest.delete(dir);
+        assertNull(ExtractionManifest.read(dir));
+    }
+
+    @Test
+    public void onlyCompleteExtractionOfTheSameFileIsUpToDate() {
+        var manifest = manifest();
+        assertFalse(manifest.isUpToDate(f -> true, 100, 200, OPTIONS));
+
+        manifest.setComplete(true);
+        assertTrue(manifest.isUpToDate(f -> true, 100, 200, OPTIONS));
+        assertFalse(manifest.isUpToDate(f -> true, 101, 200, OPTIONS));
+        assertFalse(manifest.isUpToDate(f -> true, 100, 201, OPTIONS));
+        assertFalse(manifest.isUpToDate(f -> true, 100, 200, OPTIONS + " images=true"));
+        assertFalse(manifest.isUpToDate(f -> !f.equals("image2.png"), 100, 200, OPTIONS));
+    }
+
+    @Test
+    public void pagesAreTheSameOnlyWithKnownFingerprints() {
+        var previous = new ExtractionManifest(100, 200, OPTIONS);
+        previous.setPage(1, "aaa");
+        previous.setPage(2, "bbb");
+
+        var current = new ExtractionManifest(100, 300, OPTIONS);
+        current.setPage(1, "aaa");
+        current.setPage(2, "bbb");
+        assertTrue(current.hasSamePages(previous));
+
+        current.setPage(2, "ccc");
+        assertFalse(current.hasSamePages(previous));
+
+        // unknown fingerprint, the page may have changed
+        current.setPage(2, null);
+        previous.setPage(2, null);
+        assertFalse(current.hasSamePages(previous));
+
+        current.setPage(2, "bbb");
+        previous.setPage(2, "bbb");
+        current.setPage(3, "ddd");
+        assertFalse(current.hasSamePages(previous));
+    }
+
+    private static ExtractionManifest manifest() {
+        var manifest = new ExtractionManifest(100, 200, OPTIONS);
+        manifest.setPage(1, "aaa");
+        manifest.setPage(2, null);
+        manifest.setTextFile(1, "page1.txt");
+        manifest.addImageFile(1, "image1.png");
+        manifest.addImageFile(1, "image2.png");
+        manifest.addRenderFile(2, "render2.png");
+        return manifest;
+    }
+}
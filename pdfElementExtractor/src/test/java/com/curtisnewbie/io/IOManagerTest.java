@@ -0,0 +1,111 @@
+package com.curtisnewbie.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import com.curtisnewbie.TestPdfs;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IOManagerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void imageIsEncodedStraightIntoTheFile() throws Exception {
+        var metrics = ExtractionMetrics.newJob("test");
+        var image = TestPdfs.image(30, 20, Color.BLUE);
+        var path = Path.of(IOManager.writeElementToFile(dir.toString(), image, "a.png", metrics));
+
+        assertEquals(dir.resolve(IOManager.IMAGE_DIR).resolve("a.png"), path);
+        assertArrayEquals(IOManager.encodePng(image, ExtractionMetrics.newJob("test")), Files.readAllBytes(path));
+        assertSameImage(image, path);
+        assertEquals(Files.size(path), metrics.getCount(Counter.BYTES_WRITTEN));
+        assertEquals(1, metrics.getCount(Counter.FILES_WRITTEN));
+        // encoding and writing are timed as one
+        assertEquals(1, metrics.getTimer(Stage.ENCODE).getCount());
+        assertEquals(0, metrics.getTimer(Stage.WRITE).getCount());
+    }
+
+    @Test
+    public void sessionEncodesImagesStraightIntoFilesUnlessCoalesced() throws Exception {
+        var metrics = ExtractionMetrics.newJob("test");
+        var image = TestPdfs.image(30, 20, Color.GREEN);
+        Path streamed;
+        Path coalesced;
+        try (var session = IOManager.openSession(dir.toString(), metrics)) {
+            session.setSyncPolicy(OutputSession.SyncPolicy.EACH_FILE);
+            streamed = Path.of(session.writeImage(image, "a.png"));
+            assertTrue(Files.exists(streamed));
+
+            session.setCoalesceBytes(1 << 20);
+            coalesced = Path.of(session.writeImage(image, "b.png"));
+            assertFalse(Files.exists(coalesced));
+        }
+        assertArrayEquals(Files.readAllBytes(streamed), Files.readAllBytes(coalesced));
+        assertSameImage(image, streamed);
+        assertEquals(2, metrics.getCount(Counter.FILES_WRITTEN));
+        assertEquals(Files.size(streamed) * 2, metrics.getCount(Counter.BYTES_WRITTEN));
+    }
+
+    @Test
+    public void mappedFileIsParsedLikeTheDefault() throws Exception {
+        var pdf = dir.resolve("doc.pdf");
+        try (var doc = TestPdfs.textDocument(5)) {
+            TestPdfs.addImagePage(doc, TestPdfs.pngImage(doc, 12, 8, Color.RED));
+            doc.save(pdf.toFile());
+        }
+        var mapped = new PdfLoadOptions(PdfLoadOptions.MemoryMode.TEMP_FILE_ONLY, -1, true);
+        try (var expected = IOManager.readPdfFile(pdf.toString());
+                var actual = IOManager.readPdfFile(pdf.toString(), mapped, ExtractionMetrics.newJob("test"))) {
+            assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+            assertEquals(new PDFTextStripper().getText(expected), new PDFTextStripper().getText(actual));
+            assertArrayEquals(imageBytes(expected), imageBytes(actual));
+        }
+    }
+
+    @Test
+    public void mixedMemoryRequiresLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PdfLoadOptions(PdfLoadOptions.MemoryMode.MIXED, -1, false));
+        new PdfLoadOptions(PdfLoadOptions.MemoryMode.MIXED, 1 << 20, false);
+    }
+
+    private static byte[] imageBytes(PDDocument doc) throws IOException {
+        var resources = doc.getPage(doc.getNumberOfPages() - 1).getResources();
+        var name = resources.getXObjectNames().iterator().next();
+        var image = (PDImageXObject) resources.getXObject(name);
+        try (var in = image.getCOSObject().createRawInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void assertSameImage(BufferedImage expected, Path path) throws IOException {
+        var actual = ImageIO.read(path.toFile());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+        }
+    }
+}
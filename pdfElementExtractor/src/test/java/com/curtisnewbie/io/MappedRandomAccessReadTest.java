@@ -0,0 +1,200 @@
+package com.curtisnewbie.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class MappedRandomAccessReadTest {
+
+    /** chunks of 16 bytes */
+    private static final int CHUNK_BITS = 4;
+    private static final int LENGTH = 100;
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private byte[] bytes;
+
+    @BeforeEach
+    public void create() throws IOException {
+        bytes = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++)
+            bytes[i] = (byte) (i * 7);
+        file = Files.write(dir.resolve("file"), bytes);
+    }
+
+    @Test
+    public void readsAcrossTheEndOfChunks() throws IOException {
+        try (var read = new MappedRandomAccessRead(file.toFile(), CHUNK_BITS)) {
+            assertEquals(LENGTH, read.length());
+            read.seek(10);
+            var b = new byte[40];
+            assertEquals(40, read.read(b));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 10, 50), b);
+            assertEquals(50, read.getPosition());
+
+            // only the remaining bytes are read
+            read.seek(90);
+            assertEquals(10, read.read(b, 5, 40));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 90, 100), Arrays.copyOfRange(b, 5, 15));
+            assertEquals(-1, read.read(b));
+            assertEquals(-1, read.read());
+        }
+    }
+
+    @Test
+    public void eachByteIsReadAtItsPosition() throws IOException {
+        try (var read = new MappedRandomAccessRead(file.toFile(), CHUNK_BITS)) {
+            for (int i = 0; i < LENGTH; i++) {
+                assertEquals(i, read.getPosition());
+                assertEquals(bytes[i] & 0xff, read.read());
+            }
+            assertTrue(read.isEOF());
+        }
+    }
+
+    @Test
+    public void peekAndRewindKeepThePosition() throws IOException {
+        try (var read = new MappedRandomAccessRead(file.toFile(), CHUNK_BITS)) {
+            read.seek(15);
+            assertEquals(bytes[15] & 0xff, read.peek());
+            assertEquals(15, read.getPosition());
+            assertEquals(bytes[15] & 0xff, read.read());
+            assertEquals(bytes[16] & 0xff, read.read());
+
+            read.rewind(2);
+            assertEquals(15, read.getPosition());
+            assertArrayEquals(Arrays.copyOfRange(bytes, 15, 20), read.readFully(5));
+
+            read.seek(LENGTH);
+            assertEquals(-1, read.peek());
+            assertEquals(LENGTH, read.getPosition());
+        }
+    }
+
+    @Test
+    public void endOfFileIsReported() throws IOException {
+        try (var read = new MappedRandomAccessRead(file.toFile(), CHUNK_BITS)) {
+            read.seek(LENGTH - 1);
+            assertFalse(read.isEOF());
+            assertEquals(1, read.available());
+            read.read();
+            assertTrue(read.isEOF());
+            assertEquals(0, read.available());
+
+            // seeking beyond the end is allowed, but nothing is read
+            read.seek(LENGTH + 10);
+            assertTrue(read.isEOF());
+            assertEquals(0, read.available());
+            assertEquals(-1, read.read());
+
+            read.seek(LENGTH - 3);
+            assertThrows(EOFException.class, () -> read.readFully(4));
+            assertThrows(IOException.class, () -> read.seek(-1));
+        }
+    }
+
+    @Test
+    public void closedReadIsNotUsable() throws IOException {
+        var read = new MappedRandomAccessRead(file.toFile(), CHUNK_BITS);
+        read.close();
+        assertTrue(read.isClosed());
+        assertThrows(IOException.class, () -> read.read());
+        assertThrows(IOException.class, () -> read.seek(0));
+        assertThrows(IOException.class, () -> read.length());
+    }
+
+    @Test
+    public void emptyFileIsRead() throws IOException {
+        var empty = Files.createFile(dir.resolve("empty"));
+        try (var read = new MappedRandomAccessRead(empty.toFile())) {
+            assertEquals(0, read.length());
+            assertTrue(read.isEOF());
+            assertEquals(-1, read.read());
+            assertEquals(-1, read.read(new byte[4]));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 4, 30 })
+    public void readsLikeTheDefaultReader(int chunkBits) throws IOException {
+        var random = new Random(chunkBits);
+        try (var mapped = new MappedRandomAccessRead(file.toFile(), chunkBits);
+                var buffered = new RandomAccessBufferedFileInputStream(file.toFile())) {
+            for (int i = 0; i < 500; i++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        long position = random.nextInt(LENGTH + 1);
+                        mapped.seek(position);
+                        buffered.seek(position);
+                        break;
+                    case 1:
+                        assertEquals(buffered.read(), mapped.read());
+                        break;
+                    case 2:
+                        assertEquals(buffered.peek(), mapped.peek());
+                        break;
+                    default:
+                        int len = random.nextInt(40);
+                        assertArrayEquals(readBytes(buffered, len), readBytes(mapped, len));
+                }
+                assertEquals(buffered.getPosition(), mapped.getPosition());
+                assertEquals(buffered.isEOF(), mapped.isEOF());
+            }
+        }
+    }
+
+    @Test
+    public void filesLargerThan2GbAreRead() throws IOException {
+        // sparse file with bytes written across the end of the second chunk
+        long end = 3L << 30;
+        long offset = (2L << 30) - 3;
+        var large = dir.resolve("large");
+        try (var out = new RandomAccessFile(large.toFile(), "rw")) {
+            out.setLength(end);
+            out.seek(offset);
+            out.write(bytes, 0, 10);
+            out.seek(end - 1);
+            out.write(42);
+        }
+        try (var read = new MappedRandomAccessRead(large.toFile())) {
+            assertEquals(end, read.length());
+            read.seek(offset);
+            assertArrayEquals(Arrays.copyOf(bytes, 10), read.readFully(10));
+            assertEquals(offset + 10, read.getPosition());
+
+            read.seek(offset + 5);
+            assertEquals(bytes[5] & 0xff, read.peek());
+            read.seek(end - 1);
+            assertEquals(42, read.read());
+            assertTrue(read.isEOF());
+        } finally {
+            Files.delete(large);
+        }
+    }
+
+    private static byte[] readBytes(RandomAccessRead read, int len) throws IOException {
+        var b = new byte[len];
+        int n = read.read(b, 0, len);
+        return n <= 0 ? new byte[0] : Arrays.copyOf(b, n);
+    }
+}
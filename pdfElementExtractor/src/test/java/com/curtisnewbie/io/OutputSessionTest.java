@@ -0,0 +1,134 @@
+package com.curtisnewbie.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.curtisnewbie.TestPdfs;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.metrics.ExtractionMetrics.Counter;
+import com.curtisnewbie.metrics.ExtractionMetrics.Stage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutputSessionTest {
+
+    @TempDir
+    Path dir;
+
+    private ExtractionMetrics metrics;
+    /** files and directories synced by the session */
+    private List<Path> synced;
+    private OutputSession session;
+
+    @BeforeEach
+    public void create() {
+        metrics = ExtractionMetrics.newJob("test");
+        synced = new ArrayList<>();
+        session = new OutputSession(dir, metrics) {
+
+            @Override
+            void sync(Path file) throws IOException {
+                synchronized (synced) {
+                    synced.add(file);
+                }
+                super.sync(file);
+            }
+        };
+    }
+
+    @Test
+    public void pendingFilesAreWrittenOnceCoalesceBytesArePending() throws IOException {
+        session.setCoalesceBytes(100);
+        var a = Path.of(session.writeText("a".repeat(40), "a.txt"));
+        var b = Path.of(session.writeText("b".repeat(40), "b.txt"));
+        assertFalse(Files.exists(a));
+        assertFalse(Files.exists(b));
+
+        // files as large as the limit are written right away
+        var large = Path.of(session.writeText("l".repeat(100), "large.txt"));
+        assertEquals("l".repeat(100), Files.readString(large));
+        assertFalse(Files.exists(a));
+
+        var c = Path.of(session.writeText("c".repeat(20), "c.txt"));
+        assertEquals("a".repeat(40), Files.readString(a));
+        assertEquals("b".repeat(40), Files.readString(b));
+        assertEquals("c".repeat(20), Files.readString(c));
+        assertEquals(4, metrics.getCount(Counter.FILES_WRITTEN));
+
+        // nothing is pending after the burst
+        var d = Path.of(session.writeText("d", "d.txt"));
+        assertFalse(Files.exists(d));
+        session.flush();
+        assertEquals("d", Files.readString(d));
+        session.close();
+    }
+
+    @Test
+    public void pendingFileReplacedByTheSamePathIsWrittenOnce() throws IOException {
+        session.setCoalesceBytes(100);
+        var a = Path.of(session.writeText("a".repeat(60), "a.txt"));
+        session.writeText("x".repeat(10), "a.txt");
+        // only the bytes of the replacing file are pending
+        session.writeText("b".repeat(80), "b.txt");
+        assertFalse(Files.exists(a));
+
+        session.writeText("c".repeat(10), "c.txt");
+        assertEquals("x".repeat(10), Files.readString(a));
+        assertEquals(3, metrics.getCount(Counter.FILES_WRITTEN));
+        assertEquals(100, metrics.getCount(Counter.BYTES_WRITTEN));
+        session.close();
+    }
+
+    @Test
+    public void nothingIsWrittenOnceClosed() throws IOException {
+        session.setCoalesceBytes(1 << 20);
+        var pending = Path.of(session.writeText("text", "a.txt"));
+        session.close();
+        // pending files are written when it's closed
+        assertEquals("text", Files.readString(pending));
+
+        long encoded = metrics.getTimer(Stage.ENCODE).getCount();
+        var image = TestPdfs.image(10, 10, Color.RED);
+        assertThrows(IllegalStateException.class, () -> session.writeText("text", "b.txt"));
+        assertThrows(IllegalStateException.class, () -> session.writeImage(new byte[] { 1 }, "b.jpg"));
+        assertThrows(IllegalStateException.class, () -> session.writeImage(image, "b.png"));
+        session.setCoalesceBytes(0);
+        assertThrows(IllegalStateException.class, () -> session.writeImage(image, "c.png"));
+        // the image isn't encoded before it's rejected
+        assertEquals(encoded, metrics.getTimer(Stage.ENCODE).getCount());
+        assertFalse(Files.exists(dir.resolve(IOManager.IMAGE_DIR)));
+        // closing it again does nothing
+        session.close();
+    }
+
+    @Test
+    public void everyWrittenFileIsSyncedOnClose() throws IOException {
+        session.setSyncPolicy(OutputSession.SyncPolicy.ON_CLOSE);
+        session.setCoalesceBytes(1 << 10);
+        var streamed = Path.of(session.writeText("x".repeat(1 << 10), "large.txt"));
+        var coalesced = Path.of(session.writeText("small", "small.txt"));
+        var encoded = Path.of(session.writeImage(new byte[] { 1, 2, 3 }, "a.jpg"));
+        session.setCoalesceBytes(0);
+        var png = Path.of(session.writeImage(TestPdfs.image(10, 10, Color.BLUE), "b.png"));
+        assertTrue(synced.isEmpty());
+
+        session.close();
+        var textDir = dir.resolve(IOManager.TEXT_DIR);
+        var imageDir = dir.resolve(IOManager.IMAGE_DIR);
+        assertEquals(Set.of(streamed, coalesced, encoded, png, textDir, imageDir), Set.copyOf(synced));
+        assertEquals(6, synced.size());
+        assertTrue(Files.exists(coalesced));
+    }
+}
@@ -0,0 +1,224 @@
+package com.curtisnewbie.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.curtisnewbie.metrics.ExtractionMetrics;
+import com.curtisnewbie.pdfprocess.PdfProcessor;
+import com.curtisnewbie.pdfprocess.StructuredText;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+
+public class StructuredTextWriterTest {
+
+    private static final float PAGE_HEIGHT = PDRectangle.A4.getHeight();
+    /** tolerance of the positions computed from the glyphs */
+    private static final float DELTA = 0.5f;
+
+    @Test
+    public void columnarPagesAreReadBack() throws IOException {
+        List<Page> expected = new ArrayList<>();
+        var out = new ByteArrayOutputStream();
+        try (var doc = new PDDocument()) {
+            var page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            try (var cs = new PDPageContentStream(doc, page)) {
+                showText(cs, PDType1Font.HELVETICA, 12, 40, 800, "Hello World");
+                showText(cs, PDType1Font.COURIER, 10, 40, 780, "Ünïcode ok");
+            }
+            // without content
+            doc.addPage(new PDPage(PDRectangle.A4));
+            page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            try (var cs = new PDPageContentStream(doc, page)) {
+                showText(cs, PDType1Font.HELVETICA, 12, 100, 500, "Last");
+            }
+
+            var processor = new PdfProcessor(reload(doc));
+            try (var writer = StructuredTextWriter.create(out, StructuredTextWriter.Format.COLUMNAR,
+                    ExtractionMetrics.newJob("test"))) {
+                assertTrue(processor.extractStructuredText(1, 3, text -> {
+                    expected.add(Page.of(text));
+                    try {
+                        writer.write(text);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            } finally {
+                processor.close();
+            }
+        }
+
+        var pages = readColumnar(out.toByteArray());
+        assertEquals(expected, pages);
+        assertEquals(3, pages.size());
+
+        var first = pages.get(0);
+        assertEquals(1, first.page);
+        assertEquals(List.of("Hello", "World", "Ünïcode", "ok"), first.texts);
+        assertEquals(2, first.lines);
+        assertEquals(List.of(0, 0, 1, 1), first.line);
+        assertEquals(List.of("Helvetica", "Courier"), first.fonts);
+        assertEquals(List.of(0, 0, 1, 1), first.font);
+        assertEquals(List.of(12f, 12f, 10f, 10f), first.fontSize);
+        // from the top-left corner, the bottom of a word is at the baseline
+        assertEquals(40, first.x.get(0), DELTA);
+        assertEquals(PAGE_HEIGHT - 800, first.y.get(0) + first.h.get(0), DELTA);
+        assertTrue(first.x.get(1) > first.x.get(0) + first.w.get(0));
+        assertEquals(40, first.x.get(2), DELTA);
+        assertEquals(PAGE_HEIGHT - 780, first.y.get(2) + first.h.get(2), DELTA);
+
+        var empty = pages.get(1);
+        assertEquals(2, empty.page);
+        assertEquals(List.of(), empty.texts);
+        assertEquals(List.of(), empty.fonts);
+
+        var last = pages.get(2);
+        assertEquals(3, last.page);
+        assertEquals(List.of("Last"), last.texts);
+        assertEquals(100, last.x.get(0), DELTA);
+        assertEquals(PAGE_HEIGHT - 500, last.y.get(0) + last.h.get(0), DELTA);
+    }
+
+    @Test
+    public void columnarFileWithoutPagesHasTheHeader() throws IOException {
+        var out = new ByteArrayOutputStream();
+        StructuredTextWriter.create(out, StructuredTextWriter.Format.COLUMNAR, ExtractionMetrics.newJob("test"))
+                .close();
+        assertEquals(List.of(), readColumnar(out.toByteArray()));
+    }
+
+    private static void showText(PDPageContentStream cs, PDFont font, float size, float x, float y, String text)
+            throws IOException {
+        cs.beginText();
+        cs.setFont(font, size);
+        cs.newLineAtOffset(x, y);
+        cs.showText(text);
+        cs.endText();
+    }
+
+    private static PDDocument reload(PDDocument doc) throws IOException {
+        var out = new ByteArrayOutputStream();
+        doc.save(out);
+        return PDDocument.load(out.toByteArray());
+    }
+
+    /**
+     * Parse the file as described by {@link StructuredTextWriter.Format#COLUMNAR}
+     */
+    private static List<Page> readColumnar(byte[] bytes) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertEquals(StructuredTextWriter.COLUMNAR_MAGIC, in.readInt());
+        assertEquals(StructuredTextWriter.COLUMNAR_VERSION, in.readInt());
+        List<Page> pages = new ArrayList<>();
+        while (in.available() > 0) {
+            var p = new Page();
+            p.page = in.readInt();
+            int words = in.readInt();
+            p.lines = in.readInt();
+            int fonts = in.readInt();
+            for (int i = 0; i < fonts; i++)
+                p.fonts.add(in.readUTF());
+            readFloats(in, words, p.x);
+            readFloats(in, words, p.y);
+            readFloats(in, words, p.w);
+            readFloats(in, words, p.h);
+            readFloats(in, words, p.fontSize);
+            readInts(in, words, p.font);
+            readInts(in, words, p.line);
+            List<Integer> textEnd = new ArrayList<>();
+            readInts(in, words, textEnd);
+            var text = in.readNBytes(in.readInt());
+            int start = 0;
+            for (int end : textEnd) {
+                p.texts.add(new String(text, start, end - start, StandardCharsets.UTF_8));
+                start = end;
+            }
+            assertEquals(text.length, start);
+            pages.add(p);
+        }
+        return pages;
+    }
+
+    private static void readFloats(DataInputStream in, int n, List<Float> values) throws IOException {
+        for (int i = 0; i < n; i++)
+            values.add(in.readFloat());
+    }
+
+    private static void readInts(DataInputStream in, int n, List<Integer> values) throws IOException {
+        for (int i = 0; i < n; i++)
+            values.add(in.readInt());
+    }
+
+    /**
+     * Words of a page, as handed over or read back
+     */
+    private static class Page {
+
+        int page;
+        int lines;
+        final List<String> fonts = new ArrayList<>();
+        final List<Float> x = new ArrayList<>();
+        final List<Float> y = new ArrayList<>();
+        final List<Float> w = new ArrayList<>();
+        final List<Float> h = new ArrayList<>();
+        final List<Float> fontSize = new ArrayList<>();
+        final List<Integer> font = new ArrayList<>();
+        final List<Integer> line = new ArrayList<>();
+        final List<String> texts = new ArrayList<>();
+
+        static Page of(StructuredText text) {
+            var p = new Page();
+            p.page = text.getPage();
+            p.lines = text.getLineCount();
+            for (int f = 0; f < text.getFontCount(); f++)
+                p.fonts.add(text.getFontName(f) != null ? text.getFontName(f) : "");
+            for (int i = 0; i < text.getWordCount(); i++) {
+                p.x.add(text.getX(i));
+                p.y.add(text.getY(i));
+                p.w.add(text.getWidth(i));
+                p.h.add(text.getHeight(i));
+                p.fontSize.add(text.getFontSize(i));
+                p.font.add(text.getFont(i));
+                p.line.add(text.getLine(i));
+                p.texts.add(text.getText(i));
+            }
+            return p;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Page))
+                return false;
+            var p = (Page) o;
+            return page == p.page && lines == p.lines && fonts.equals(p.fonts) && x.equals(p.x) && y.equals(p.y)
+                    && w.equals(p.w) && h.equals(p.h) && fontSize.equals(p.fontSize) && font.equals(p.font)
+                    && line.equals(p.line) && texts.equals(p.texts);
+        }
+
+        @Override
+        public int hashCode() {
+            return page;
+        }
+
+        @Override
+        public String toString() {
+            return "page " + page + " " + texts;
+        }
+    }
+}
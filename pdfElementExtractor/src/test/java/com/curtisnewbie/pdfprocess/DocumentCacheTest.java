@@ -0,0 +1,151 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DocumentCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private Path a;
+    private Path b;
+    /** room for one of the files only */
+    private DocumentCache cache;
+
+    @BeforeEach
+    public void create() throws IOException {
+        a = TestPdfs.textFile(dir.resolve("a.pdf"), 3);
+        b = TestPdfs.textFile(dir.resolve("b.pdf"), 3);
+        cache = new DocumentCache(Math.max(Files.size(a), Files.size(b)) + 16);
+    }
+
+    @Test
+    public void documentIsParsedOnce() throws IOException {
+        try (var first = cache.acquire(a.toString()); var second = cache.acquire(a.toString())) {
+            assertSame(first.getDocument(), second.getDocument());
+            assertSame(first.getLock(), second.getLock());
+            assertEquals(Files.size(a), cache.getEstimatedBytes());
+        }
+        try (var third = cache.acquire(a.toString())) {
+            assertFalse(isClosed(third.getDocument()));
+        }
+    }
+
+    @Test
+    public void evictedDocumentIsClosedWhenItsLeaseIsClosed() throws IOException {
+        var leaseA = cache.acquire(a.toString());
+        var docA = leaseA.getDocument();
+        try (var leaseB = cache.acquire(b.toString())) {
+            // a is evicted, but it's still in use
+            assertEquals(Files.size(b), cache.getEstimatedBytes());
+            assertFalse(isClosed(docA));
+            assertEquals(TestPdfs.textOf(1), pageText(docA, 1));
+
+            leaseA.close();
+            assertTrue(isClosed(docA));
+            assertFalse(isClosed(leaseB.getDocument()));
+        }
+        // b is still cached
+        try (var leaseB = cache.acquire(b.toString())) {
+            assertFalse(isClosed(leaseB.getDocument()));
+        }
+    }
+
+    @Test
+    public void evictedDocumentIsClosedWhenAllOfItsLeasesAreClosed() throws IOException {
+        var first = cache.acquire(a.toString());
+        var second = cache.acquire(a.toString());
+        var doc = first.getDocument();
+        cache.clear();
+        assertEquals(0, cache.getEstimatedBytes());
+
+        first.close();
+        // closing a lease again doesn't release the document of the other lease
+        first.close();
+        assertFalse(isClosed(doc));
+        second.close();
+        assertTrue(isClosed(doc));
+
+        // it's parsed again once it's evicted
+        try (var lease = cache.acquire(a.toString())) {
+            assertNotSame(doc, lease.getDocument());
+        }
+    }
+
+    @Test
+    public void unusedDocumentIsClosedWhenEvicted() throws IOException {
+        PDDocument doc;
+        try (var lease = cache.acquire(a.toString())) {
+            doc = lease.getDocument();
+        }
+        assertFalse(isClosed(doc));
+        cache.acquire(b.toString()).close();
+        assertTrue(isClosed(doc));
+    }
+
+    @Test
+    public void changedFileIsParsedAgain() throws IOException {
+        try (var lease = cache.acquire(a.toString())) {
+            var doc = lease.getDocument();
+            TestPdfs.textFile(a, 2);
+            Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 1000));
+            try (var changed = cache.acquire(a.toString())) {
+                assertNotSame(doc, changed.getDocument());
+                assertEquals(2, changed.getDocument().getNumberOfPages());
+            }
+            assertFalse(isClosed(doc));
+            lease.close();
+            assertTrue(isClosed(doc));
+        }
+    }
+
+    @Test
+    public void resultsAreCachedWithinTheBound() throws IOException {
+        try (var lease = cache.acquire(a.toString())) {
+            lease.putText(1, "text");
+            assertEquals("text", lease.getText(1));
+            assertEquals(Files.size(a) + 8, cache.getEstimatedBytes());
+
+            // it doesn't fit
+            lease.putText(2, "x".repeat(64));
+            assertNull(lease.getText(2));
+            assertEquals(Files.size(a) + 8, cache.getEstimatedBytes());
+        }
+        // results are dropped with the evicted document
+        try (var lease = cache.acquire(b.toString())) {
+            lease.putText(1, "text");
+        }
+        try (var lease = cache.acquire(a.toString())) {
+            assertNull(lease.getText(1));
+        }
+    }
+
+    private static boolean isClosed(PDDocument doc) {
+        return doc.getDocument().isClosed();
+    }
+
+    private static String pageText(PDDocument doc, int page) throws IOException {
+        var stripper = new PDFTextStripper();
+        stripper.setStartPage(page);
+        stripper.setEndPage(page);
+        return stripper.getText(doc).trim();
+    }
+}
@@ -0,0 +1,131 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import com.curtisnewbie.TestPdfs;
+import com.curtisnewbie.pdfprocess.ExtractionControl.StopReason;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ExtractionControlTest {
+
+    private static final int PAGES = 400;
+    private static byte[] pdf;
+    private PdfProcessor processor;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        pdf = TestPdfs.textBytes(PAGES);
+    }
+
+    @BeforeEach
+    public void create() throws IOException {
+        processor = new PdfProcessor(PDDocument.load(pdf), () -> PDDocument.load(pdf));
+        processor.setParallelism(4);
+    }
+
+    @AfterEach
+    public void close() {
+        processor.close();
+    }
+
+    @Test
+    public void budgetCountsDistinctPages() {
+        var control = new ExtractionControl();
+        control.setPageBudget(2);
+        control.checkPage(1);
+        control.checkPage(2);
+        // the same page again, e.g., its images after its text
+        control.checkPage(1);
+        assertFalse(control.isStopped());
+        assertThrows(CancellationException.class, () -> control.checkPage(3));
+        assertEquals(StopReason.PAGE_BUDGET, control.getStopReason());
+        assertThrows(CancellationException.class, () -> control.checkPage(1));
+    }
+
+    @Test
+    public void pageBudgetStopsParallelExtraction() {
+        var control = new ExtractionControl();
+        control.setPageBudget(5);
+        List<Integer> pages = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            assertThrows(CancellationException.class,
+                    () -> processor.extractTextByPage(1, PAGES, (text, page) -> pages.add(page), control));
+        });
+        assertEquals(List.of(1, 2, 3, 4, 5), pages);
+        assertEquals(5, control.getPagesDone());
+        assertEquals(StopReason.PAGE_BUDGET, control.getStopReason());
+    }
+
+    @Test
+    public void deadlineStopsParallelExtraction() throws Exception {
+        var control = new ExtractionControl();
+        control.setTimeout(200, TimeUnit.MILLISECONDS);
+        List<Integer> pages = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            assertThrows(CancellationException.class,
+                    () -> processor.extractTextByPage(1, PAGES, (text, page) -> {
+                        pages.add(page);
+                        sleep(100);
+                    }, control));
+        });
+        assertTrue(pages.size() < PAGES);
+        assertEquals(StopReason.DEADLINE, control.getStopReason());
+    }
+
+    @Test
+    public void cancellationStopsParallelExtraction() {
+        var control = new ExtractionControl();
+        List<Integer> pages = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            assertThrows(CancellationException.class,
+                    () -> processor.extractTextByPage(1, PAGES, (text, page) -> {
+                        pages.add(page);
+                        if (page == 3)
+                            control.cancel();
+                    }, control));
+        });
+        assertEquals(List.of(1, 2, 3), pages);
+        assertEquals(StopReason.CANCELLED, control.getStopReason());
+
+        // a stopped control stops the next job before it starts
+        assertThrows(CancellationException.class,
+                () -> processor.extractTextByPage(1, PAGES, (text, page) -> pages.add(page), control));
+        assertEquals(3, pages.size());
+    }
+
+    @Test
+    public void controlIsNotStoppedWithoutLimits() {
+        var control = new ExtractionControl();
+        control.setTimeout(0, TimeUnit.SECONDS);
+        List<Integer> pages = new ArrayList<>();
+        processor.extractTextByPage(1, PAGES, (text, page) -> pages.add(page), control);
+        assertEquals(PAGES, pages.size());
+        assertEquals(PAGES, control.getPagesDone());
+        assertNull(control.getStopReason());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.curtisnewbie.metrics.ExtractionMetrics;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.encoding.Encoding;
+import org.apache.pdfbox.pdmodel.font.encoding.MacRomanEncoding;
+import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+public class FontCacheTest {
+
+    private static final String FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    @Test
+    public void sameFontInAnotherDocumentIsNotParsedAgain() throws IOException {
+        var cache = new FontCache(FontCache.DEFAULT_MAX_BYTES);
+        byte[] pdf = pdf(WinAnsiEncoding.INSTANCE, "café");
+        assertEquals("café", text(cache, pdf));
+        assertEquals("café", text(cache, pdf));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void fontsWithSameAttributesAreToldApartByTheirContent() throws IOException {
+        var cache = new FontCache(FontCache.DEFAULT_MAX_BYTES);
+        // same name, subtype and font program, but the codes are mapped differently
+        assertEquals("café", text(cache, pdf(WinAnsiEncoding.INSTANCE, "café")));
+        assertEquals("café", text(cache, pdf(MacRomanEncoding.INSTANCE, "café")));
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void attachingAnotherCacheReturnsTheBorrowedFonts() throws IOException {
+        var first = new FontCache(FontCache.DEFAULT_MAX_BYTES);
+        var second = new FontCache(FontCache.DEFAULT_MAX_BYTES);
+        try (var doc = PDDocument.load(pdf(WinAnsiEncoding.INSTANCE, "text"))) {
+            first.attach(doc, ExtractionMetrics.global());
+            new PDFTextStripper().getText(doc);
+            assertEquals(0, first.getEstimatedBytes());
+
+            second.attach(doc, ExtractionMetrics.global());
+            assertTrue(first.getEstimatedBytes() > 0);
+            FontCache.release(doc);
+        }
+    }
+
+    @Test
+    public void fontsAreReturnedWhenTheJobIsDone() throws IOException {
+        var cache = new FontCache(FontCache.DEFAULT_MAX_BYTES);
+        var processor = new PdfProcessor(PDDocument.load(pdf(WinAnsiEncoding.INSTANCE, "text")));
+        try {
+            processor.setFontCache(cache);
+            assertEquals("text", processor.extractText(1, 1).trim());
+            assertTrue(cache.getEstimatedBytes() > 0);
+            assertEquals("text", processor.extractText(1, 1).trim());
+            assertEquals(1, cache.getMisses());
+        } finally {
+            processor.close();
+        }
+    }
+
+    private static String text(FontCache cache, byte[] pdf) throws IOException {
+        try (var doc = PDDocument.load(pdf)) {
+            cache.attach(doc, ExtractionMetrics.global());
+            try {
+                return new PDFTextStripper().getText(doc).trim();
+            } finally {
+                FontCache.release(doc);
+            }
+        }
+    }
+
+    /**
+     * PDF file of a page with text in an embedded font
+     */
+    private static byte[] pdf(Encoding encoding, String text) throws IOException {
+        try (var doc = new PDDocument()) {
+            var page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            PDTrueTypeFont font;
+            try (var in = FontCacheTest.class.getResourceAsStream(FONT)) {
+                font = PDTrueTypeFont.load(doc, in, encoding);
+            }
+            try (var cs = new PDPageContentStream(doc, page)) {
+                cs.beginText();
+                cs.setFont(font, 12);
+                cs.newLineAtOffset(40, 800);
+                cs.showText(text);
+                cs.endText();
+            }
+            var out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
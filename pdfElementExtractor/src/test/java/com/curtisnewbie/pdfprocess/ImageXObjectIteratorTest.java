@@ -0,0 +1,85 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.jupiter.api.Test;
+
+public class ImageXObjectIteratorTest {
+
+    @Test
+    public void imagesOfEachPageAreFoundWithTheirPages() throws IOException {
+        try (var doc = new PDDocument()) {
+            TestPdfs.addImagePage(doc, TestPdfs.pngImage(doc, 4, 4, Color.RED), TestPdfs.pngImage(doc, 5, 5, Color.RED));
+            TestPdfs.addTextPage(doc, "no image");
+            TestPdfs.addImagePage(doc, TestPdfs.pngImage(doc, 6, 6, Color.RED));
+            try (var reloaded = TestPdfs.reload(doc)) {
+                var found = iterate(new ImageXObjectIterator(new PageIndex(reloaded), 1, 3));
+                assertEquals(List.of("1:4", "1:5", "3:6"), found);
+
+                found = iterate(new ImageXObjectIterator(new PageIndex(reloaded), 2, 3));
+                assertEquals(List.of("3:6"), found);
+            }
+        }
+    }
+
+    @Test
+    public void formsThatReferToThemselvesAreVisitedOnce() throws IOException {
+        try (var doc = new PDDocument()) {
+            // page -> form a -> form b -> form a ..., each form has an image
+            var a = newForm(doc);
+            var b = newForm(doc);
+            a.getResources().add(TestPdfs.pngImage(doc, 7, 7, Color.BLUE));
+            a.getResources().add(b);
+            b.getResources().add(TestPdfs.pngImage(doc, 8, 8, Color.BLUE));
+            b.getResources().add(a);
+            a.getResources().add(a);
+            var page = new PDPage(PDRectangle.A4);
+            page.setResources(new PDResources());
+            page.getResources().add(a);
+            doc.addPage(page);
+
+            // not saved, as the cycle is unrolled when it's written
+            var it = new ImageXObjectIterator(new PageIndex(doc), 1, 1);
+            var found = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> iterate(it));
+            assertEquals(List.of("1:7", "1:8"), found);
+            assertFalse(it.hasNext());
+            assertThrows(NoSuchElementException.class, it::next);
+        }
+    }
+
+    private static PDFormXObject newForm(PDDocument doc) {
+        var form = new PDFormXObject(doc);
+        form.setBBox(PDRectangle.A4);
+        form.setResources(new PDResources());
+        return form;
+    }
+
+    /**
+     * Iterate the images, each as "page:width"
+     */
+    private static List<String> iterate(ImageXObjectIterator it) {
+        List<String> found = new ArrayList<>();
+        while (it.hasNext()) {
+            var img = it.next();
+            found.add(it.getCurrentPage() + ":" + img.getWidth());
+        }
+        return found;
+    }
+}
@@ -0,0 +1,90 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PageIndexTest {
+
+    private static final int PAGES = 7;
+    private PDDocument doc;
+    private PageIndex index;
+
+    @BeforeEach
+    public void create() throws IOException {
+        doc = TestPdfs.textDocument(PAGES);
+        index = new PageIndex(doc);
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        doc.close();
+    }
+
+    @Test
+    public void pagesAreFoundByNumber() {
+        assertEquals(PAGES, index.getPageCount());
+        assertSame(doc, index.getDocument());
+        assertEquals(doc.getPage(0).getCOSObject(), index.getPage(1).getCOSObject());
+        assertEquals(doc.getPage(3).getCOSObject(), index.getPage(4).getCOSObject());
+        assertEquals(doc.getPage(PAGES - 1).getCOSObject(), index.getPage(PAGES).getCOSObject());
+        // pages are kept, not created again for each lookup
+        assertSame(index.getPage(PAGES), index.getPage(PAGES));
+    }
+
+    @Test
+    public void missingPagesAreNotFound() {
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getPage(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getPage(PAGES + 1));
+    }
+
+    @Test
+    public void pageNumbersAreFoundByDictionary() throws IOException {
+        assertEquals(1, index.getPageNumber(doc.getPage(0).getCOSObject()));
+        assertEquals(PAGES, index.getPageNumber(doc.getPage(PAGES - 1).getCOSObject()));
+        try (var other = TestPdfs.textDocument(1)) {
+            assertNull(index.getPageNumber(other.getPage(0).getCOSObject()));
+        }
+        assertNull(index.getPageNumber(new PDPage().getCOSObject()));
+    }
+
+    @Test
+    public void subTreeHasThePagesOfTheRange() throws IOException {
+        var first = index.subTree(1, 1);
+        assertEquals(1, first.getCount());
+        assertSame(index.getPage(1), first.get(0));
+
+        var last = index.subTree(5, PAGES);
+        List<PDPage> pages = new ArrayList<>();
+        last.forEach(pages::add);
+        assertEquals(List.of(index.getPage(5), index.getPage(6), index.getPage(7)), pages);
+        assertEquals(2, last.indexOf(index.getPage(PAGES)));
+        assertEquals(-1, last.indexOf(index.getPage(1)));
+
+        assertEquals(TestPdfs.textOf(PAGES), text(PAGES));
+        assertEquals(TestPdfs.textOf(1), text(1));
+    }
+
+    /**
+     * Strip the text of the page through the sub tree of the index
+     */
+    private String text(int page) throws IOException {
+        List<String> text = new ArrayList<>();
+        new PageTextStripper().strip(index, page, page, (t, p) -> text.add(t));
+        assertEquals(1, text.size());
+        return text.get(0).trim();
+    }
+}
@@ -0,0 +1,146 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.curtisnewbie.metrics.ExtractionMetrics;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PageRasterizerTest {
+
+    /** neither side is a multiple of the tile size */
+    private static final PDRectangle SIZE = new PDRectangle(103, 77);
+    private static final int TILE = 32;
+
+    private PDDocument doc;
+    private PageIndex index;
+
+    @BeforeEach
+    public void create() throws IOException {
+        doc = new PDDocument();
+        addPage(doc, 0);
+        addPage(doc, 90);
+        index = new PageIndex(doc);
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        doc.close();
+    }
+
+    @Test
+    public void tilesAreStitchedIntoThePage() {
+        for (int page = 1; page <= 2; page++) {
+            var whole = render(page, new RenderOptions(72, ImageType.RGB, 1 << 20, TILE));
+            assertEquals(1, whole.size());
+            assertFalse(whole.get(0).isTile());
+
+            var tiles = render(page, new RenderOptions(72, ImageType.RGB, 2000, TILE));
+            var expected = whole.get(0).getImage();
+            int rows = (expected.getHeight() + TILE - 1) / TILE;
+            int columns = (expected.getWidth() + TILE - 1) / TILE;
+            assertEquals(rows * columns, tiles.size());
+
+            // tiles are handed over row by row, those at the right and the bottom are smaller
+            for (int i = 0; i < tiles.size(); i++) {
+                var tile = tiles.get(i);
+                assertTrue(tile.isTile());
+                assertEquals(page, tile.getPage());
+                assertEquals(i / columns, tile.getRow());
+                assertEquals(i % columns, tile.getColumn());
+                assertEquals(rows, tile.getRows());
+                assertEquals(columns, tile.getColumns());
+                assertEquals(Math.min(TILE, expected.getWidth() - tile.getColumn() * TILE),
+                        tile.getImage().getWidth());
+                assertEquals(Math.min(TILE, expected.getHeight() - tile.getRow() * TILE),
+                        tile.getImage().getHeight());
+            }
+            assertSameImage(expected, stitch(tiles, expected.getWidth(), expected.getHeight()));
+        }
+    }
+
+    @Test
+    public void pageIsRenderedAsDisplayed() {
+        var upright = render(1, new RenderOptions(72, ImageType.RGB, 1 << 20, 0)).get(0).getImage();
+        assertEquals(103, upright.getWidth());
+        assertEquals(77, upright.getHeight());
+        var rotated = render(2, new RenderOptions(72, ImageType.RGB, 1 << 20, 0)).get(0).getImage();
+        assertEquals(77, rotated.getWidth());
+        assertEquals(103, rotated.getHeight());
+    }
+
+    @Test
+    public void largePageIsRenderedAtLowerResolutionWithoutTiles() {
+        var options = new RenderOptions(144, ImageType.RGB, 2000, 0);
+        var rasterizer = new PageRasterizer(index, options, ExtractionMetrics.newJob("test"));
+        assertFalse(rasterizer.isTiled(1));
+
+        var pages = render(1, options);
+        assertEquals(1, pages.size());
+        var image = pages.get(0).getImage();
+        assertTrue((long) image.getWidth() * image.getHeight() <= 2000);
+        assertTrue(pages.get(0).getDpi() < 72);
+    }
+
+    private List<RenderedPage> render(int page, RenderOptions options) {
+        List<RenderedPage> images = new ArrayList<>();
+        assertTrue(new PageRasterizer(index, options, ExtractionMetrics.newJob("test")).render(page, images::add));
+        return images;
+    }
+
+    /**
+     * Add a page whose rectangles cross the seams of the tiles
+     */
+    static void addPage(PDDocument doc, int rotation) throws IOException {
+        var page = new PDPage(SIZE);
+        page.setRotation(rotation);
+        doc.addPage(page);
+        try (var cs = new PDPageContentStream(doc, page)) {
+            cs.setNonStrokingColor(Color.RED);
+            cs.addRect(20, 20, 40, 30);
+            cs.fill();
+            cs.setNonStrokingColor(Color.BLUE);
+            cs.addRect(50, 5, 50, 70);
+            cs.fill();
+            cs.setNonStrokingColor(Color.GREEN);
+            cs.addRect(0, 60, 103, 17);
+            cs.fill();
+        }
+    }
+
+    static BufferedImage stitch(List<RenderedPage> tiles, int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        try {
+            for (var tile : tiles)
+                g.drawImage(tile.getImage(), tile.getColumn() * TILE, tile.getRow() * TILE, null);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel at " + x + "," + y);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.curtisnewbie.TestPdfs;
+import com.curtisnewbie.metrics.ExtractionMetrics;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.junit.jupiter.api.Test;
+
+public class ParallelPageRendererTest {
+
+    private static final int TILE = 32;
+
+    @Test
+    public void tilesAndPagesAreHandedOverInPageOrder() throws IOException {
+        // small pages are rendered whole, and A4 pages in tiles
+        byte[] bytes;
+        try (var doc = new PDDocument()) {
+            for (int i = 0; i < 4; i++) {
+                PageRasterizerTest.addPage(doc, 0);
+                TestPdfs.addTextPage(doc, TestPdfs.textOf(doc.getNumberOfPages()));
+            }
+            var out = new ByteArrayOutputStream();
+            doc.save(out);
+            bytes = out.toByteArray();
+        }
+        // at 9 DPI, the small pages are 12 x 9 pixels and the A4 pages 74 x 105
+        var options = new RenderOptions(9, ImageType.RGB, 2000, TILE);
+        var wholeOptions = new RenderOptions(9, ImageType.RGB, 1 << 20, TILE);
+
+        List<RenderedPage> images = new ArrayList<>();
+        new ParallelPageRenderer(() -> PDDocument.load(bytes), 3, options, null, ExtractionMetrics.newJob("test"))
+                .render(1, 8, images::add, new ExtractionControl());
+
+        try (var doc = PDDocument.load(bytes)) {
+            var index = new PageIndex(doc);
+            int i = 0;
+            for (int page = 1; page <= 8; page++) {
+                List<RenderedPage> expected = new ArrayList<>();
+                new PageRasterizer(index, wholeOptions, ExtractionMetrics.newJob("test")).render(page, expected::add);
+                var whole = expected.get(0).getImage();
+
+                List<RenderedPage> ofPage = new ArrayList<>();
+                while (i < images.size() && images.get(i).getPage() == page)
+                    ofPage.add(images.get(i++));
+                if (page % 2 == 1)
+                    assertFalse(ofPage.get(0).isTile());
+                else
+                    assertTrue(ofPage.get(0).isTile(), "page " + page);
+                var actual = ofPage.get(0).isTile()
+                        ? PageRasterizerTest.stitch(ofPage, whole.getWidth(), whole.getHeight())
+                        : ofPage.get(0).getImage();
+                PageRasterizerTest.assertSameImage(whole, actual);
+            }
+            assertEquals(images.size(), i);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ParallelTextExtractorTest {
+
+    private static final int PAGES = 400;
+    private static byte[] pdf;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        pdf = TestPdfs.textBytes(PAGES);
+    }
+
+    @Test
+    public void pagesAreHandedOverInOrder() {
+        List<Integer> pages = new ArrayList<>();
+        extractor().extract(1, PAGES, (text, page) -> {
+            assertTrue(text.contains(TestPdfs.textOf(page)), text);
+            pages.add(page);
+        }, new ExtractionControl());
+        assertEquals(PAGES, pages.size());
+        for (int i = 0; i < PAGES; i++)
+            assertEquals(i + 1, pages.get(i));
+    }
+
+    @Test
+    public void pagesThatFailedAreHandedOverAsNull() {
+        List<String> texts = new ArrayList<>();
+        var extractor = new ParallelTextExtractor(() -> {
+            throw new UncheckedIOException(new IOException("can't be opened"));
+        }, 4);
+        extractor.extract(1, 10, (text, page) -> texts.add(text), new ExtractionControl());
+        assertEquals(10, texts.size());
+        texts.forEach(t -> assertNull(t));
+    }
+
+    @Test
+    public void pagesBufferedAheadDoNotDependOnTheDocumentLength() {
+        var furthest = new AtomicInteger();
+        DocumentPool documents = () -> {
+            var doc = open();
+            var index = new PageIndex(doc) {
+                @Override
+                PDPageTree subTree(int from, int to) {
+                    furthest.accumulateAndGet(to, Math::max);
+                    return super.subTree(from, to);
+                }
+            };
+            return pooled(doc, index);
+        };
+        int workers = 4;
+        int window = workers * ParallelTextExtractor.WINDOW_CHUNKS * ParallelTextExtractor.CHUNK_PAGES;
+        List<Integer> ahead = new ArrayList<>();
+        new ParallelTextExtractor(documents, workers).extract(1, PAGES, (text, page) -> {
+            if (page == 1) {
+                // the workers run as far ahead as they may
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            ahead.add(furthest.get() - page);
+        }, new ExtractionControl());
+        assertEquals(PAGES, ahead.size());
+        for (int n : ahead)
+            assertTrue(n <= window + ParallelTextExtractor.CHUNK_PAGES, "pages ahead: " + n);
+    }
+
+    @Test
+    public void cancellationByConsumerStopsAllWorkers() {
+        List<Integer> pages = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            assertThrows(CancellationException.class, () -> extractor().extract(1, PAGES, (text, page) -> {
+                pages.add(page);
+                if (page == 5)
+                    throw new CancellationException("enough");
+            }, new ExtractionControl()));
+        });
+        assertEquals(List.of(1, 2, 3, 4, 5), pages);
+    }
+
+    @Test
+    public void cancellationThroughProcessorDoesNotHang() throws IOException {
+        var processor = new PdfProcessor(PDDocument.load(pdf), () -> PDDocument.load(pdf));
+        processor.setParallelism(4);
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+                assertThrows(CancellationException.class,
+                        () -> processor.extractTextByPage(1, PAGES, (text, page) -> {
+                            if (page == 5)
+                                throw new CancellationException("enough");
+                        }, new ExtractionControl()));
+            });
+        } finally {
+            processor.close();
+        }
+    }
+
+    @Test
+    public void workersReuseTheClonesOfTheProcessor() throws IOException {
+        var opened = new AtomicInteger();
+        var processor = new PdfProcessor(PDDocument.load(pdf), () -> {
+            opened.incrementAndGet();
+            return PDDocument.load(pdf);
+        });
+        processor.setParallelism(4);
+        processor.setMaxClones(2);
+        try {
+            for (int i = 0; i < 3; i++) {
+                var texts = processor.extractTextByPage(1, PAGES);
+                assertTrue(texts.get(PAGES - 1).contains(TestPdfs.textOf(PAGES)));
+            }
+            assertTrue(opened.get() <= 2, "documents opened: " + opened.get());
+        } finally {
+            processor.close();
+        }
+    }
+
+    @Test
+    public void stoppedControlStopsAllWorkers() {
+        var control = new ExtractionControl();
+        control.cancel();
+        List<Integer> pages = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            assertThrows(CancellationException.class,
+                    () -> extractor().extract(1, PAGES, (text, page) -> pages.add(page), control));
+        });
+        assertEquals(List.of(), pages);
+    }
+
+    private static ParallelTextExtractor extractor() {
+        return new ParallelTextExtractor(() -> pooled(open(), null), 4);
+    }
+
+    private static PDDocument open() {
+        try {
+            return PDDocument.load(pdf);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Document of its own for each worker, which is closed when it's released
+     */
+    private static DocumentPool.PooledDocument pooled(PDDocument doc, PageIndex index) {
+        var pages = index != null ? index : new PageIndex(doc);
+        return new DocumentPool.PooledDocument() {
+
+            @Override
+            public PageIndex pages() {
+                return pages;
+            }
+
+            @Override
+            public void close() {
+                try {
+                    doc.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
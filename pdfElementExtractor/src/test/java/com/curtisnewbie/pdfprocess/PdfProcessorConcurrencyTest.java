@@ -0,0 +1,113 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PdfProcessorConcurrencyTest {
+
+    private static final int PAGES = 10;
+    private final AtomicInteger opened = new AtomicInteger();
+    private ExecutorService executor;
+    private PdfProcessor processor;
+
+    @BeforeEach
+    public void create() throws IOException {
+        byte[] pdf = TestPdfs.textBytes(PAGES);
+        processor = new PdfProcessor(PDDocument.load(pdf), () -> {
+            opened.incrementAndGet();
+            return PDDocument.load(pdf);
+        });
+        processor.setParallelism(1);
+        processor.setFontCache(null);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void close() {
+        executor.shutdownNow();
+        processor.close();
+    }
+
+    @Test
+    public void jobsWaitForDocumentsOnceClonesAreCapped() throws Exception {
+        processor.setMaxClones(2);
+        var release = new CountDownLatch(1);
+        // the document and both clones are held, the other jobs wait for them
+        var holding = new Semaphore(0);
+        List<Future<?>> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(executor.submit(() -> {
+                processor.extractTextByPage(1, 1, (text, page) -> {
+                    holding.release();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                return null;
+            }));
+        }
+        assertTrue(holding.tryAcquire(3, 10, TimeUnit.SECONDS));
+        assertFalse(holding.tryAcquire(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, opened.get());
+
+        release.countDown();
+        for (var job : jobs)
+            job.get(10, TimeUnit.SECONDS);
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    public void pageCountIsKnownWhileDocumentsAreInUse() throws Exception {
+        processor.setMaxClones(0);
+        assertEquals(PAGES, processor.validateAndReturnPageRange(1, -1).getToPage());
+
+        var release = new CountDownLatch(1);
+        var holding = new CountDownLatch(1);
+        var job = executor.submit(() -> {
+            processor.extractTextByPage(1, 1, (text, page) -> {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            return null;
+        });
+        assertTrue(holding.await(10, TimeUnit.SECONDS));
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                var range = processor.validateAndReturnPageRange(3, 100);
+                assertEquals(3, range.getFromPage());
+                assertEquals(PAGES, range.getToPage());
+            });
+        } finally {
+            release.countDown();
+        }
+        job.get(10, TimeUnit.SECONDS);
+        assertEquals(0, opened.get());
+    }
+}
@@ -0,0 +1,82 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class PdfProcessorImagesTest {
+
+    private static final int PAGES = 20;
+    private PdfProcessor processor;
+
+    @BeforeEach
+    public void create() throws IOException {
+        try (var doc = new PDDocument()) {
+            for (int i = 0; i < PAGES; i++)
+                TestPdfs.addImagePage(doc, TestPdfs.pngImage(doc, 8, 8, new Color(i * 10, 0, 0)));
+            processor = new PdfProcessor(TestPdfs.reload(doc));
+        }
+    }
+
+    @AfterEach
+    public void close() {
+        processor.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    public void exceptionOfConsumerIsThrownToTheCaller(int inFlight) {
+        processor.setMaxImagesInFlight(inFlight);
+        List<Integer> pages = new ArrayList<>();
+        var e = assertThrows(IllegalStateException.class, () -> processor.extractImages(1, PAGES, (img, page) -> {
+            pages.add(page);
+            if (page == 3)
+                throw new IllegalStateException("consumer failed");
+        }));
+        assertEquals("consumer failed", e.getMessage());
+        // the producer stops, only the images already in flight are converted
+        assertTrue(pages.size() < PAGES, "images consumed: " + pages.size());
+    }
+
+    @Test
+    public void errorOfConsumerDoesNotHangTheProducer() {
+        processor.setMaxImagesInFlight(2);
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            assertThrows(AssertionError.class, () -> processor.extractImages(1, PAGES, (img, page) -> {
+                throw new AssertionError("consumer died");
+            }));
+        });
+    }
+
+    @Test
+    public void imagesAreConsumedOnTheGivenExecutor() {
+        var executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "given-executor"));
+        try {
+            processor.setMaxImagesInFlight(4);
+            processor.setImageExecutor(executor);
+            List<String> threads = new ArrayList<>();
+            processor.extractImages(1, PAGES, (img, page) -> threads.add(Thread.currentThread().getName()));
+            assertEquals(PAGES, threads.size());
+            threads.forEach(t -> assertEquals("given-executor", t));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.junit.jupiter.api.Test;
+
+public class PdfProcessorPassthroughTest {
+
+    @Test
+    public void iccBasedRgbJpegIsWrittenAsItIs() throws IOException {
+        byte[] jpeg = jpeg(false);
+        var images = extract(jpeg, doc -> iccBased(doc, 3, COSName.DEVICERGB), null);
+        assertEquals(1, images.size());
+        assertTrue(images.get(0).isEncoded());
+        assertEquals("jpg", images.get(0).getFormat());
+        assertArrayEquals(jpeg, images.get(0).getEncoded());
+    }
+
+    @Test
+    public void rgbJpegWithInvertedDecodeIsDecoded() throws IOException {
+        var images = extract(jpeg(false), doc -> PDDeviceRGB.INSTANCE, decode(3, true));
+        assertEquals(1, images.size());
+        assertFalse(images.get(0).isEncoded());
+    }
+
+    @Test
+    public void cmykJpegIsWrittenAsItIsWhenDecodeMatchesAdobeMarker() throws IOException {
+        byte[] adobe = jpeg(true);
+        var images = extract(adobe, doc -> PDDeviceCMYK.INSTANCE, decode(4, true));
+        assertEquals(1, images.size());
+        assertTrue(images.get(0).isEncoded());
+        assertArrayEquals(adobe, images.get(0).getEncoded());
+
+        byte[] plain = jpeg(false);
+        images = extract(plain, doc -> PDDeviceCMYK.INSTANCE, null);
+        assertEquals(1, images.size());
+        assertTrue(images.get(0).isEncoded());
+        assertArrayEquals(plain, images.get(0).getEncoded());
+    }
+
+    @Test
+    public void adobeMarkerIsFoundBeforeImageData() throws IOException {
+        assertTrue(PdfProcessor.hasAdobeMarker(jpeg(true)));
+        assertFalse(PdfProcessor.hasAdobeMarker(jpeg(false)));
+        assertFalse(PdfProcessor.hasAdobeMarker(new byte[] { 1, 2, 3, 4, 5 }));
+    }
+
+    @FunctionalInterface
+    private interface ColorSpaceFactory {
+        PDColorSpace create(PDDocument doc) throws IOException;
+    }
+
+    private static List<ExtractedImage> extract(byte[] jpeg, ColorSpaceFactory colorSpace, COSArray decode)
+            throws IOException {
+        try (var doc = new PDDocument()) {
+            var image = JPEGFactory.createFromByteArray(doc, jpeg);
+            image.setColorSpace(colorSpace.create(doc));
+            if (decode != null)
+                image.getCOSObject().setItem(COSName.DECODE, decode);
+            TestPdfs.addImagePage(doc, image);
+
+            var processor = new PdfProcessor(TestPdfs.reload(doc));
+            try {
+                List<ExtractedImage> images = new ArrayList<>();
+                processor.extractImagesPassthrough(1, 1, (img, page) -> images.add(img));
+                return images;
+            } finally {
+                processor.close();
+            }
+        }
+    }
+
+    /**
+     * JPEG of 3 components, with or without an Adobe marker
+     */
+    private static byte[] jpeg(boolean adobe) throws IOException {
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(TestPdfs.image(16, 16, Color.ORANGE), "jpg", out);
+        byte[] jpeg = out.toByteArray();
+        if (!adobe)
+            return jpeg;
+        // APP14 "Adobe", version 100, flags 0, 0, transform 1, right after SOI
+        byte[] marker = { (byte) 0xff, (byte) 0xee, 0, 14, 'A', 'd', 'o', 'b', 'e', 0, 100, 0, 0, 0, 0, 1 };
+        var withMarker = new ByteArrayOutputStream();
+        withMarker.write(jpeg, 0, 2);
+        withMarker.write(marker);
+        withMarker.write(jpeg, 2, jpeg.length - 2);
+        return withMarker.toByteArray();
+    }
+
+    private static PDColorSpace iccBased(PDDocument doc, int components, COSName alternate) throws IOException {
+        var profile = ICC_Profile.getInstance(ColorSpace.CS_sRGB).getData();
+        var stream = new PDStream(doc, new ByteArrayInputStream(profile));
+        stream.getCOSObject().setInt(COSName.N, components);
+        stream.getCOSObject().setItem(COSName.ALTERNATE, alternate);
+        var array = new COSArray();
+        array.add(COSName.ICCBASED);
+        array.add(stream);
+        return PDICCBased.create(array, null);
+    }
+
+    private static COSArray decode(int components, boolean inverted) {
+        var array = new COSArray();
+        for (int i = 0; i < components; i++) {
+            array.add(new COSFloat(inverted ? 1 : 0));
+            array.add(new COSFloat(inverted ? 0 : 1));
+        }
+        return array;
+    }
+}
@@ -0,0 +1,132 @@
+package com.curtisnewbie.pdfprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.junit.jupiter.api.Test;
+
+public class TextChunkerTest {
+
+    @Test
+    public void chunksOfEveryNPages() {
+        var chunks = chunk(TextChunkOptions.byPages(2), Map.of(), "a", "b", "c", "d", "e");
+        assertEquals(List.of("1-2:ab", "3-4:cd", "5-5:e"), describe(chunks));
+    }
+
+    @Test
+    public void chunksOfAboutTheTargetSize() {
+        var chunks = chunk(TextChunkOptions.bySize(4), Map.of(), "aa", "bb", "c", "dddddd", "e");
+        // a page larger than the target is a chunk of its own
+        assertEquals(List.of("1-2:aabb", "3-3:c", "4-4:dddddd", "5-5:e"), describe(chunks));
+    }
+
+    @Test
+    public void pagesWithoutTextNeverMakeChunksOfTheirOwn() {
+        var chunks = chunk(TextChunkOptions.bySize(2), Map.of(), "aa", null, "", "bb");
+        assertEquals(List.of("1-3:aa", "4-4:bb"), describe(chunks));
+
+        chunks = chunk(TextChunkOptions.bySize(2), Map.of(), null, "", "aa", "bb");
+        assertEquals(List.of("1-3:aa", "4-4:bb"), describe(chunks));
+    }
+
+    @Test
+    public void sectionsStartChunksWithTheirTitles() {
+        var chunks = chunk(TextChunkOptions.byOutline(1), Map.of(1, "One", 3, "Two"), "a", "b", "c", "d");
+        assertEquals(List.of("1-2:ab", "3-4:cd"), describe(chunks));
+        assertEquals("One", chunks.get(0).getTitle());
+        assertEquals("Two", chunks.get(1).getTitle());
+
+        // pages before the first section have no title
+        chunks = chunk(TextChunkOptions.byOutline(1), Map.of(2, "One"), "a", "b");
+        assertEquals(List.of("1-1:a", "2-2:b"), describe(chunks));
+        assertEquals(null, chunks.get(0).getTitle());
+    }
+
+    @Test
+    public void negativeOptionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TextChunkOptions(-1, 0, 0));
+    }
+
+    @Test
+    public void chunksFollowTheOutlineOfTheDocument() throws IOException {
+        try (var doc = new PDDocument()) {
+            for (int i = 1; i <= 6; i++)
+                TestPdfs.addTextPage(doc, TestPdfs.textOf(i));
+            var outline = new PDDocumentOutline();
+            doc.getDocumentCatalog().setDocumentOutline(outline);
+            var first = item("First", doc, 1);
+            outline.addLast(first);
+            // nested, only a chunk of its own with a deeper outline
+            first.addLast(item("Nested", doc, 2));
+            outline.addLast(item("Second", doc, 4));
+
+            var processor = new PdfProcessor(TestPdfs.reload(doc));
+            try {
+                List<TextChunk> chunks = new ArrayList<>();
+                processor.extractTextChunks(1, 6, TextChunkOptions.byOutline(1), chunks::add,
+                        new ExtractionControl());
+                assertEquals(List.of("1-3", "4-6"), pages(chunks));
+                assertEquals("First", chunks.get(0).getTitle());
+                assertEquals("Second", chunks.get(1).getTitle());
+                assertTrue(chunks.get(1).getText().contains(TestPdfs.textOf(6)));
+
+                chunks.clear();
+                processor.extractTextChunks(3, 6, TextChunkOptions.byOutline(2), chunks::add,
+                        new ExtractionControl());
+                assertEquals(List.of("3-3", "4-6"), pages(chunks));
+
+                // pages extracted before it's stopped are the last chunk
+                chunks.clear();
+                var control = new ExtractionControl();
+                control.setPageBudget(2);
+                assertThrows(CancellationException.class, () -> processor.extractTextChunks(1, 6,
+                        TextChunkOptions.byPages(10), chunks::add, control));
+                assertEquals(List.of("1-2"), pages(chunks));
+            } finally {
+                processor.close();
+            }
+        }
+    }
+
+    private static PDOutlineItem item(String title, PDDocument doc, int page) {
+        var item = new PDOutlineItem();
+        item.setTitle(title);
+        item.setDestination(doc.getPage(page - 1));
+        return item;
+    }
+
+    private static List<TextChunk> chunk(TextChunkOptions options, Map<Integer, String> sections, String... pages) {
+        List<TextChunk> chunks = new ArrayList<>();
+        var chunker = new TextChunker(options, sections, chunks::add);
+        for (int i = 0; i < pages.length; i++)
+            chunker.accept(pages[i], i + 1);
+        chunker.finish();
+        return chunks;
+    }
+
+    private static List<String> describe(List<TextChunk> chunks) {
+        List<String> list = new ArrayList<>();
+        for (var c : chunks)
+            list.add(c.getFromPage() + "-" + c.getToPage() + ":" + c.getText());
+        return list;
+    }
+
+    private static List<String> pages(List<TextChunk> chunks) {
+        List<String> list = new ArrayList<>();
+        for (var c : chunks)
+            list.add(c.getFromPage() + "-" + c.getToPage());
+        return list;
+    }
+}
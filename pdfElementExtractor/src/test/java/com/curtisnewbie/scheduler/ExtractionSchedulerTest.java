@@ -0,0 +1,99 @@
+package com.curtisnewbie.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ExtractionSchedulerTest {
+
+    private ExtractionScheduler scheduler;
+
+    @BeforeEach
+    public void create() {
+        // a single CPU thread, a job waiting for another one must not hold it
+        scheduler = new ExtractionScheduler(1, 1, 4);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void chainedJobStartsAfterThePreviousOne() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        var first = new CompletableFuture<Void>();
+        var second = scheduler.submit(new ExtractionControl(), first, sink -> {
+            order.add("second");
+            sink.accept("b", 1);
+        }, this::write);
+
+        // an independent job still gets the only CPU thread
+        var other = scheduler.submit(new ExtractionControl(), sink -> {
+            order.add("other");
+            sink.accept("o", 1);
+        }, this::write);
+        assertEquals(List.of("o"), other.getResult().get(10, TimeUnit.SECONDS));
+        assertFalse(second.getResult().isDone());
+
+        order.add("first");
+        first.complete(null);
+        assertEquals(List.of("b"), second.getResult().get(10, TimeUnit.SECONDS));
+        assertEquals(List.of("other", "first", "second"), order);
+    }
+
+    @Test
+    public void writerThatThrowsFailsTheJobAndStopsTheProducer() throws Exception {
+        var produced = new AtomicInteger();
+        var job = scheduler.submit(new ExtractionControl(), sink -> {
+            // many more elements than the queue holds
+            for (int i = 1; i <= 1000; i++) {
+                sink.accept("e" + i, i);
+                produced.incrementAndGet();
+            }
+        }, (element, page) -> {
+            throw new IllegalStateException("writer failed");
+        });
+
+        var e = assertThrows(ExecutionException.class, () -> job.getResult().get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(produced.get() < 1000);
+
+        // the CPU thread is free for the next job
+        var next = scheduler.submit(sink -> sink.accept("n", 1), this::write);
+        assertEquals(List.of("n"), next.getResult().get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void chainedJobCancelledBeforeItStartsNeverRuns() throws Exception {
+        var first = new CompletableFuture<Void>();
+        var ran = new CountDownLatch(1);
+        var job = scheduler.submit(new ExtractionControl(), first, sink -> ran.countDown(), this::write);
+        job.cancel();
+        first.complete(null);
+
+        assertThrows(CancellationException.class, () -> job.getResult().join());
+        assertTrue(job.isCancelled());
+        assertFalse(ran.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    private String write(String element, int page) {
+        return element;
+    }
+}
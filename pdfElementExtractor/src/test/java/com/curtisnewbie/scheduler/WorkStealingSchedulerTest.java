@@ -0,0 +1,123 @@
+package com.curtisnewbie.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.curtisnewbie.pdfprocess.ExtractionControl;
+import com.curtisnewbie.pdfprocess.PageRange;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WorkStealingSchedulerTest {
+
+    private static final int WORKERS = 4;
+    private static final int PAGES = 400;
+
+    private WorkStealingScheduler scheduler;
+
+    @BeforeEach
+    public void create() {
+        scheduler = new WorkStealingScheduler(WORKERS, 2);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void pagesAreHandedOverInOrder() {
+        List<Integer> pages = new ArrayList<>();
+        scheduler.<Integer>extractByPage(null, new PageRange(1, PAGES), (p, from, to, sink) -> {
+            for (int page = to; page >= from; page--)
+                sink.accept(page * 10, page);
+        }, (element, page) -> {
+            assertEquals(page * 10, element);
+            pages.add(page);
+        }, new ExtractionControl());
+
+        assertEquals(PAGES, pages.size());
+        for (int i = 0; i < PAGES; i++)
+            assertEquals(i + 1, pages.get(i));
+    }
+
+    @Test
+    public void rangesAheadOfTheFirstOneAreBounded() throws Exception {
+        var firstBlocked = new CountDownLatch(1);
+        var releaseFirst = new CountDownLatch(1);
+        // furthest page extracted while the first range isn't done
+        var furthest = new AtomicInteger();
+        var handedOver = new AtomicInteger();
+        var done = new Thread(() -> scheduler.<Integer>extractByPage(null, new PageRange(1, PAGES),
+                (p, from, to, sink) -> {
+                    if (from == 1) {
+                        firstBlocked.countDown();
+                        await(releaseFirst);
+                    } else if (releaseFirst.getCount() > 0) {
+                        furthest.accumulateAndGet(to, Math::max);
+                    }
+                    for (int page = from; page <= to; page++)
+                        sink.accept(page, page);
+                }, (element, page) -> handedOver.incrementAndGet(), new ExtractionControl()));
+        done.start();
+
+        assertTrue(firstBlocked.await(10, TimeUnit.SECONDS));
+        // give the other workers time to run ahead
+        Thread.sleep(500);
+        releaseFirst.countDown();
+        done.join(10_000);
+
+        assertEquals(PAGES, handedOver.get());
+        // two ranges of two pages per worker
+        assertTrue(furthest.get() <= 2 * 2 * WORKERS, "extracted up to page " + furthest.get());
+    }
+
+    @Test
+    public void nothingIsHandedOverOnceTheConsumerFails() {
+        var handedOver = new AtomicInteger();
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.<Integer>extractByPage(null, new PageRange(1, PAGES), (p, from, to, sink) -> {
+                    for (int page = from; page <= to; page++)
+                        sink.accept(page, page);
+                }, (element, page) -> {
+                    if (page == 10)
+                        throw new IllegalStateException("consumer failed");
+                    handedOver.incrementAndGet();
+                }, new ExtractionControl()));
+        assertEquals(9, handedOver.get());
+    }
+
+    @Test
+    public void stoppedControlStopsTheRanges() {
+        var control = new ExtractionControl();
+        var extracted = new AtomicInteger();
+        assertThrows(CancellationException.class,
+                () -> scheduler.<Integer>extractByPage(null, new PageRange(1, PAGES), (p, from, to, sink) -> {
+                    extracted.addAndGet(to - from + 1);
+                    if (from >= 20)
+                        control.cancel();
+                    for (int page = from; page <= to; page++)
+                        sink.accept(page, page);
+                }, (element, page) -> {
+                }, control));
+        assertTrue(extracted.get() < PAGES, "pages extracted: " + extracted.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.curtisnewbie.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class AdmissionControlTest {
+
+    @Test
+    public void requestsBeyondTheQueueAreRejectedRightAway() throws Exception {
+        var admission = new AdmissionControl(1, 1);
+        assertTrue(admission.enter(0, TimeUnit.MILLISECONDS));
+        var queued = CompletableFuture.supplyAsync(() -> enter(admission, 10_000));
+        while (admission.getQueued() == 0)
+            Thread.sleep(5);
+
+        long start = System.nanoTime();
+        assertFalse(admission.enter(10_000, TimeUnit.MILLISECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+        assertEquals(1, admission.getRejected());
+
+        admission.exit();
+        assertTrue(queued.get(10, TimeUnit.SECONDS));
+        assertEquals(1, admission.getRunning());
+        assertEquals(0, admission.getQueued());
+        assertEquals(2, admission.getAccepted());
+        admission.exit();
+        assertEquals(0, admission.getRunning());
+    }
+
+    @Test
+    public void requestWaitingTooLongIsRejected() throws Exception {
+        var admission = new AdmissionControl(1, 1);
+        assertTrue(admission.enter(0, TimeUnit.MILLISECONDS));
+        assertFalse(admission.enter(20, TimeUnit.MILLISECONDS));
+        assertEquals(1, admission.getTimedOut());
+        assertEquals(0, admission.getQueued());
+        // its place in the queue is given back
+        var queued = CompletableFuture.supplyAsync(() -> enter(admission, 10_000));
+        admission.exit();
+        assertTrue(queued.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void requestsRejectedBeforeAskingAreCounted() {
+        var admission = new AdmissionControl(1, 0);
+        admission.reject();
+        assertEquals(1, admission.getRejected());
+        assertEquals(0, admission.getRunning());
+    }
+
+    private static boolean enter(AdmissionControl admission, long timeoutMillis) {
+        try {
+            return admission.enter(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.curtisnewbie.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.curtisnewbie.TestPdfs;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ExtractionServerTest {
+
+    @TempDir
+    Path dir;
+
+    private ExtractionServer server;
+
+    @BeforeEach
+    public void start() throws IOException {
+        server = new ExtractionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 1);
+        server.start();
+    }
+
+    @AfterEach
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    public void pathsAreResolvedAgainstTheRoot() throws IOException {
+        var root = Files.createDirectory(dir.resolve("root"));
+        TestPdfs.textFile(root.resolve("doc.pdf"), 2);
+        server.setRoot(root);
+
+        var response = get("/text?path=doc.pdf");
+        assertEquals(200, response.status);
+        assertTrue(response.body.contains(TestPdfs.textOf(2)));
+    }
+
+    @Test
+    public void pathsOutsideOfTheRootAreRejected() throws IOException {
+        var root = Files.createDirectory(dir.resolve("root"));
+        var outside = TestPdfs.textFile(dir.resolve("outside.pdf"), 1);
+        server.setRoot(root);
+
+        assertEquals(403, get("/text?path=../outside.pdf").status);
+        assertEquals(403, get("/text?path=" + encode(outside.toString())).status);
+
+        Files.createSymbolicLink(root.resolve("link.pdf"), outside);
+        assertEquals(403, get("/text?path=link.pdf").status);
+    }
+
+    @Test
+    public void pathsAreAcceptedOnLoopbackWithoutRoot() throws IOException {
+        var pdf = TestPdfs.textFile(dir.resolve("doc.pdf"), 1);
+        var response = get("/text?path=" + encode(pdf.toString()));
+        assertEquals(200, response.status);
+        assertTrue(response.body.contains(TestPdfs.textOf(1)));
+    }
+
+    @Test
+    public void imagesStopStreamingOnceTheClientIsGone() throws Exception {
+        // noisy images don't compress, so the response is larger than the socket buffers
+        var pdf = dir.resolve("images.pdf");
+        var random = new Random(1);
+        try (var doc = new PDDocument()) {
+            for (int i = 0; i < 40; i++) {
+                var image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+                for (int y = 0; y < image.getHeight(); y++)
+                    for (int x = 0; x < image.getWidth(); x++)
+                        image.setRGB(x, y, random.nextInt());
+                TestPdfs.addImagePage(doc, LosslessFactory.createFromImage(doc, image));
+            }
+            doc.save(pdf.toFile());
+        }
+
+        try (var socket = connect()) {
+            send(socket, "GET /images?path=" + encode(pdf.toString()) + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            socket.getInputStream().readNBytes(1024);
+        }
+        // the extraction fails on the next image written, and the only worker is free again
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            while (!get("/health").body.contains("\"running\":0"))
+                Thread.sleep(50);
+        });
+        var text = TestPdfs.textFile(dir.resolve("doc.pdf"), 1);
+        assertEquals(200, get("/text?path=" + encode(text.toString())).status);
+    }
+
+    @Test
+    public void slowClientsBeyondTheThreadsDontHoldUpOthers() throws Exception {
+        // clients that never finish their requests take all the threads and their queues
+        List<Socket> slow = new ArrayList<>();
+        try {
+            for (int i = 0; i < 48; i++) {
+                var socket = connect();
+                slow.add(socket);
+                send(socket, "GET /health HTTP/1.1\r\n");
+            }
+            Thread.sleep(500);
+            // the others are closed without their requests being read
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                try (var socket = connect()) {
+                    send(socket, "GET /health HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                    assertEquals(-1, socket.getInputStream().read());
+                } catch (IOException e) {
+                    // reset by the server
+                }
+            });
+        } finally {
+            for (var socket : slow)
+                socket.close();
+        }
+        // the threads are freed once they read the end of the slow requests
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (true) {
+                try {
+                    if (get("/health").status == 200)
+                        return;
+                } catch (IOException e) {
+                    // closed while the queues are still full
+                }
+                Thread.sleep(50);
+            }
+        });
+    }
+
+    private Socket connect() throws IOException {
+        var address = server.getAddress();
+        return new Socket(address.getAddress(), address.getPort());
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+    }
+
+    private static class Response {
+        int status;
+        String body;
+    }
+
+    private Response get(String uri) throws IOException {
+        var address = server.getAddress();
+        var url = new URL("http://" + address.getHostString() + ":" + address.getPort() + uri);
+        var conn = (HttpURLConnection) url.openConnection();
+        try {
+            var response = new Response();
+            response.status = conn.getResponseCode();
+            var in = response.status < 400 ? conn.getInputStream() : conn.getErrorStream();
+            try (in) {
+                response.body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            return response;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+}
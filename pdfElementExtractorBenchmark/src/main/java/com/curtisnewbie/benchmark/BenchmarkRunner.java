@@ -0,0 +1,27 @@
+package com.curtisnewbie.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Entry point of the benchmarks, it accepts the same arguments as JMH, and
+ * always enables the GC profiler so that the allocation rate is reported.
+ * </p>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        var cmdOptions = new CommandLineOptions(args);
+        var options = new OptionsBuilder().parent(cmdOptions).addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,48 @@
+package com.curtisnewbie.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Utilities shared by the benchmarks
+ * </p>
+ */
+class Benchmarks {
+
+    /** strong references to keep the levels of the loggers */
+    private static final Logger[] loggers = { Logger.getLogger("com.curtisnewbie"),
+            Logger.getLogger("org.apache.pdfbox") };
+
+    /**
+     * Silence the logging of each extraction and PDFBox's warnings (e.g.,
+     * fallback fonts), so that they don't end up in the measurements
+     */
+    static void quietLogging() {
+        for (var logger : loggers)
+            logger.setLevel(Level.SEVERE);
+    }
+
+    /**
+     * Delete a directory and everything in it
+     */
+    static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir))
+            return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (var p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(p);
+        }
+    }
+}
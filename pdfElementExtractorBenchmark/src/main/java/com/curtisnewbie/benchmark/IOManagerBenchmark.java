@@ -0,0 +1,145 @@
+package com.curtisnewbie.benchmark;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.io.OutputSession;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Benchmarks of writing extracted elements with {@link IOManager}, and with an
+ * {@link OutputSession} of the same directory. Files are written under a small
+ * set of names that are overwritten over and over, so the benchmarks don't
+ * fill up the disk. The MB per second are of the data handed over to
+ * {@code IOManager}, i.e., the raw pixels of an image that is encoded as PNG.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IOManagerBenchmark {
+
+    private static final int FILES = 64;
+
+    private Path dir;
+    private String path;
+    private String text;
+    private long textBytes;
+    private BufferedImage image;
+    private long imageBytes;
+    private byte[] jpeg;
+    private OutputSession session;
+    private int count = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Benchmarks.quietLogging();
+        dir = Files.createTempDirectory("io-benchmark");
+        path = dir.toString();
+        var random = new Random(20200315L);
+
+        // roughly the text of a page full of text
+        var sb = new StringBuilder();
+        while (sb.length() < 4096)
+            sb.append(Long.toString(random.nextLong(), 36)).append(sb.length() % 80 < 10 ? '\n' : ' ');
+        text = sb.toString();
+        textBytes = text.getBytes(StandardCharsets.UTF_8).length;
+
+        image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        try {
+            for (int i = 0; i < 50; i++) {
+                g.setColor(new Color(random.nextInt(0x1000000)));
+                g.fillOval(random.nextInt(800), random.nextInt(600), random.nextInt(300), random.nextInt(300));
+            }
+        } finally {
+            g.dispose();
+        }
+        imageBytes = 800L * 600 * 4;
+
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        jpeg = out.toByteArray();
+        session = IOManager.openSession(path);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        session.close();
+        Benchmarks.delete(dir);
+    }
+
+    /**
+     * Write text of a page
+     */
+    @Benchmark
+    public String writeText(Throughput throughput) throws Exception {
+        throughput.add(1, textBytes);
+        return IOManager.writeElementToFile(path, text, "page " + nextIndex() + ".txt");
+    }
+
+    /**
+     * Write text of a page through an {@link OutputSession}, which doesn't check
+     * the directories for every file
+     */
+    @Benchmark
+    public String writeTextInSession(Throughput throughput) throws Exception {
+        throughput.add(1, textBytes);
+        return session.writeText(text, "page " + nextIndex() + ".txt");
+    }
+
+    /**
+     * Encode an image as PNG and write it
+     */
+    @Benchmark
+    public String writeImage(Throughput throughput) throws Exception {
+        throughput.add(0, imageBytes);
+        return IOManager.writeElementToFile(path, image, "img" + nextIndex() + ".png");
+    }
+
+    /**
+     * Write an encoded JPEG image as it is
+     */
+    @Benchmark
+    public String writeEncodedImage(Throughput throughput) throws Exception {
+        throughput.add(0, jpeg.length);
+        return IOManager.writeElementToFile(path, jpeg, "img" + nextIndex() + ".jpg");
+    }
+
+    private int nextIndex() {
+        count = (count + 1) % FILES;
+        return count;
+    }
+}
@@ -0,0 +1,134 @@
+package com.curtisnewbie.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.curtisnewbie.io.IOManager;
+import com.curtisnewbie.pdfprocess.ImageReferences;
+import com.curtisnewbie.pdfprocess.PdfProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Benchmarks of extracting text and images of all pages with
+ * {@link PdfProcessor}. The PDF file is loaded again before each invocation,
+ * because PDFBox caches the XObjects and the decoded images of a document,
+ * which would otherwise turn the later invocations into cache hits. Loading
+ * is not measured.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PdfProcessorBenchmark {
+
+    @Param({ "TEXT_HEAVY", "IMAGE_HEAVY", "MANY_PAGES", "NESTED_FORMS" })
+    public SyntheticPdfs.Kind kind;
+
+    /** number of workers extracting text of each page */
+    @Param({ "1" })
+    public int parallelism;
+
+    private Path dir;
+    private String path;
+    private long size;
+    private int pages;
+    private PdfProcessor processor;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        Benchmarks.quietLogging();
+        dir = Files.createTempDirectory("pdf-benchmark");
+        var pdf = SyntheticPdfs.generate(kind, dir);
+        path = pdf.toString();
+        size = Files.size(pdf);
+    }
+
+    @Setup(Level.Invocation)
+    public void load() throws Exception {
+        processor = new PdfProcessor(IOManager.readPdfFile(path), () -> IOManager.readPdfFile(path));
+        processor.setParallelism(parallelism);
+        pages = processor.validateAndReturnPageRange(1, -1).getToPage();
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() {
+        processor.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Benchmarks.delete(dir);
+    }
+
+    /**
+     * Text of all pages as a single string
+     */
+    @Benchmark
+    public String textWholeDocument(Throughput throughput) {
+        throughput.add(pages, size);
+        return processor.extractText(1, pages);
+    }
+
+    /**
+     * Text of all pages in chunks of a single page
+     */
+    @Benchmark
+    public List<String> textPerPageChunks(Throughput throughput) {
+        throughput.add(pages, size);
+        return processor.extractText(1, pages, 1);
+    }
+
+    /**
+     * Text of each page handed over as soon as it's stripped
+     */
+    @Benchmark
+    public void textByPage(Throughput throughput, Blackhole bh) {
+        throughput.add(pages, size);
+        processor.extractTextByPage(1, pages, (text, page) -> bh.consume(text));
+    }
+
+    /**
+     * Images of all pages decoded
+     */
+    @Benchmark
+    public ImageReferences images(Throughput throughput, Blackhole bh) {
+        throughput.add(pages, size);
+        return processor.extractImages(1, pages, (image, page) -> bh.consume(image));
+    }
+
+    /**
+     * Images of all pages, JPEG images are not decoded
+     */
+    @Benchmark
+    public ImageReferences imagesPassthrough(Throughput throughput, Blackhole bh) {
+        throughput.add(pages, size);
+        return processor.extractImagesPassthrough(1, pages, (image, page) -> bh.consume(image));
+    }
+}
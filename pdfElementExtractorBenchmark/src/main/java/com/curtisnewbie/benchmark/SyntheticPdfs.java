@@ -0,0 +1,181 @@
+package com.curtisnewbie.benchmark;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Generator of synthetic PDF files used by the benchmarks, they are built
+ * locally with PDFBox so that the benchmarks run offline. The content is
+ * generated with a fixed seed, so the same kind of PDF file is identical
+ * between runs.
+ * </p>
+ */
+public class SyntheticPdfs {
+
+    /**
+     * Kind of synthetic PDF file
+     */
+    public enum Kind {
+        /** a few pages full of text */
+        TEXT_HEAVY,
+        /** pages of JPEG and PNG images with little text */
+        IMAGE_HEAVY,
+        /** many pages with a few lines of text each */
+        MANY_PAGES,
+        /** pages of images drawn inside form XObjects nested in form XObjects */
+        NESTED_FORMS
+    }
+
+    private static final long SEED = 20200315L;
+    private static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+            "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna",
+            "aliqua" };
+
+    /**
+     * Generate a PDF file of the given kind
+     * 
+     * @param kind kind of PDF file
+     * @param dir  directory where the PDF file is written to
+     * @return path of the PDF file
+     * @throws IOException
+     */
+    public static Path generate(Kind kind, Path dir) throws IOException {
+        var random = new Random(SEED);
+        var file = dir.resolve(kind.name().toLowerCase() + ".pdf");
+        try (var doc = new PDDocument()) {
+            switch (kind) {
+                case TEXT_HEAVY:
+                    for (int i = 0; i < 20; i++)
+                        addTextPage(doc, random, 60);
+                    break;
+                case IMAGE_HEAVY:
+                    for (int i = 0; i < 20; i++)
+                        addImagePage(doc, random);
+                    break;
+                case MANY_PAGES:
+                    for (int i = 0; i < 1000; i++)
+                        addTextPage(doc, random, 3);
+                    break;
+                case NESTED_FORMS:
+                    for (int i = 0; i < 20; i++)
+                        addNestedFormPage(doc, random, 3);
+                    break;
+            }
+            Files.createDirectories(dir);
+            doc.save(file.toFile());
+        }
+        return file;
+    }
+
+    private static void addTextPage(PDDocument doc, Random random, int lines) throws IOException {
+        var page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        try (var cs = new PDPageContentStream(doc, page)) {
+            cs.beginText();
+            cs.setFont(PDType1Font.HELVETICA, 10);
+            cs.setLeading(12);
+            cs.newLineAtOffset(40, 800);
+            for (int i = 0; i < lines; i++) {
+                cs.showText(sentence(random, 14));
+                cs.newLine();
+            }
+            cs.endText();
+        }
+    }
+
+    private static void addImagePage(PDDocument doc, Random random) throws IOException {
+        var page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        var jpeg = JPEGFactory.createFromImage(doc, image(random, 400, 300), 0.8f);
+        var png = LosslessFactory.createFromImage(doc, image(random, 200, 200));
+        try (var cs = new PDPageContentStream(doc, page)) {
+            cs.drawImage(jpeg, 40, 450, 400, 300);
+            cs.drawImage(png, 40, 200, 200, 200);
+            cs.beginText();
+            cs.setFont(PDType1Font.HELVETICA, 10);
+            cs.newLineAtOffset(40, 100);
+            cs.showText(sentence(random, 10));
+            cs.endText();
+        }
+    }
+
+    private static void addNestedFormPage(PDDocument doc, Random random, int depth) throws IOException {
+        var page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        var form = nestedForm(doc, random, depth);
+        try (var cs = new PDPageContentStream(doc, page)) {
+            cs.saveGraphicsState();
+            cs.transform(Matrix.getTranslateInstance(40, 300));
+            cs.drawForm(form);
+            cs.restoreGraphicsState();
+        }
+    }
+
+    /**
+     * Create a form that draws an image and the form of the next level
+     */
+    private static PDFormXObject nestedForm(PDDocument doc, Random random, int depth) throws IOException {
+        var form = new PDFormXObject(doc);
+        form.setBBox(new PDRectangle(400, 400));
+        form.setResources(new PDResources());
+        PDImageXObject image = JPEGFactory.createFromImage(doc, image(random, 160, 120), 0.8f);
+        try (var cs = new PDPageContentStream(doc, form, form.getStream().createOutputStream())) {
+            cs.drawImage(image, 0, 0, 160, 120);
+            if (depth > 1) {
+                cs.saveGraphicsState();
+                cs.transform(Matrix.getTranslateInstance(20, 130));
+                cs.drawForm(nestedForm(doc, random, depth - 1));
+                cs.restoreGraphicsState();
+            }
+        }
+        return form;
+    }
+
+    private static BufferedImage image(Random random, int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        try {
+            for (int i = 0; i < 30; i++) {
+                g.setColor(new Color(random.nextInt(0x1000000)));
+                g.fillRect(random.nextInt(width), random.nextInt(height), random.nextInt(width / 2) + 1,
+                        random.nextInt(height / 2) + 1);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static String sentence(Random random, int words) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0)
+                sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
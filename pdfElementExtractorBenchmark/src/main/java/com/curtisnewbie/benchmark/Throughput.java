@@ -0,0 +1,43 @@
+package com.curtisnewbie.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * ------------------------------------
+ * 
+ * Author: Yongjie Zhuang
+ * 
+ * ------------------------------------
+ * 
+ * <p>
+ * Counters of the work done by the benchmarks, JMH reports them as rates
+ * of the benchmark mode, i.e., pages per second and MB per second next to the
+ * operations per second.
+ * </p>
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+    private static final double MB = 1024 * 1024;
+
+    /** number of pages processed */
+    public long pages;
+    /** MB of data processed */
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        pages = 0;
+        megabytes = 0;
+    }
+
+    void add(long pages, long bytes) {
+        this.pages += pages;
+        this.megabytes += bytes / MB;
+    }
+}